@@ -1,6 +1,7 @@
 package com.raoulvdberge.refinedstorage;
 
 import com.raoulvdberge.refinedstorage.command.CommandCreateDisk;
+import com.raoulvdberge.refinedstorage.command.CommandMetrics;
 import com.raoulvdberge.refinedstorage.item.ItemCover;
 import com.raoulvdberge.refinedstorage.proxy.ProxyCommon;
 import net.minecraft.creativetab.CreativeTabs;
@@ -69,5 +70,6 @@ public final class RS {
     @EventHandler
     public void onServerStarting(FMLServerStartingEvent e) {
         e.registerServerCommand(new CommandCreateDisk());
+        e.registerServerCommand(new CommandMetrics());
     }
 }
@@ -59,6 +59,7 @@ public class RSConfig {
     public int maxRowsStretch;
     public boolean largeFont;
     public boolean detailedTooltip;
+    public int gridSyncBytesPerTick;
     //endregion
 
     //region Wireless Transmitter
@@ -124,8 +125,24 @@ public class RSConfig {
     public boolean hideCovers;
     //endregion
 
+    //region Storage Disks
+    public int storageDiskUnloadMinutes;
+    //endregion
+
+    //region External Storage
+    public int externalStorageScanWindow;
+    public int externalStorageMaxScanInterval;
+    //endregion
+
+    //region Importer
+    public boolean importerBulkMode;
+    //endregion
+
     //region Autocrafting
     public int calculationTimeoutMs;
+    public boolean calculationUsesSnapshot;
+    public int calculationThreads;
+    public int calculationQueueSize;
     //endregion
 
     //region Categories
@@ -141,6 +158,9 @@ public class RSConfig {
     private static final String UPGRADES = "upgrades";
     private static final String READER_WRITER = "readerWriter";
     private static final String COVERS = "covers";
+    private static final String STORAGE_DISKS = "storageDisks";
+    private static final String EXTERNAL_STORAGE = "externalStorage";
+    private static final String IMPORTER = "importer";
     private static final String AUTOCRAFTING = "autocrafting";
     private static final String MISC = "misc";
     //endregion
@@ -218,6 +238,7 @@ public class RSConfig {
         maxRowsStretch = config.getInt("maxRowsStretch", GRID, Integer.MAX_VALUE, 3, Integer.MAX_VALUE, "The maximum amount of rows that the Grid can show when stretched");
         largeFont = config.getBoolean("largeFont", GRID, false, "Whether the Grid should use a large font for stack quantity display");
         detailedTooltip = config.getBoolean("detailedTooltip", GRID, true, "Whether the Grid should display a detailed tooltip when hovering over an item or fluid");
+        gridSyncBytesPerTick = config.getInt("syncBytesPerTick", GRID, 262144, 4096, Integer.MAX_VALUE, "The amount of bytes of stacks sent per tick to a player opening a Grid, larger networks are sent over multiple ticks");
         //endregion
 
         //region Wireless Transmitter
@@ -283,8 +304,24 @@ public class RSConfig {
         hideCovers = config.getBoolean("hideCovers", COVERS, false, "Whether to hide covers in the creative mode tabs and JEI");
         //endregion
 
+        //region Storage Disks
+        storageDiskUnloadMinutes = config.getInt("unloadMinutes", STORAGE_DISKS, 10, 0, Integer.MAX_VALUE, "The amount of minutes after which the contents of a storage disk that isn't used are removed from memory, they are read from the world again when needed. 0 keeps all disks in memory");
+        //endregion
+
+        //region External Storage
+        externalStorageScanWindow = config.getInt("scanWindow", EXTERNAL_STORAGE, 128, 1, Integer.MAX_VALUE, "The amount of slots of a connected inventory an External Storage checks for changes per tick");
+        externalStorageMaxScanInterval = config.getInt("maxScanInterval", EXTERNAL_STORAGE, 20, 1, Integer.MAX_VALUE, "The maximum amount of ticks an External Storage waits between checking a connected inventory for changes, the wait grows up to this value while the inventory doesn't change");
+        //endregion
+
+        //region Importer
+        importerBulkMode = config.getBoolean("bulkMode", IMPORTER, false, "Whether Importers take from every slot of the connected inventory per operation instead of from a single slot, identical stacks are inserted into the network together");
+        //endregion
+
         //region Autocrafting
         calculationTimeoutMs = config.getInt("calculationTimeoutMs", AUTOCRAFTING, 5000, 5000, Integer.MAX_VALUE, "The autocrafting calculation timeout in milliseconds, tasks taking longer than this to calculate (NOT execute) are cancelled to avoid server strain");
+        calculationThreads = config.getInt("calculationThreads", AUTOCRAFTING, 2, 1, 64, "The amount of threads used to calculate autocrafting requests");
+        calculationQueueSize = config.getInt("calculationQueueSize", AUTOCRAFTING, 64, 1, Integer.MAX_VALUE, "The maximum amount of automated autocrafting requests waiting to be calculated, further requests are dropped until the queue has space again. Requests from players are always accepted");
+        calculationUsesSnapshot = config.getBoolean("calculationUsesSnapshot", AUTOCRAFTING, true, "Whether automated crafting requests are calculated against a snapshot of the network storage and only take their items once the calculation is done, instead of extracting from the live network while calculating");
         //endregion
 
         if (config.hasChanged()) {
@@ -306,6 +343,9 @@ public class RSConfig {
         list.add(new ConfigElement(config.getCategory(PORTABLE_GRID)));
         list.add(new ConfigElement(config.getCategory(READER_WRITER)));
         list.add(new ConfigElement(config.getCategory(COVERS)));
+        list.add(new ConfigElement(config.getCategory(STORAGE_DISKS)));
+        list.add(new ConfigElement(config.getCategory(EXTERNAL_STORAGE)));
+        list.add(new ConfigElement(config.getCategory(IMPORTER)));
         list.add(new ConfigElement(config.getCategory(AUTOCRAFTING)));
 
         return list;
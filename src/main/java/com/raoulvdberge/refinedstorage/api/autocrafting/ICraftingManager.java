@@ -220,6 +220,11 @@ public interface ICraftingManager {
      */
     void onTaskChanged();
 
+    /**
+     * Called when the state of a task changed, so that the tasks are saved again.
+     */
+    void markTasksUnsaved();
+
     /**
      * @param pattern to look for
      * @return a LinkedHashSet with all container that have this pattern
@@ -101,6 +101,14 @@ public interface ICraftingTask {
      */
     List<ICraftingMonitorElement> getCraftingMonitorElements();
 
+    /**
+     * @return a number that changes whenever the crafting monitor elements of this task may have changed, or -1 if
+     * this task doesn't keep track of that
+     */
+    default long getVersion() {
+        return -1;
+    }
+
     /**
      * {@link ICraftingTask#calculate()} must be run before this!
      *
@@ -5,6 +5,7 @@ import com.raoulvdberge.refinedstorage.api.energy.IEnergy;
 import com.raoulvdberge.refinedstorage.api.network.grid.handler.IFluidGridHandler;
 import com.raoulvdberge.refinedstorage.api.network.grid.handler.IItemGridHandler;
 import com.raoulvdberge.refinedstorage.api.network.item.INetworkItemHandler;
+import com.raoulvdberge.refinedstorage.api.network.node.INetworkNode;
 import com.raoulvdberge.refinedstorage.api.network.readerwriter.IReaderWriterManager;
 import com.raoulvdberge.refinedstorage.api.network.security.ISecurityManager;
 import com.raoulvdberge.refinedstorage.api.storage.IStorage;
@@ -20,6 +21,8 @@ import net.minecraftforge.fluids.FluidStack;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.util.Collections;
+import java.util.List;
 import java.util.function.Predicate;
 
 /**
@@ -31,6 +34,15 @@ public interface INetwork {
      */
     int getEnergyUsage();
 
+    /**
+     * Called when the energy usage of a node in this network might have changed, the usage of the node is read again
+     * on the next update.
+     *
+     * @param node the node
+     */
+    default void markEnergyUsageDirty(INetworkNode node) {
+    }
+
     /**
      * @return the position of this network in the world
      */
@@ -239,6 +251,26 @@ public interface INetwork {
         return extractItem(stack, size, IComparer.COMPARE_DAMAGE | IComparer.COMPARE_NBT, action);
     }
 
+    /**
+     * Extracts every item stack matching the prototype from this network, until {@code size} is reached.
+     * All stacks are taken in one pass over the storages and sent to the storage cache as a single change.
+     * <p>
+     * Unlike {@link #extractItem(ItemStack, long, int, Action)} the stacks aren't merged into the first one found,
+     * so items that only differ in what the flags don't compare, like the damage of tools, are returned separately.
+     *
+     * @param stack  the prototype of the stack to extract, do NOT modify
+     * @param size   the total amount that has to be extracted
+     * @param flags  the flags to compare on, see {@link IComparer}
+     * @param action the action
+     * @return the extracted stacks, empty if we didn't extract anything
+     */
+    @Nonnull
+    default List<StackListResult<ItemStack>> extractItems(@Nonnull ItemStack stack, long size, int flags, Action action) {
+        StackListResult<ItemStack> result = extractItem(stack, size, flags, action);
+
+        return result == null ? Collections.emptyList() : Collections.singletonList(result);
+    }
+
     /**
      * Inserts a fluid in this network.
      *
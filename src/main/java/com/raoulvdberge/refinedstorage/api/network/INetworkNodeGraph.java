@@ -5,6 +5,7 @@ import com.raoulvdberge.refinedstorage.api.util.Action;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.world.World;
 
+import javax.annotation.Nullable;
 import java.util.Collection;
 import java.util.function.Consumer;
 
@@ -39,6 +40,29 @@ public interface INetworkNodeGraph {
      */
     void invalidate(Action action, World world, BlockPos origin);
 
+    /**
+     * Connects the nodes that became reachable from a node that is already part of this graph, without visiting the
+     * rest of the graph again. Used when a node is placed next to the network or when a node starts conducting.
+     *
+     * @param world the world of the node
+     * @param pos   the position of a node that is part of this graph
+     */
+    default void connect(World world, BlockPos pos) {
+        invalidate(Action.PERFORM, getNetworkForBCReasons().world(), getNetworkForBCReasons().getPosition());
+    }
+
+    /**
+     * Disconnects a removed node and the nodes that lost their connection to the network because of it, only checking
+     * the connectivity around the given position where possible. Also used when a node stops conducting.
+     *
+     * @param world   the world of the node
+     * @param pos     the position of the node
+     * @param removed the removed node, or null if the node is still there but stopped conducting
+     */
+    default void disconnect(World world, BlockPos pos, @Nullable INetworkNode removed) {
+        invalidate(Action.PERFORM, getNetworkForBCReasons().world(), getNetworkForBCReasons().getPosition());
+    }
+
     /**
      * Runs an action on the network.
      * If the network is rebuilding it's graph, the action will be executed after the graph was built.
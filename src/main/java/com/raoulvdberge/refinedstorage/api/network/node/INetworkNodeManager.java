@@ -44,7 +44,16 @@ public interface INetworkNodeManager {
     Collection<INetworkNode> allTickable();
 
     /**
-     * Marks the network node manager for saving.
+     * Marks the network node manager for saving, all nodes are written again.
      */
     void markForSaving();
+
+    /**
+     * Marks a single node for saving, the other nodes can reuse what they wrote on the last save.
+     *
+     * @param node the node that changed
+     */
+    default void markForSaving(INetworkNode node) {
+        markForSaving();
+    }
 }
@@ -8,7 +8,9 @@ import com.raoulvdberge.refinedstorage.api.util.StackListResult;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.List;
 
 public interface IStorage<T> {
     Comparator<IStorage<?>> COMPARATOR = (left, right) -> {
@@ -60,6 +62,26 @@ public interface IStorage<T> {
     @Nullable
     StackListResult<T> extract(@Nonnull T stack, long size, int flags, Action action);
 
+    /**
+     * Extracts every stack matching the prototype, until {@code size} is reached.
+     * <p>
+     * Unlike {@link #extract(Object, long, int, Action)} this can return multiple different stacks, for example tools
+     * with different damage if the flags don't compare damage. The default implementation only extracts a single stack,
+     * storages whose extract merges stacks that the flags don't tell apart should override this.
+     *
+     * @param stack  a prototype of the stack to extract, do NOT modify
+     * @param size   the total amount that has to be extracted
+     * @param flags  the flags to compare on, see {@link IComparer}
+     * @param action the action
+     * @return the extracted stacks, empty if we didn't extract anything
+     */
+    @Nonnull
+    default List<StackListResult<T>> extractAll(@Nonnull T stack, long size, int flags, Action action) {
+        StackListResult<T> result = extract(stack, size, flags, action);
+
+        return result == null ? Collections.emptyList() : Collections.singletonList(result);
+    }
+
     /**
      * @return the amount stored in this storage
      */
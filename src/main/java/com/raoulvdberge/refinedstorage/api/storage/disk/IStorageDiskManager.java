@@ -4,6 +4,7 @@ import net.minecraft.item.ItemStack;
 
 import javax.annotation.Nullable;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 /**
@@ -29,10 +30,19 @@ public interface IStorageDiskManager {
     IStorageDisk<?> getByStack(ItemStack disk);
 
     /**
+     * Implementations may load storage disks on demand, in which case this loads every disk.
+     *
      * @return a map of all storage disks
      */
     Map<UUID, IStorageDisk<?>> getAll();
 
+    /**
+     * @return the ids of all storage disks
+     */
+    default Set<UUID> getIds() {
+        return getAll().keySet();
+    }
+
     /**
      * Sets a storage disk.
      *
@@ -52,4 +62,13 @@ public interface IStorageDiskManager {
      * Marks this manager for saving.
      */
     void markForSaving();
+
+    /**
+     * Marks a single storage disk for saving. Implementations can use this to only save the disks that changed.
+     *
+     * @param disk the disk that changed
+     */
+    default void markForSaving(IStorageDisk<?> disk) {
+        markForSaving();
+    }
 }
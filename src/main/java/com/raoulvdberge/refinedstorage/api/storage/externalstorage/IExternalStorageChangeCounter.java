@@ -0,0 +1,18 @@
+package com.raoulvdberge.refinedstorage.api.storage.externalstorage;
+
+/**
+ * Can be implemented by an {@link net.minecraftforge.items.IItemHandler} that keeps track of its own modifications.
+ * An external storage connected to such a handler only scans the handler when the change count has moved since the
+ * last scan, instead of periodically comparing every slot.
+ * <p>
+ * Modifications done by the network itself don't count as a move, so a handler that is only written to by the network
+ * is never scanned.
+ */
+public interface IExternalStorageChangeCounter {
+    /**
+     * The returned value must change every time the contents of any slot change, the actual value is not relevant.
+     *
+     * @return the change count
+     */
+    long getChangeCount();
+}
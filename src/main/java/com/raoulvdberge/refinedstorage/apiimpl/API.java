@@ -24,7 +24,6 @@ import com.raoulvdberge.refinedstorage.api.storage.disk.IStorageDiskManager;
 import com.raoulvdberge.refinedstorage.api.storage.disk.IStorageDiskRegistry;
 import com.raoulvdberge.refinedstorage.api.storage.disk.IStorageDiskSync;
 import com.raoulvdberge.refinedstorage.api.storage.externalstorage.IExternalStorageProvider;
-import com.raoulvdberge.refinedstorage.api.util.Action;
 import com.raoulvdberge.refinedstorage.api.util.IComparer;
 import com.raoulvdberge.refinedstorage.api.util.IQuantityFormatter;
 import com.raoulvdberge.refinedstorage.api.util.IStackList;
@@ -223,10 +222,10 @@ public class API implements IRSAPI {
             instance = new StorageDiskManager(StorageDiskManager.NAME);
 
             storage.setData(StorageDiskManager.NAME, instance);
-        } else {
-            instance.tryReadDisks(world);
         }
 
+        instance.tryReadDisks(world);
+
         return instance;
     }
 
@@ -300,8 +299,7 @@ public class API implements IRSAPI {
                 if (node.getNetwork() == null)
                     continue;
 
-                node.getNetwork().getNodeGraph()
-                        .invalidate(Action.PERFORM, node.getNetwork().world(), node.getNetwork().getPosition());
+                node.getNetwork().getNodeGraph().connect(world, pos.offset(facing));
                 return;
             }
         }
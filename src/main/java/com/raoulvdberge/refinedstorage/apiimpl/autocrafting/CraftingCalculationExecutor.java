@@ -0,0 +1,166 @@
+package com.raoulvdberge.refinedstorage.apiimpl.autocrafting;
+
+import com.raoulvdberge.refinedstorage.RS;
+import com.raoulvdberge.refinedstorage.apiimpl.util.Metrics;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Runs crafting calculations on a dedicated, bounded thread pool instead of the common fork join pool.
+ * Queued calculations are ordered by {@link Priority} first and by submission order second.
+ */
+public final class CraftingCalculationExecutor {
+    public enum Priority {
+        /**
+         * Requested by a player, e.g. from a grid
+         */
+        PLAYER,
+        /**
+         * Requested by automation, e.g. exporters with a crafting upgrade
+         */
+        AUTOMATION
+    }
+
+    private static CraftingCalculationExecutor instance;
+
+    private final ThreadPoolExecutor executor;
+    private final int queueCapacity;
+
+    private final AtomicLong sequence = new AtomicLong();
+    private final Set<Object> queuedKeys = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong started = new AtomicLong();
+    private final AtomicLong totalWaitMs = new AtomicLong();
+    private final AtomicLong maxWaitMs = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong deduplicated = new AtomicLong();
+
+    private CraftingCalculationExecutor(int threads, int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+
+        AtomicInteger threadId = new AtomicInteger();
+
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new PriorityBlockingQueue<>(), r -> {
+            Thread thread = new Thread(r, "RS Crafting Calculation #" + threadId.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.executor.allowCoreThreadTimeOut(true);
+
+        Metrics.register("autocrafting.calculation.queueDepth", () -> executor.getQueue().size());
+        Metrics.register("autocrafting.calculation.running", executor::getActiveCount);
+        Metrics.register("autocrafting.calculation.averageWaitMs", () -> started.get() == 0 ? 0 : totalWaitMs.get() / started.get());
+        Metrics.register("autocrafting.calculation.maxWaitMs", maxWaitMs::get);
+        Metrics.register("autocrafting.calculation.rejected", rejected::get);
+        Metrics.register("autocrafting.calculation.deduplicated", deduplicated::get);
+    }
+
+    /**
+     * @return the executor, created with the configured amount of threads on first use
+     */
+    public static synchronized CraftingCalculationExecutor instance() {
+        if (instance == null) {
+            instance = new CraftingCalculationExecutor(RS.INSTANCE.config.calculationThreads, RS.INSTANCE.config.calculationQueueSize);
+        }
+
+        return instance;
+    }
+
+    /**
+     * Only calculations are queued from the server thread, so a key that isn't queued can't become queued before the
+     * next {@link #submit(Priority, Object, Supplier)} from it.
+     *
+     * @param key the key of a request
+     * @return true if a calculation with the key is waiting in the queue
+     */
+    public boolean isQueued(@Nonnull Object key) {
+        return queuedKeys.contains(key);
+    }
+
+    /**
+     * Queues a calculation.
+     * <p>
+     * Calculations with the same key as a calculation that is still waiting in the queue are dropped. Calculations with
+     * {@link Priority#AUTOMATION} are dropped as well when the queue is full, player requests are always accepted.
+     *
+     * @param priority    the priority
+     * @param key         a key identifying the request for deduplication, or null to never deduplicate
+     * @param calculation the calculation
+     * @param <T>         the result type
+     * @return the future holding the result, or null if the calculation was dropped
+     */
+    @Nullable
+    public <T> CompletableFuture<T> submit(@Nonnull Priority priority, @Nullable Object key, @Nonnull Supplier<T> calculation) {
+        if (key != null && !queuedKeys.add(key)) {
+            deduplicated.incrementAndGet();
+
+            return null;
+        }
+
+        if (priority == Priority.AUTOMATION && executor.getQueue().size() >= queueCapacity) {
+            if (key != null) {
+                queuedKeys.remove(key);
+            }
+
+            rejected.incrementAndGet();
+
+            return null;
+        }
+
+        CompletableFuture<T> future = new CompletableFuture<>();
+
+        executor.execute(new Job<>(priority, sequence.getAndIncrement(), key, calculation, future));
+
+        return future;
+    }
+
+    private final class Job<T> implements Runnable, Comparable<Job<?>> {
+        private final Priority priority;
+        private final long sequence;
+        @Nullable
+        private final Object key;
+        private final Supplier<T> calculation;
+        private final CompletableFuture<T> future;
+        private final long queuedAt = System.currentTimeMillis();
+
+        private Job(Priority priority, long sequence, @Nullable Object key, Supplier<T> calculation, CompletableFuture<T> future) {
+            this.priority = priority;
+            this.sequence = sequence;
+            this.key = key;
+            this.calculation = calculation;
+            this.future = future;
+        }
+
+        @Override
+        public void run() {
+            if (key != null) {
+                queuedKeys.remove(key);
+            }
+
+            long waited = System.currentTimeMillis() - queuedAt;
+
+            started.incrementAndGet();
+            totalWaitMs.addAndGet(waited);
+            maxWaitMs.accumulateAndGet(waited, Math::max);
+
+            try {
+                future.complete(calculation.get());
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            }
+        }
+
+        @Override
+        public int compareTo(@Nonnull Job<?> other) {
+            int compare = priority.compareTo(other.priority);
+
+            return compare != 0 ? compare : Long.compare(sequence, other.sequence);
+        }
+    }
+}
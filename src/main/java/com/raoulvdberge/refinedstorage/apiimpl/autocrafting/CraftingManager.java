@@ -1,10 +1,13 @@
 package com.raoulvdberge.refinedstorage.apiimpl.autocrafting;
 
+import com.raoulvdberge.refinedstorage.RS;
 import com.raoulvdberge.refinedstorage.api.autocrafting.ICraftingManager;
 import com.raoulvdberge.refinedstorage.api.autocrafting.ICraftingPattern;
 import com.raoulvdberge.refinedstorage.api.autocrafting.ICraftingPatternContainer;
 import com.raoulvdberge.refinedstorage.api.autocrafting.craftingmonitor.ICraftingMonitorListener;
 import com.raoulvdberge.refinedstorage.api.autocrafting.engine.CraftingTaskReadException;
+import com.raoulvdberge.refinedstorage.api.autocrafting.engine.ICraftingRequestInfo;
+import com.raoulvdberge.refinedstorage.api.autocrafting.engine.ICraftingTaskError;
 import com.raoulvdberge.refinedstorage.api.autocrafting.registry.ICraftingTaskFactory;
 import com.raoulvdberge.refinedstorage.api.autocrafting.task.ICraftingTask;
 import com.raoulvdberge.refinedstorage.api.network.node.INetworkNode;
@@ -13,6 +16,7 @@ import com.raoulvdberge.refinedstorage.apiimpl.API;
 import com.raoulvdberge.refinedstorage.apiimpl.autocrafting.engine.CraftingTaskError;
 import com.raoulvdberge.refinedstorage.apiimpl.autocrafting.engine.task.MasterCraftingTask;
 import com.raoulvdberge.refinedstorage.apiimpl.autocrafting.registry.CraftingTaskFactory;
+import com.raoulvdberge.refinedstorage.apiimpl.util.StackListItem;
 import com.raoulvdberge.refinedstorage.tile.TileController;
 import net.minecraft.item.ItemStack;
 import net.minecraft.nbt.NBTTagCompound;
@@ -33,6 +37,10 @@ import java.util.function.Predicate;
 
 public class CraftingManager implements ICraftingManager {
     private static final int THROTTLE_DELAY_MS = 3000;
+    /**
+     * How often a snapshot calculation is redone when the stock changed before its plan could be committed
+     */
+    private static final int MAX_SNAPSHOT_REPLANS = 3;
 
     private static final Logger LOGGER = LogManager.getLogger(CraftingManager.class);
 
@@ -46,6 +54,10 @@ public class CraftingManager implements ICraftingManager {
     private final Map<ICraftingPattern, Set<ICraftingPatternContainer>> patternToContainer = new HashMap<>();
 
     private final Set<ICraftingPattern> patterns = new HashSet<>();
+    /**
+     * Output lookup table, replaced as a whole on every rebuild so that calculation threads can read it without locking
+     */
+    private volatile CraftingPatternIndex patternIndex = CraftingPatternIndex.EMPTY;
 
     private final Map<UUID, ICraftingTask> tasks = new LinkedHashMap<>();
     private final List<UUID> tasksToCancel = new ArrayList<>();
@@ -54,11 +66,22 @@ public class CraftingManager implements ICraftingManager {
     private final Map<Object, Long> throttledRequesters = new HashMap<>();
     private final Set<ICraftingMonitorListener> listeners = new HashSet<>();
 
+    /**
+     * The tasks by the tracking keys of their processing outputs, null if the tasks changed since it was built or if
+     * a task can't tell its outputs
+     */
+    private Map<Object, List<ICraftingTask>> tasksByOutput;
+    private boolean tasksByOutputValid;
+
     private NBTTagList tasksToRead;
     /**
      * Whether or not a crafting monitor update should be sent
      */
     private boolean tasksDirty;
+    /**
+     * Whether or not the state of a task changed since the network was last marked dirty
+     */
+    private boolean tasksUnsaved;
 
     public CraftingManager(TileController network) {
         this.network = network;
@@ -66,8 +89,8 @@ public class CraftingManager implements ICraftingManager {
 
     @Override
     public void update() {
-        //sends updates at a max rate of 1 per tick and force sends every 20 ticks
-        if (this.tasksDirty || this.network.getWorld().getWorldTime() % 20 == 0) {
+        //listeners limit and refresh their updates themselves
+        if (this.tasksDirty) {
             listeners.forEach(ICraftingMonitorListener::onChanged);
             this.tasksDirty = false;
         }
@@ -87,6 +110,7 @@ public class CraftingManager implements ICraftingManager {
                         MasterCraftingTask task = factory.createFromNbt(network, taskData);
 
                         tasks.put(task.getId(), task);
+                        tasksByOutputValid = false;
 
                         LOGGER.debug("Loaded task with id {}", task.getId());
                     } catch (CraftingTaskReadException e) {
@@ -105,6 +129,7 @@ public class CraftingManager implements ICraftingManager {
             if (task != null) {
                 task.onCancelled();
                 this.tasks.remove(idToCancel);
+                this.tasksByOutputValid = false;
             }
         }
         this.tasksToCancel.clear();
@@ -119,6 +144,7 @@ public class CraftingManager implements ICraftingManager {
                 anyFinished = true;
 
                 it.remove();
+                this.tasksByOutputValid = false;
                 //insert everything that remains, like infinite inputs
                 task.onCancelled();
             }
@@ -126,11 +152,14 @@ public class CraftingManager implements ICraftingManager {
 
         if (changed || anyFinished) {
             onTaskChanged();
-        }
 
-        if (!tasks.isEmpty()) {
+            network.markNetworkNodeDirty();
+        } else if (tasksUnsaved) {
+            //tasks that are only waiting don't need to be saved again
             network.markNetworkNodeDirty();
         }
+
+        this.tasksUnsaved = false;
     }
 
     @Override
@@ -138,6 +167,11 @@ public class CraftingManager implements ICraftingManager {
         this.tasksDirty = true;
     }
 
+    @Override
+    public void markTasksUnsaved() {
+        this.tasksUnsaved = true;
+    }
+
     @Override
     public NBTTagCompound writeToNbt(NBTTagCompound tag) {
         NBTTagList list = new NBTTagList();
@@ -164,6 +198,7 @@ public class CraftingManager implements ICraftingManager {
     @Override
     public void add(@Nonnull ICraftingTask task) {
         tasks.put(task.getId(), task);
+        tasksByOutputValid = false;
 
         network.markNetworkNodeDirty();
     }
@@ -278,25 +313,86 @@ public class CraftingManager implements ICraftingManager {
     }
 
     private void addAndCalculateTask(Object source, ICraftingTask task) {
+        addAndCalculateTask(source, task, 0);
+    }
+
+    private void addAndCalculateTask(Object source, ICraftingTask task, int replans) {
+        Object key = getCalculationKey(source, task);
+
+        //an identical request is still queued, its task covers this one
+        if (CraftingCalculationExecutor.instance().isQueued(key)) {
+            task.onCancelled();
+            throttle(source);
+            return;
+        }
+
+        boolean snapshot = RS.INSTANCE.config.calculationUsesSnapshot && task instanceof MasterCraftingTask;
+        if (snapshot) {
+            ((MasterCraftingTask) task).prepareSnapshotCalculation();
+        }
+
+        CompletableFuture<ICraftingTaskError> calculation = CraftingCalculationExecutor.instance()
+                .submit(CraftingCalculationExecutor.Priority.AUTOMATION, key, task::calculate);
+
+        if (calculation == null) {
+            //the queue is full
+            task.onCancelled();
+            throttle(source);
+            return;
+        }
+
         this.tasksInCalculation.add(task);
-        CompletableFuture.supplyAsync(task::calculate).exceptionally((t) -> {
+        calculation.exceptionally((t) -> {
             t.printStackTrace();
             task.onCancelled();
             return new CraftingTaskError();
         }).thenAccept((err) -> {
             FMLCommonHandler.instance().getMinecraftServerInstance().addScheduledTask(() -> {
+                this.tasksInCalculation.remove(task);
+
                 if (err == null && !task.hasMissing()) {
+                    if (snapshot && !((MasterCraftingTask) task).commitSnapshotCalculation()) {
+                        //the stock changed while calculating, plan again with the current stock
+                        task.onCancelled();
+
+                        ICraftingTask replanned = replans < MAX_SNAPSHOT_REPLANS ? recreate(task) : null;
+                        if (replanned != null) {
+                            addAndCalculateTask(source, replanned, replans + 1);
+                        } else {
+                            throttle(source);
+                        }
+
+                        return;
+                    }
+
                     this.add(task);
                     task.setCanUpdate(true);
                 } else {
                     throttle(source);
                 }
-
-                this.tasksInCalculation.remove(task);
             });
         });
     }
 
+    private Object getCalculationKey(Object source, ICraftingTask task) {
+        ICraftingRequestInfo info = task.getRequested();
+
+        Object requested = info.getItem() != null ? new StackListItem.ItemStackWrapper(info.getItem().copy()) : info.getFluid();
+
+        return Arrays.asList(this, source, requested, info.getQuantity());
+    }
+
+    @Nullable
+    private ICraftingTask recreate(ICraftingTask task) {
+        ICraftingRequestInfo info = task.getRequested();
+
+        if (info.getItem() != null) {
+            return create(info.getItem(), info.getQuantity());
+        }
+
+        return create(info.getFluid(), info.getQuantity());
+    }
+
     @Override
     @Nullable
     public ICraftingTask create(ItemStack stack, long quantity) {
@@ -339,7 +435,7 @@ public class CraftingManager implements ICraftingManager {
         int trackedAmount = 0;
         int oldStackSize = stack.getCount();
 
-        for (ICraftingTask task : tasks.values()) {
+        for (ICraftingTask task : getTasksWaitingFor(stack.getItem())) {
             if (!task.canUpdate())
                 continue;
 
@@ -357,7 +453,7 @@ public class CraftingManager implements ICraftingManager {
         int trackedAmount = 0;
         int oldStackSize = stack.amount;
 
-        for (ICraftingTask task : tasks.values()) {
+        for (ICraftingTask task : getTasksWaitingFor(stack.getFluid())) {
             if (!task.canUpdate())
                 continue;
 
@@ -370,61 +466,86 @@ public class CraftingManager implements ICraftingManager {
         this.tasksDirty |= trackedAmount > 0 || oldStackSize != stack.amount;
     }
 
+    /**
+     * @param key the item or fluid that was inserted, see {@link MasterCraftingTask#getTrackingKey}
+     * @return the tasks that may track it, in task order
+     */
+    private Collection<ICraftingTask> getTasksWaitingFor(Object key) {
+        if (!tasksByOutputValid) {
+            this.tasksByOutput = new HashMap<>();
+            this.tasksByOutputValid = true;
+
+            for (ICraftingTask task : tasks.values()) {
+                if (!(task instanceof MasterCraftingTask)) {
+                    this.tasksByOutput = null;
+                    break;
+                }
+
+                for (Object outputKey : ((MasterCraftingTask) task).getTrackedOutputKeys())
+                    this.tasksByOutput.computeIfAbsent(outputKey, k -> new ArrayList<>()).add(task);
+            }
+        }
+
+        if (tasksByOutput == null)
+            return tasks.values();
+
+        return tasksByOutput.getOrDefault(key, Collections.emptyList());
+    }
+
     @Override
     public void rebuild() {
         this.network.getItemStorageCache().getCraftablesList().clearCounts();
         this.network.getFluidStorageCache().getCraftablesList().clearCounts();
 
-        //synchronized for access by crafting tasks during calculation
-        synchronized (patterns) {
-            this.patterns.clear();
-            this.containerInventories.clear();
-            this.patternToContainer.clear();
+        this.patterns.clear();
+        this.containerInventories.clear();
+        this.patternToContainer.clear();
 
-            List<ICraftingPatternContainer> containers = new ArrayList<>();
+        List<ICraftingPatternContainer> containers = new ArrayList<>();
 
-            for (INetworkNode node : network.getNodeGraph().all()) {
-                if (node instanceof ICraftingPatternContainer && node.canUpdate()) {
-                    containers.add((ICraftingPatternContainer) node);
-                }
+        for (INetworkNode node : network.getNodeGraph().all()) {
+            if (node instanceof ICraftingPatternContainer && node.canUpdate()) {
+                containers.add((ICraftingPatternContainer) node);
             }
+        }
 
-            containers.sort((a, b) -> b.getPosition().compareTo(a.getPosition()));
-
-            for (ICraftingPatternContainer container : containers) {
-                for (ICraftingPattern pattern : container.getPatterns()) {
-                    this.patterns.add(pattern);
+        containers.sort((a, b) -> b.getPosition().compareTo(a.getPosition()));
 
-                    outer:
-                    for (ItemStack output : pattern.getOutputs()) {
-                        for (ItemStack blacklistedItem : pattern.getBlacklistedItems()) {
-                            if (API.instance().getComparer().isEqualNoQuantity(blacklistedItem, output))
-                                continue outer;
-                        }
+        for (ICraftingPatternContainer container : containers) {
+            for (ICraftingPattern pattern : container.getPatterns()) {
+                this.patterns.add(pattern);
 
-                        network.getItemStorageCache().getCraftablesList().add(output);
+                outer:
+                for (ItemStack output : pattern.getOutputs()) {
+                    for (ItemStack blacklistedItem : pattern.getBlacklistedItems()) {
+                        if (API.instance().getComparer().isEqualNoQuantity(blacklistedItem, output))
+                            continue outer;
                     }
 
-                    outer:
-                    for (FluidStack output : pattern.getFluidOutputs()) {
-                        for (FluidStack blacklistedFluid : pattern.getBlacklistedFluids()) {
-                            if (API.instance().getComparer().isEqual(blacklistedFluid, output, IComparer.COMPARE_NBT))
-                                continue outer;
-                        }
+                    network.getItemStorageCache().getCraftablesList().add(output);
+                }
 
-                        network.getFluidStorageCache().getCraftablesList().add(output);
+                outer:
+                for (FluidStack output : pattern.getFluidOutputs()) {
+                    for (FluidStack blacklistedFluid : pattern.getBlacklistedFluids()) {
+                        if (API.instance().getComparer().isEqual(blacklistedFluid, output, IComparer.COMPARE_NBT))
+                            continue outer;
                     }
 
-                    this.patternToContainer.computeIfAbsent(pattern, key -> new LinkedHashSet<>()).add(container);
+                    network.getFluidStorageCache().getCraftablesList().add(output);
                 }
 
-                IItemHandlerModifiable handler = container.getPatternInventory();
-                if (handler != null) {
-                    this.containerInventories.computeIfAbsent(container.getName(), k -> new ArrayList<>()).add(handler);
-                }
+                this.patternToContainer.computeIfAbsent(pattern, key -> new LinkedHashSet<>()).add(container);
+            }
+
+            IItemHandlerModifiable handler = container.getPatternInventory();
+            if (handler != null) {
+                this.containerInventories.computeIfAbsent(container.getName(), k -> new ArrayList<>()).add(handler);
             }
         }
 
+        this.patternIndex = new CraftingPatternIndex(this.patterns);
+
         this.network.getItemStorageCache().getCraftablesList().clearEmpty();
         this.network.getFluidStorageCache().getCraftablesList().clearEmpty();
 
@@ -465,45 +586,13 @@ public class CraftingManager implements ICraftingManager {
     @Nullable
     @Override
     public ICraftingPattern getPattern(ItemStack pattern, int flags, Predicate<ICraftingPattern> filter) {
-        //synchronized for access by crafting tasks during calculation
-        synchronized (patterns) {
-            for (ICraftingPattern patternInList : patterns) {
-                if (!filter.test(patternInList))
-                    continue;
-
-                for (ItemStack output : patternInList.getOutputs()) {
-                    if (API.instance().getComparer().isEqual(output, pattern, flags) &&
-                        patternInList.getBlacklistedItems().stream()
-                                .noneMatch(f -> API.instance().getComparer().isEqualNoQuantity(f, pattern))) {
-                        return patternInList;
-                    }
-                }
-            }
-
-            return null;
-        }
+        return patternIndex.getPattern(pattern, flags, filter);
     }
 
     @Nullable
     @Override
     public ICraftingPattern getPattern(FluidStack pattern, Predicate<ICraftingPattern> filter) {
-        //synchronized for access by crafting tasks during calculation
-        synchronized (patterns) {
-            for (ICraftingPattern patternInList : patterns) {
-                if (!filter.test(patternInList))
-                    continue;
-
-                for (FluidStack output : patternInList.getFluidOutputs()) {
-                    if (API.instance().getComparer().isEqual(output, pattern, IComparer.COMPARE_NBT) &&
-                        patternInList.getBlacklistedFluids().stream().noneMatch(f -> API.instance().getComparer()
-                                .isEqual(f, pattern, IComparer.COMPARE_NBT))) {
-                        return patternInList;
-                    }
-                }
-            }
-
-            return null;
-        }
+        return patternIndex.getPattern(pattern, filter);
     }
 
     @Override
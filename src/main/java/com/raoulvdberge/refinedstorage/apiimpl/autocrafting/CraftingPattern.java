@@ -12,7 +12,6 @@ import net.minecraft.entity.player.EntityPlayer;
 import net.minecraft.inventory.Container;
 import net.minecraft.inventory.InventoryCrafting;
 import net.minecraft.item.ItemStack;
-import net.minecraft.item.crafting.CraftingManager;
 import net.minecraft.item.crafting.IRecipe;
 import net.minecraft.util.NonNullList;
 import net.minecraft.world.World;
@@ -132,34 +131,30 @@ public class CraftingPattern implements ICraftingPattern {
                 }
             }
 
-            for (IRecipe r : CraftingManager.REGISTRY) {
-                if (r.matches(inv, world)) {
-                    this.recipe = r;
+            this.recipe = CraftingRecipeIndex.findMatchingRecipe(inv, world);
 
-                    this.byproducts = recipe.getRemainingItems(inv);
+            if (recipe != null) {
+                this.byproducts = recipe.getRemainingItems(inv);
 
-                    ItemStack output = recipe.getCraftingResult(inv);
+                ItemStack output = recipe.getCraftingResult(inv);
 
-                    if (!output.isEmpty()) {
-                        this.valid = true;
+                if (!output.isEmpty()) {
+                    this.valid = true;
 
-                        outputs.add(output);
+                    outputs.add(output);
 
-                        if (oredict) {
-                            if (!recipe.getIngredients().isEmpty()) {
-                                inputs.clear();
+                    if (oredict) {
+                        if (!recipe.getIngredients().isEmpty()) {
+                            inputs.clear();
 
-                                for (int i = 0; i < recipe.getIngredients().size(); ++i) {
-                                    inputs.add(i, NonNullList
-                                            .from(ItemStack.EMPTY, recipe.getIngredients().get(i).getMatchingStacks()));
-                                }
-                            } else {
-                                this.valid = false;
+                            for (int i = 0; i < recipe.getIngredients().size(); ++i) {
+                                inputs.add(i, NonNullList
+                                        .from(ItemStack.EMPTY, recipe.getIngredients().get(i).getMatchingStacks()));
                             }
+                        } else {
+                            this.valid = false;
                         }
                     }
-
-                    break;
                 }
             }
         }
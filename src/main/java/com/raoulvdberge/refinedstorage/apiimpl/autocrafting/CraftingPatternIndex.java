@@ -0,0 +1,145 @@
+package com.raoulvdberge.refinedstorage.apiimpl.autocrafting;
+
+import com.raoulvdberge.refinedstorage.api.autocrafting.ICraftingPattern;
+import com.raoulvdberge.refinedstorage.api.util.IComparer;
+import com.raoulvdberge.refinedstorage.apiimpl.API;
+import com.raoulvdberge.refinedstorage.apiimpl.util.StackListItem;
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraftforge.fluids.Fluid;
+import net.minecraftforge.fluids.FluidStack;
+
+import javax.annotation.Nullable;
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * Immutable lookup table from pattern outputs to the patterns producing them.
+ * A new index is built by {@link CraftingManager#rebuild()} and published by reference, so lookups don't need any
+ * locking and can be done from the calculation threads.
+ */
+public final class CraftingPatternIndex {
+    public static final CraftingPatternIndex EMPTY = new CraftingPatternIndex(Collections.emptyList());
+
+    private final Map<Item, List<ICraftingPattern>> byItem = new HashMap<>();
+    private final Map<Item, Map<Integer, List<ICraftingPattern>>> byItemAndDamage = new HashMap<>();
+    private final Map<StackListItem.ItemStackWrapper, List<ICraftingPattern>> byStack = new HashMap<>();
+    private final Map<Fluid, List<ICraftingPattern>> byFluid = new HashMap<>();
+
+    /**
+     * @param patterns the patterns to index, earlier patterns take precedence in lookups
+     */
+    public CraftingPatternIndex(Collection<ICraftingPattern> patterns) {
+        for (ICraftingPattern pattern : patterns) {
+            for (ItemStack output : pattern.getOutputs()) {
+                if (output.isEmpty()) {
+                    continue;
+                }
+
+                addUnique(byItem.computeIfAbsent(output.getItem(), k -> new ArrayList<>()), pattern);
+                addUnique(byItemAndDamage.computeIfAbsent(output.getItem(), k -> new HashMap<>())
+                        .computeIfAbsent(output.getItemDamage(), k -> new ArrayList<>()), pattern);
+                addUnique(byStack.computeIfAbsent(new StackListItem.ItemStackWrapper(output), k -> new ArrayList<>()), pattern);
+            }
+
+            for (FluidStack output : pattern.getFluidOutputs()) {
+                if (output == null) {
+                    continue;
+                }
+
+                addUnique(byFluid.computeIfAbsent(output.getFluid(), k -> new ArrayList<>()), pattern);
+            }
+        }
+    }
+
+    /**
+     * @see com.raoulvdberge.refinedstorage.api.autocrafting.ICraftingManager#getPattern(ItemStack, int, Predicate)
+     */
+    @Nullable
+    public ICraftingPattern getPattern(ItemStack stack, int flags, Predicate<ICraftingPattern> filter) {
+        if (stack.isEmpty()) {
+            return null;
+        }
+
+        List<ICraftingPattern> candidates;
+
+        if ((flags & IComparer.COMPARE_NBT) == IComparer.COMPARE_NBT &&
+            (flags & IComparer.COMPARE_DAMAGE) == IComparer.COMPARE_DAMAGE) {
+            candidates = byStack.get(StackListItem.ItemStackWrapper.probe(stack));
+        } else if ((flags & IComparer.COMPARE_DAMAGE) == IComparer.COMPARE_DAMAGE) {
+            Map<Integer, List<ICraftingPattern>> byDamage = byItemAndDamage.get(stack.getItem());
+            candidates = byDamage == null ? null : byDamage.get(stack.getItemDamage());
+        } else {
+            candidates = byItem.get(stack.getItem());
+        }
+
+        if (candidates == null) {
+            return null;
+        }
+
+        for (ICraftingPattern pattern : candidates) {
+            if (!filter.test(pattern)) {
+                continue;
+            }
+
+            for (ItemStack output : pattern.getOutputs()) {
+                if (API.instance().getComparer().isEqual(output, stack, flags) && !isBlacklisted(pattern, stack)) {
+                    return pattern;
+                }
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * @see com.raoulvdberge.refinedstorage.api.autocrafting.ICraftingManager#getPattern(FluidStack, Predicate)
+     */
+    @Nullable
+    public ICraftingPattern getPattern(FluidStack stack, Predicate<ICraftingPattern> filter) {
+        List<ICraftingPattern> candidates = byFluid.get(stack.getFluid());
+        if (candidates == null) {
+            return null;
+        }
+
+        for (ICraftingPattern pattern : candidates) {
+            if (!filter.test(pattern)) {
+                continue;
+            }
+
+            for (FluidStack output : pattern.getFluidOutputs()) {
+                if (API.instance().getComparer().isEqual(output, stack, IComparer.COMPARE_NBT) && !isBlacklisted(pattern, stack)) {
+                    return pattern;
+                }
+            }
+        }
+
+        return null;
+    }
+
+    private static boolean isBlacklisted(ICraftingPattern pattern, ItemStack stack) {
+        for (ItemStack blacklisted : pattern.getBlacklistedItems()) {
+            if (API.instance().getComparer().isEqualNoQuantity(blacklisted, stack)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static boolean isBlacklisted(ICraftingPattern pattern, FluidStack stack) {
+        for (FluidStack blacklisted : pattern.getBlacklistedFluids()) {
+            if (API.instance().getComparer().isEqual(blacklisted, stack, IComparer.COMPARE_NBT)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static void addUnique(List<ICraftingPattern> list, ICraftingPattern pattern) {
+        if (list.isEmpty() || list.get(list.size() - 1) != pattern) {
+            list.add(pattern);
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.raoulvdberge.refinedstorage.apiimpl.autocrafting;
+
+import net.minecraft.inventory.InventoryCrafting;
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraft.item.crafting.*;
+import net.minecraft.world.World;
+import net.minecraftforge.common.crafting.IngredientNBT;
+import net.minecraftforge.oredict.OreIngredient;
+import net.minecraftforge.oredict.ShapedOreRecipe;
+import net.minecraftforge.oredict.ShapelessOreRecipe;
+
+import javax.annotation.Nullable;
+import java.util.*;
+
+/**
+ * Finds the recipe matching a crafting grid without calling {@link IRecipe#matches(InventoryCrafting, World)} on every
+ * recipe in {@link CraftingManager#REGISTRY}.
+ * <p>
+ * Shaped and shapeless recipes only match when every item in the grid is accepted by one of their ingredients, so
+ * they are bucketed by the items of their ingredients and only the bucket of one of the items in the grid is checked.
+ * All other recipes, including subclasses that may override {@link IRecipe#matches(InventoryCrafting, World)}, and
+ * recipes with ingredients whose matching stacks can't be trusted, are always checked.
+ * The first matching recipe in registry order is returned, same as a linear search.
+ */
+public final class CraftingRecipeIndex {
+    private static final Set<Class<?>> INDEXABLE_RECIPES = new HashSet<>(Arrays.asList(
+        ShapedRecipes.class, ShapelessRecipes.class, ShapedOreRecipe.class, ShapelessOreRecipe.class
+    ));
+
+    private static volatile Index index;
+
+    private CraftingRecipeIndex() {
+    }
+
+    /**
+     * @param inv   the crafting grid
+     * @param world the world
+     * @return the first recipe matching the grid, or null if no recipe matches
+     */
+    @Nullable
+    public static IRecipe findMatchingRecipe(InventoryCrafting inv, @Nullable World world) {
+        Index current = getIndex();
+
+        List<Entry> bucket = null;
+
+        for (int i = 0; i < inv.getSizeInventory(); ++i) {
+            ItemStack stack = inv.getStackInSlot(i);
+
+            if (!stack.isEmpty()) {
+                List<Entry> candidate = current.byItem.getOrDefault(stack.getItem(), Collections.emptyList());
+
+                if (bucket == null || candidate.size() < bucket.size()) {
+                    bucket = candidate;
+                }
+            }
+        }
+
+        if (bucket == null) {
+            bucket = Collections.emptyList();
+        }
+
+        // Both lists are in registry order
+        int i = 0;
+        int j = 0;
+        while (i < bucket.size() || j < current.unindexed.size()) {
+            Entry entry;
+            if (j >= current.unindexed.size() || (i < bucket.size() && bucket.get(i).order < current.unindexed.get(j).order)) {
+                entry = bucket.get(i++);
+            } else {
+                entry = current.unindexed.get(j++);
+            }
+
+            if (entry.recipe.matches(inv, world)) {
+                return entry.recipe;
+            }
+        }
+
+        return null;
+    }
+
+    private static Index getIndex() {
+        Index current = index;
+
+        // The registry is frozen after loading, a different size means recipes were added or removed by a script
+        if (current == null || current.size != CraftingManager.REGISTRY.getKeys().size()) {
+            synchronized (CraftingRecipeIndex.class) {
+                current = index;
+
+                if (current == null || current.size != CraftingManager.REGISTRY.getKeys().size()) {
+                    index = current = new Index();
+                }
+            }
+        }
+
+        return current;
+    }
+
+    /**
+     * Drops the index, it's built again on the next lookup. Called when a world is unloaded.
+     */
+    public static void invalidate() {
+        index = null;
+    }
+
+    private static boolean isIndexable(IRecipe recipe) {
+        if (!INDEXABLE_RECIPES.contains(recipe.getClass())) {
+            return false;
+        }
+
+        if (recipe.getIngredients().isEmpty()) {
+            return false;
+        }
+
+        for (Ingredient ingredient : recipe.getIngredients()) {
+            if (ingredient == Ingredient.EMPTY) {
+                continue;
+            }
+
+            Class<?> type = ingredient.getClass();
+
+            if (type != Ingredient.class && type != OreIngredient.class && type != IngredientNBT.class) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static class Index {
+        private final int size;
+        private final Map<Item, List<Entry>> byItem = new HashMap<>();
+        private final List<Entry> unindexed = new ArrayList<>();
+
+        Index() {
+            int order = 0;
+
+            for (IRecipe recipe : CraftingManager.REGISTRY) {
+                Entry entry = new Entry(order++, recipe);
+
+                if (!isIndexable(recipe)) {
+                    unindexed.add(entry);
+
+                    continue;
+                }
+
+                Set<Item> items = Collections.newSetFromMap(new IdentityHashMap<>());
+
+                for (Ingredient ingredient : recipe.getIngredients()) {
+                    for (ItemStack stack : ingredient.getMatchingStacks()) {
+                        items.add(stack.getItem());
+                    }
+                }
+
+                for (Item item : items) {
+                    byItem.computeIfAbsent(item, k -> new ArrayList<>()).add(entry);
+                }
+            }
+
+            this.size = CraftingManager.REGISTRY.getKeys().size();
+        }
+    }
+
+    private static class Entry {
+        private final int order;
+        private final IRecipe recipe;
+
+        Entry(int order, IRecipe recipe) {
+            this.order = order;
+            this.recipe = recipe;
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.raoulvdberge.refinedstorage.apiimpl.autocrafting.engine.task;
+
+import com.raoulvdberge.refinedstorage.api.autocrafting.ICraftingPattern;
+import com.raoulvdberge.refinedstorage.api.network.INetwork;
+import com.raoulvdberge.refinedstorage.apiimpl.autocrafting.engine.task.inputs.Input;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import net.minecraft.item.ItemStack;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.*;
+
+/**
+ * The state shared by all {@link Task}s of one calculation.
+ * <p>
+ * The patterns on the current path are tracked in a single set that is added to and removed from while descending,
+ * instead of copying it for every sub task. The parts of a task's calculation that don't depend on its amount or on
+ * the stock are memoized per pattern, as the same intermediate is usually needed by many branches of a big request:
+ * the analysis of the pattern inputs, and the expansion of the pattern into the patterns that craft each of its inputs.
+ * The inputs of every task of a pattern are in the same order whatever the amount, so the expansion is keyed by the
+ * pattern and the position of the input.
+ * <p>
+ * What a task extracts or crafts depends on the stock left by the tasks calculated before it, so that part isn't
+ * memoized. Requests for the same intermediate from different branches still get a task each, they aren't merged into
+ * one.
+ * A task's amount and the extraction or crafting of its inputs are settled when it's calculated, so merging a later
+ * request would mean growing a finished task and calculating its whole subtree again for the extra amount. A merged
+ * task would also supply several parents, and could end up supplying one of its own suppliers, which isn't possible
+ * in a tree and can stall the execution when the outputs are handed to the parents in order.
+ */
+public class CalculationContext {
+    private final INetwork network;
+    private final ICalculationStock stock;
+    private final long deadline;
+
+    private final CalculationResult result = new CalculationResult();
+
+    private final List<ItemStack> infiniteInputs = new ObjectArrayList<>();
+    private final Set<ICraftingPattern> recursedPatterns = new HashSet<>();
+
+    /**
+     * The patterns that craft the inputs of a pattern, by the position of the input. Null for inputs that weren't
+     * looked up yet.
+     */
+    private final Map<ICraftingPattern, Optional<ICraftingPattern>[]> expansions = new HashMap<>();
+    private final Map<ICraftingPattern, List<Task.InputTemplate>> inputTemplates = new HashMap<>();
+
+    private int tasks;
+    private int patternLookups;
+    private int memoizedPatternLookups;
+
+    /**
+     * @param network  the network in which the calculation is run
+     * @param stock    the stock that inputs are taken from
+     * @param deadline the time in milliseconds after which the calculation fails
+     */
+    public CalculationContext(@Nonnull INetwork network, @Nonnull ICalculationStock stock, long deadline) {
+        this.network = network;
+        this.stock = stock;
+        this.deadline = deadline;
+    }
+
+    public INetwork getNetwork() {
+        return network;
+    }
+
+    public ICalculationStock getStock() {
+        return stock;
+    }
+
+    public boolean isTimedOut() {
+        return System.currentTimeMillis() > deadline;
+    }
+
+    /**
+     * @return the result all tasks of the calculation add their sub tasks and missing stacks to
+     */
+    public CalculationResult getResult() {
+        return result;
+    }
+
+    /**
+     * @return the infinite inputs that were already extracted
+     */
+    public List<ItemStack> getInfiniteInputs() {
+        return infiniteInputs;
+    }
+
+    /**
+     * @param pattern the pattern
+     * @return true if the pattern is used by a task on the current path, using it again would recurse endlessly
+     */
+    public boolean isRecursed(ICraftingPattern pattern) {
+        return recursedPatterns.contains(pattern);
+    }
+
+    public void enter(ICraftingPattern pattern) {
+        recursedPatterns.add(pattern);
+    }
+
+    public void leave(ICraftingPattern pattern) {
+        recursedPatterns.remove(pattern);
+    }
+
+    /**
+     * Finds the pattern that crafts an input of a task, other than the pattern of the task itself.
+     *
+     * @param task  the task that needs the input
+     * @param index the position of the input in {@link Task#getInputs()}
+     * @return the pattern, or null if there is none
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public ICraftingPattern getSubPattern(Task task, int index) {
+        patternLookups++;
+
+        ICraftingPattern excluded = task.getPattern();
+        Optional<ICraftingPattern>[] expansion =
+                expansions.computeIfAbsent(excluded, p -> new Optional[task.getInputs().size()]);
+
+        Optional<ICraftingPattern> pattern = expansion[index];
+
+        if (pattern == null) {
+            Input input = task.getInputs().get(index);
+
+            if (!input.isFluid()) {
+                //TODO: add possibility for oredict components to be crafted
+                pattern = Optional.ofNullable(network.getCraftingManager()
+                        .getPattern(input.getCompareableItemStack(), p -> !p.equals(excluded)));
+            } else {
+                pattern = Optional.ofNullable(network.getCraftingManager()
+                        .getPattern(input.getFluidStack(), p -> !p.equals(excluded)));
+            }
+
+            expansion[index] = pattern;
+        } else {
+            memoizedPatternLookups++;
+        }
+
+        return pattern.orElse(null);
+    }
+
+    List<Task.InputTemplate> getInputTemplates(ICraftingPattern pattern) {
+        return inputTemplates.computeIfAbsent(pattern, Task::createInputTemplates);
+    }
+
+    void onTaskCreated() {
+        tasks++;
+    }
+
+    public int getPatternLookups() {
+        return patternLookups;
+    }
+
+    public int getMemoizedPatternLookups() {
+        return memoizedPatternLookups;
+    }
+
+    /**
+     * @return a short summary of the work done, used for debugging and benchmarks
+     */
+    public String getStats() {
+        return String.format("tasks=%d, patternLookups=%d, memoizedPatternLookups=%d, memoizedPatterns=%d",
+            tasks, patternLookups, memoizedPatternLookups, expansions.size());
+    }
+}
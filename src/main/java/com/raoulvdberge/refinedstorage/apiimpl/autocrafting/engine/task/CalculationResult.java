@@ -56,6 +56,10 @@ public class CalculationResult {
         return error;
     }
 
+    public void setError(@Nullable CraftingTaskError error) {
+        this.error = error;
+    }
+
     public List<Task> getNewTasks() {
         return newTasks;
     }
@@ -46,7 +46,12 @@ public class CraftingTask extends Task {
     private boolean finished = false;
 
     public CraftingTask(@Nonnull ICraftingPattern pattern, ICraftingRequestInfo requestInfo) {
-        super(pattern, requestInfo);
+        this(pattern, requestInfo, null);
+    }
+
+    public CraftingTask(@Nonnull ICraftingPattern pattern, ICraftingRequestInfo requestInfo,
+                        @Nullable CalculationContext context) {
+        super(pattern, requestInfo, context);
 
         if (pattern.isProcessing())
             throw new IllegalArgumentException("Processing pattern cannot be used for crafting task!");
@@ -104,6 +109,7 @@ public class CraftingTask extends Task {
         //don't update if there's any remainder left from the previous update
         if (this.remainder != null) {
             this.remainder = network.insertItem(this.remainder.getStack(), this.remainder.getCount(), Action.PERFORM);
+            markChanged();
             return 0;
         }
 
@@ -159,7 +165,7 @@ public class CraftingTask extends Task {
         if (this.amountNeeded < 1 && this.remainder == null)
             this.finished = true;
 
-        network.getCraftingManager().onTaskChanged();
+        onChanged(network);
         return toCraft;
     }
 
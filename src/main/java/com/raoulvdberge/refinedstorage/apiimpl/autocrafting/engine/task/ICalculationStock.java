@@ -0,0 +1,78 @@
+package com.raoulvdberge.refinedstorage.apiimpl.autocrafting.engine.task;
+
+import com.raoulvdberge.refinedstorage.api.util.StackListResult;
+import net.minecraft.item.ItemStack;
+import net.minecraftforge.fluids.FluidStack;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The stock a {@link Task} takes its inputs from during calculation.
+ */
+public interface ICalculationStock {
+    /**
+     * Takes items out of the stock.
+     *
+     * @param stack the stack to extract, do NOT modify
+     * @param size  the amount to extract
+     * @param flags the flags to compare on, see {@link com.raoulvdberge.refinedstorage.api.util.IComparer}
+     * @return the extracted stack, or null if nothing was extracted
+     */
+    @Nullable
+    StackListResult<ItemStack> extractItem(@Nonnull ItemStack stack, long size, int flags);
+
+    /**
+     * Takes all items matching the stack out of the stock, without merging stacks that only differ in what the flags
+     * don't compare.
+     *
+     * @param stack the stack to extract, do NOT modify
+     * @param size  the total amount to extract
+     * @param flags the flags to compare on, see {@link com.raoulvdberge.refinedstorage.api.util.IComparer}
+     * @return the extracted stacks, empty if nothing was extracted
+     */
+    @Nonnull
+    default List<StackListResult<ItemStack>> extractItems(@Nonnull ItemStack stack, long size, int flags) {
+        List<StackListResult<ItemStack>> results = new ArrayList<>();
+        long received = 0;
+
+        while (received < size) {
+            StackListResult<ItemStack> extracted = extractItem(stack, size - received, flags);
+            if (extracted == null)
+                break;
+
+            results.add(extracted);
+            received += extracted.getCount();
+        }
+
+        return results;
+    }
+
+    /**
+     * Takes fluids out of the stock.
+     *
+     * @param stack the stack to extract, do NOT modify
+     * @param size  the amount to extract
+     * @return the extracted stack, or null if nothing was extracted
+     */
+    @Nullable
+    StackListResult<FluidStack> extractFluid(@Nonnull FluidStack stack, long size);
+
+    /**
+     * Gives back items that were extracted too much.
+     *
+     * @param stack the stack, do NOT modify
+     * @param size  the amount
+     */
+    void insertItem(@Nonnull ItemStack stack, long size);
+
+    /**
+     * Gives back fluids that were extracted too much.
+     *
+     * @param stack the stack, do NOT modify
+     * @param size  the amount
+     */
+    void insertFluid(@Nonnull FluidStack stack, long size);
+}
@@ -1,6 +1,6 @@
 package com.raoulvdberge.refinedstorage.apiimpl.autocrafting.engine.task;
 
-import com.google.common.collect.Sets;
+import com.raoulvdberge.refinedstorage.RS;
 import com.raoulvdberge.refinedstorage.api.autocrafting.ICraftingPattern;
 import com.raoulvdberge.refinedstorage.api.autocrafting.ICraftingPatternContainer;
 import com.raoulvdberge.refinedstorage.api.autocrafting.craftingmonitor.ICraftingMonitorElement;
@@ -84,6 +84,30 @@ public class MasterCraftingTask implements ICraftingTask {
     private ItemStack missingPatternStack;
     private boolean halted;
 
+    /**
+     * The stock the calculation is planned against instead of the live network, null if the calculation extracts
+     * directly from the network or if the plan has already been committed
+     */
+    private SnapshotCalculationStock snapshot;
+
+    /**
+     * The processing tasks by the tracking key of their outputs, in the order tracked inserts are offered to them.
+     * Built when first needed, null while the task list changes.
+     */
+    private Map<Object, List<ProcessingTask>> processingTasksByOutput;
+
+    /**
+     * The last written NBT of the tasks, only tasks that changed since are written again. Rebuilt on every write, so
+     * it only contains the current tasks.
+     */
+    private Map<Task, NBTTagCompound> writtenTasks = new IdentityHashMap<>();
+    private boolean changed = true;
+    private final Runnable subtaskChangeListener = this::onSubtaskChanged;
+    /**
+     * Increased whenever the state of a sub task or the halted state changes, see {@link #getVersion()}
+     */
+    private long version;
+
     public MasterCraftingTask(@Nonnull INetwork network, @Nonnull ICraftingRequestInfo requested,
                               @Nonnull ICraftingPattern pattern) {
         this.network = network;
@@ -202,14 +226,18 @@ public class MasterCraftingTask implements ICraftingTask {
         }
 
         this.tasks.addAll(taskMap.values());
+        this.tasks.forEach(task -> task.setChangeListener(subtaskChangeListener));
+        this.processingTasksByOutput = null;
     }
 
     @Override
     public boolean update() {
         if (!canUpdate)
             return false;
-        if (executionStarted == -1)
+        if (executionStarted == -1) {
             executionStarted = System.currentTimeMillis();
+            markChanged();
+        }
 
         boolean allFinished = true;
 
@@ -347,15 +375,21 @@ public class MasterCraftingTask implements ICraftingTask {
 
         Task rootTask = tasks.get(0);
 
-        CalculationResult result = rootTask.calculate(network,
-                new ObjectArrayList<>(),
-                Sets.newHashSet(rootTask.getPattern()),
-                calculationStarted
-        );
+        ICalculationStock stock = this.snapshot != null ? this.snapshot : new NetworkCalculationStock(network);
+
+        CalculationContext context = new CalculationContext(network, stock,
+                calculationStarted + RS.INSTANCE.config.calculationTimeoutMs);
+
+        context.enter(rootTask.getPattern());
+
+        CalculationResult result = rootTask.calculate(context);
 
         //instantly cancel if calculation had any error, saver than waiting for the player to cancel
         if (result.getError() == null) {
             this.tasks.addAll(result.getNewTasks());
+            this.tasks.forEach(task -> task.setChangeListener(subtaskChangeListener));
+            this.processingTasksByOutput = null;
+            this.version++;
 
             this.missingItemStacks = result.getMissingItemStacks();
             this.missingFluidStacks = result.getMissingFluidStacks();
@@ -372,12 +406,43 @@ public class MasterCraftingTask implements ICraftingTask {
         return result.getError();
     }
 
+    /**
+     * Makes the next {@link #calculate()} plan against a snapshot of the network's storage instead of extracting from
+     * the live network. The plan has to be committed afterwards with {@link #commitSnapshotCalculation()}.
+     * Must be called on the server thread.
+     */
+    public void prepareSnapshotCalculation() {
+        this.snapshot = new SnapshotCalculationStock(network);
+    }
+
+    /**
+     * Extracts everything the snapshot calculation planned to use from the network. Must be called on the server
+     * thread.
+     *
+     * @return true if the plan was committed, false if the stock changed in the meantime and the task has to be
+     * calculated again
+     */
+    public boolean commitSnapshotCalculation() {
+        if (this.snapshot == null)
+            return true;
+
+        if (!this.snapshot.commit(network))
+            return false;
+
+        this.snapshot = null;
+        return true;
+    }
+
     @Override
     public void onCancelled() {
         if (cancelled)
             return;
         cancelled = true;
 
+        //nothing was taken from the network yet
+        if (this.snapshot != null)
+            return;
+
         //just insert all stored items back into network
         for (Task task : this.tasks) {
             //insert loose items and fluids
@@ -430,16 +495,19 @@ public class MasterCraftingTask implements ICraftingTask {
 
     @Override
     public void updateHaltedState() {
+        ItemStack missingPatternStack = null;
         for (Task task : this.tasks) {
             if (!task.isFinished() && !network.getCraftingManager().getPatterns().contains(task.getPattern())) {
-                this.halted = true;
-                this.missingPatternStack = task.getPattern().getStack();
-                return;
+                missingPatternStack = task.getPattern().getStack();
+                break;
             }
         }
 
-        this.halted = false;
-        this.missingPatternStack = null;
+        if (missingPatternStack != this.missingPatternStack)
+            this.version++;
+
+        this.halted = missingPatternStack != null;
+        this.missingPatternStack = missingPatternStack;
     }
 
     @Override
@@ -449,13 +517,9 @@ public class MasterCraftingTask implements ICraftingTask {
 
     @Override
     public int onTrackedInsert(ItemStack stack, int trackedAmount) {
-        for (int i = this.tasks.size() - 1; i >= 0; i--) {
-            Task task = this.tasks.get(i);
-            if (!(task instanceof ProcessingTask))
-                continue;
-
+        for (ProcessingTask task : getProcessingTasksByOutput().getOrDefault(stack.getItem(), Collections.emptyList())) {
             int oldStackSize = stack.getCount();
-            trackedAmount = ((ProcessingTask) task).supplyOutput(stack, trackedAmount);
+            trackedAmount = task.supplyOutput(stack, trackedAmount);
 
             //make sure tracked amount is not bigger than stack size
             if (oldStackSize != stack.getCount())
@@ -470,13 +534,9 @@ public class MasterCraftingTask implements ICraftingTask {
 
     @Override
     public int onTrackedInsert(FluidStack stack, int trackedAmount) {
-        for (int i = this.tasks.size() - 1; i >= 0; i--) {
-            Task task = this.tasks.get(i);
-            if (!(task instanceof ProcessingTask))
-                continue;
-
+        for (ProcessingTask task : getProcessingTasksByOutput().getOrDefault(stack.getFluid(), Collections.emptyList())) {
             int oldStackSize = stack.amount;
-            trackedAmount = ((ProcessingTask) task).supplyOutput(stack, trackedAmount);
+            trackedAmount = task.supplyOutput(stack, trackedAmount);
 
             if (oldStackSize != stack.amount)
                 trackedAmount = Math.max(trackedAmount - (oldStackSize - stack.amount), 0);
@@ -488,6 +548,48 @@ public class MasterCraftingTask implements ICraftingTask {
         return trackedAmount;
     }
 
+    /**
+     * @return the keys of all outputs of the processing tasks, see {@link #getTrackingKey(Output)}
+     */
+    public Set<Object> getTrackedOutputKeys() {
+        return getProcessingTasksByOutput().keySet();
+    }
+
+    /**
+     * Tracked inserts only need to be offered to processing tasks with an output of the same item or fluid, the
+     * processing tasks compare damage and NBT themselves.
+     *
+     * @param output the output
+     * @return the item or fluid of the output
+     */
+    public static Object getTrackingKey(Output output) {
+        return output.isFluid() ? output.getFluidStack().getFluid() : output.getCompareableItemStack().getItem();
+    }
+
+    private Map<Object, List<ProcessingTask>> getProcessingTasksByOutput() {
+        if (processingTasksByOutput == null) {
+            Map<Object, List<ProcessingTask>> index = new HashMap<>();
+
+            //later tasks are offered the stack first
+            for (int i = this.tasks.size() - 1; i >= 0; i--) {
+                Task task = this.tasks.get(i);
+                if (!(task instanceof ProcessingTask))
+                    continue;
+
+                Set<Object> keys = Collections.newSetFromMap(new IdentityHashMap<>());
+                for (Output output : task.getOutputs())
+                    keys.add(getTrackingKey(output));
+
+                for (Object key : keys)
+                    index.computeIfAbsent(key, k -> new ObjectArrayList<>()).add((ProcessingTask) task);
+            }
+
+            this.processingTasksByOutput = index;
+        }
+
+        return processingTasksByOutput;
+    }
+
     @Override
     public NBTTagCompound writeToNbt(NBTTagCompound compound) {
         compound.setUniqueId(NBT_UUID, this.id);
@@ -501,14 +603,45 @@ public class MasterCraftingTask implements ICraftingTask {
         compound.setTag(NBT_REQUEST_INFO, this.info.writeToNbt());
 
         NBTTagList list = new NBTTagList();
+        Map<Task, NBTTagCompound> writtenTasks = new IdentityHashMap<>(this.tasks.size());
         for (Task task : this.tasks) {
-            list.appendTag(task.writeToNbt(new NBTTagCompound()));
+            NBTTagCompound taskTag = this.writtenTasks.get(task);
+
+            if (taskTag == null || task.isChanged())
+                taskTag = task.writeToNbt(new NBTTagCompound());
+
+            writtenTasks.put(task, taskTag);
+            list.appendTag(taskTag);
         }
 
+        //drops the tags of tasks that were removed since the last write
+        this.writtenTasks = writtenTasks;
+
         compound.setTag(NBT_TASKS, list);
+
+        this.changed = false;
+
         return compound;
     }
 
+    private void onSubtaskChanged() {
+        this.version++;
+
+        markChanged();
+    }
+
+    /**
+     * Marks this task as changed and tells the crafting manager that its tasks have to be saved again. Also called
+     * when the state of a sub task changes.
+     */
+    private void markChanged() {
+        if (!this.changed) {
+            this.changed = true;
+
+            network.getCraftingManager().markTasksUnsaved();
+        }
+    }
+
     @Override
     public List<ICraftingPreviewElement<?>> getPreviewStacks() {
         List<ICraftingPreviewElement<?>> elements = new ArrayList<>(50);
@@ -605,6 +738,7 @@ public class MasterCraftingTask implements ICraftingTask {
     @Override
     public void setCanUpdate(boolean canUpdate) {
         this.canUpdate = canUpdate;
+        markChanged();
     }
 
     @Override
@@ -642,6 +776,11 @@ public class MasterCraftingTask implements ICraftingTask {
         return elements.getElements();
     }
 
+    @Override
+    public long getVersion() {
+        return this.version;
+    }
+
     @Override
     public int getCompletionPercentage() {
         return this.completionPercentage;
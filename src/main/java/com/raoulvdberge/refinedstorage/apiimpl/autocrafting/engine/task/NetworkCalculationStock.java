@@ -0,0 +1,51 @@
+package com.raoulvdberge.refinedstorage.apiimpl.autocrafting.engine.task;
+
+import com.raoulvdberge.refinedstorage.api.network.INetwork;
+import com.raoulvdberge.refinedstorage.api.util.Action;
+import com.raoulvdberge.refinedstorage.api.util.IComparer;
+import com.raoulvdberge.refinedstorage.api.util.StackListResult;
+import net.minecraft.item.ItemStack;
+import net.minecraftforge.fluids.FluidStack;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.List;
+
+/**
+ * Extracts directly from the live network while calculating.
+ */
+public class NetworkCalculationStock implements ICalculationStock {
+    private final INetwork network;
+
+    public NetworkCalculationStock(INetwork network) {
+        this.network = network;
+    }
+
+    @Nullable
+    @Override
+    public StackListResult<ItemStack> extractItem(@Nonnull ItemStack stack, long size, int flags) {
+        return network.extractItem(stack, size, flags, Action.PERFORM);
+    }
+
+    @Nonnull
+    @Override
+    public List<StackListResult<ItemStack>> extractItems(@Nonnull ItemStack stack, long size, int flags) {
+        return network.extractItems(stack, size, flags, Action.PERFORM);
+    }
+
+    @Nullable
+    @Override
+    public StackListResult<FluidStack> extractFluid(@Nonnull FluidStack stack, long size) {
+        return network.extractFluid(stack, size, IComparer.COMPARE_NBT, Action.PERFORM);
+    }
+
+    @Override
+    public void insertItem(@Nonnull ItemStack stack, long size) {
+        network.insertItem(stack, size, Action.PERFORM);
+    }
+
+    @Override
+    public void insertFluid(@Nonnull FluidStack stack, long size) {
+        network.insertFluid(stack, size, Action.PERFORM);
+    }
+}
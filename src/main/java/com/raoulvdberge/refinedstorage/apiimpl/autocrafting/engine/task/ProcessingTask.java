@@ -59,7 +59,12 @@ public class ProcessingTask extends Task {
     private final List<Pair<Input, Integer>> generatedPairs = new ObjectArrayList<>(this.inputs.size());
 
     public ProcessingTask(@Nonnull ICraftingPattern pattern, ICraftingRequestInfo requestInfo) {
-        super(pattern, requestInfo);
+        this(pattern, requestInfo, null);
+    }
+
+    public ProcessingTask(@Nonnull ICraftingPattern pattern, ICraftingRequestInfo requestInfo,
+                          @Nullable CalculationContext context) {
+        super(pattern, requestInfo, context);
         this.hasFluidInputs = this.inputs.stream().anyMatch(Input::isFluid);
         this.hasItemInputs = this.inputs.stream().anyMatch(i -> !i.isFluid());
     }
@@ -85,7 +90,7 @@ public class ProcessingTask extends Task {
         //stop if task is finished
         if (this.amountNeeded < 1) {
             this.finished = true;
-            network.getCraftingManager().onTaskChanged();
+            onChanged(network);
             return 0;
         }
 
@@ -106,16 +111,14 @@ public class ProcessingTask extends Task {
 
         //machine is locked
         if (container.isLocked()) {
-            this.state = ProcessingState.LOCKED;
-            network.getCraftingManager().onTaskChanged();
+            setState(network, ProcessingState.LOCKED);
             return 0;
         }
 
         //no connected machine
         if ((hasFluidInputs && container.getConnectedFluidInventory() == null) ||
             (hasItemInputs && container.getConnectedInventory() == null)) {
-            this.state = ProcessingState.MACHINE_NONE;
-            network.getCraftingManager().onTaskChanged();
+            setState(network, ProcessingState.MACHINE_NONE);
             return 0;
         }
 
@@ -123,8 +126,7 @@ public class ProcessingTask extends Task {
 
         //something couldn't be inserted at all
         if (pairs.isEmpty()) {
-            this.state = ProcessingState.MACHINE_DOES_NOT_ACCEPT;
-            network.getCraftingManager().onTaskChanged();
+            setState(network, ProcessingState.MACHINE_DOES_NOT_ACCEPT);
             return 0;
         }
 
@@ -134,8 +136,7 @@ public class ProcessingTask extends Task {
 
         //if we could insert something but not at least a full set, return
         if (toCraft < 1) {
-            this.state = ProcessingState.MACHINE_DOES_NOT_ACCEPT;
-            network.getCraftingManager().onTaskChanged();
+            setState(network, ProcessingState.MACHINE_DOES_NOT_ACCEPT);
             return 0;
         } else {
             //actually try to insert now
@@ -152,7 +153,7 @@ public class ProcessingTask extends Task {
         if (this.amountNeeded < 1)
             this.finished = true;
 
-        network.getCraftingManager().onTaskChanged();
+        onChanged(network);
         return toCraft;
     }
 
@@ -170,6 +171,8 @@ public class ProcessingTask extends Task {
         if (matchingOutput == null)
             return trackedAmount;
 
+        markChanged();
+
         RestockableInput matchingInput = CraftingEngineUtils.findMatchingRestockableItemInput(this.inputs, stack);
 
         long inputRemainder = stack.getCount();
@@ -224,6 +227,8 @@ public class ProcessingTask extends Task {
         if (matchingOutput == null)
             return trackedAmount;
 
+        markChanged();
+
         RestockableInput matchingInput = CraftingEngineUtils.findMatchingRestockableFluidInput(this.inputs, stack);
 
         long inputRemainder = stack.amount;
@@ -639,6 +644,17 @@ public class ProcessingTask extends Task {
         }
     }
 
+    /**
+     * Machines refusing input keep failing every tick, the crafting monitor only needs to know when the state changes.
+     */
+    private void setState(INetwork network, ProcessingState state) {
+        if (this.state != state) {
+            this.state = state;
+
+            onChanged(network);
+        }
+    }
+
     @Override
     public boolean isFinished() {
         return this.finished;
@@ -0,0 +1,245 @@
+package com.raoulvdberge.refinedstorage.apiimpl.autocrafting.engine.task;
+
+import com.raoulvdberge.refinedstorage.api.network.INetwork;
+import com.raoulvdberge.refinedstorage.api.util.Action;
+import com.raoulvdberge.refinedstorage.api.util.IComparer;
+import com.raoulvdberge.refinedstorage.api.util.IStackList;
+import com.raoulvdberge.refinedstorage.api.util.StackListEntry;
+import com.raoulvdberge.refinedstorage.api.util.StackListResult;
+import com.raoulvdberge.refinedstorage.apiimpl.API;
+import com.raoulvdberge.refinedstorage.apiimpl.util.StackListItem;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraftforge.fluids.Fluid;
+import net.minecraftforge.fluids.FluidStack;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Plans extractions against a private copy of the network's storage cache instead of the live network.
+ * The copy is taken lazily, the first time the calculation touches an item or fluid, and only holds references to
+ * the cached stacks plus its own counts, so a calculation can run on any thread without locking. Everything that was
+ * taken out during the calculation is remembered and extracted from the network at once by {@link #commit(INetwork)}.
+ * <p>
+ * The copies of different items can be taken at different times, {@link #commit(INetwork)} checks the whole plan
+ * against the network again.
+ */
+public class SnapshotCalculationStock implements ICalculationStock {
+    private static final Logger LOGGER = LogManager.getLogger(SnapshotCalculationStock.class);
+
+    private final IStackList<ItemStack> networkItems;
+    private final IStackList<FluidStack> networkFluids;
+
+    private final Map<Item, List<Entry<ItemStack>>> items = new HashMap<>();
+    private final Map<Fluid, List<Entry<FluidStack>>> fluids = new HashMap<>();
+
+    private final IStackList<ItemStack> plannedItems = API.instance().createItemStackList();
+    private final IStackList<FluidStack> plannedFluids = API.instance().createFluidStackList();
+
+    /**
+     * @param network the network to take the snapshot of
+     */
+    public SnapshotCalculationStock(INetwork network) {
+        this.networkItems = network.getItemStorageCache().getList();
+        this.networkFluids = network.getFluidStorageCache().getList();
+    }
+
+    private List<Entry<ItemStack>> getItems(Item item) {
+        return items.computeIfAbsent(item, k -> {
+            List<Entry<ItemStack>> entries = new ObjectArrayList<>();
+
+            Collection<StackListEntry<ItemStack>> networkEntries = networkItems instanceof StackListItem ?
+                    ((StackListItem) networkItems).getEntries(k) :
+                    networkItems.getStacks();
+
+            for (StackListEntry<ItemStack> entry : networkEntries) {
+                if (entry.getCount() > 0 && entry.getStack().getItem() == k) {
+                    entries.add(new Entry<>(entry.getStack(), entry.getCount()));
+                }
+            }
+
+            return entries;
+        });
+    }
+
+    /**
+     * Fluids are always compared with their NBT, so only the exact stack has to be copied.
+     */
+    private Entry<FluidStack> getFluid(FluidStack stack) {
+        List<Entry<FluidStack>> entries = fluids.computeIfAbsent(stack.getFluid(), k -> new ObjectArrayList<>());
+        for (Entry<FluidStack> entry : entries) {
+            if (API.instance().getComparer().isEqual(entry.stack, stack, IComparer.COMPARE_NBT)) {
+                return entry;
+            }
+        }
+
+        StackListEntry<FluidStack> networkEntry = networkFluids.getEntry(stack, IComparer.COMPARE_NBT);
+
+        Entry<FluidStack> entry = networkEntry != null ?
+                new Entry<>(networkEntry.getStack(), Math.max(0, networkEntry.getCount())) :
+                new Entry<>(stack.copy(), 0);
+        entries.add(entry);
+
+        return entry;
+    }
+
+    @Nullable
+    @Override
+    public StackListResult<ItemStack> extractItem(@Nonnull ItemStack stack, long size, int flags) {
+        List<Entry<ItemStack>> candidates = getItems(stack.getItem());
+
+        for (Entry<ItemStack> entry : candidates) {
+            if (entry.count > 0 && API.instance().getComparer().isEqual(entry.stack, stack, flags)) {
+                long taken = Math.min(size, entry.count);
+
+                entry.count -= taken;
+                plannedItems.add(entry.stack, taken);
+
+                return new StackListResult<>(entry.stack.copy(), taken);
+            }
+        }
+
+        return null;
+    }
+
+    @Nullable
+    @Override
+    public StackListResult<FluidStack> extractFluid(@Nonnull FluidStack stack, long size) {
+        Entry<FluidStack> entry = getFluid(stack);
+        if (entry.count <= 0) {
+            return null;
+        }
+
+        long taken = Math.min(size, entry.count);
+
+        entry.count -= taken;
+        plannedFluids.add(entry.stack, taken);
+
+        return new StackListResult<>(entry.stack.copy(), taken);
+    }
+
+    @Override
+    public void insertItem(@Nonnull ItemStack stack, long size) {
+        plannedItems.remove(stack, size);
+
+        List<Entry<ItemStack>> candidates = getItems(stack.getItem());
+        for (Entry<ItemStack> entry : candidates) {
+            if (API.instance().getComparer().isEqualNoQuantity(entry.stack, stack)) {
+                entry.count += size;
+                return;
+            }
+        }
+
+        candidates.add(new Entry<>(stack.copy(), size));
+    }
+
+    @Override
+    public void insertFluid(@Nonnull FluidStack stack, long size) {
+        plannedFluids.remove(stack, size);
+
+        getFluid(stack).count += size;
+    }
+
+    /**
+     * Extracts everything that was planned from the network, either completely or not at all. If the network hands
+     * out less than it promised, everything extracted so far is inserted back.
+     * Must be called on the server thread.
+     *
+     * @param network the network
+     * @return true if the plan was extracted, false if the network doesn't have the planned stock anymore
+     */
+    public boolean commit(INetwork network) {
+        int flags = IComparer.COMPARE_NBT | IComparer.COMPARE_DAMAGE;
+
+        //the network synchronizes its storage access on itself, so holding its monitor makes simulate + perform atomic
+        synchronized (network) {
+            for (StackListEntry<ItemStack> entry : plannedItems.getStacks()) {
+                StackListResult<ItemStack> available = network.extractItem(entry.getStack(), entry.getCount(), flags, Action.SIMULATE);
+                if (available == null || available.getCount() < entry.getCount()) {
+                    return false;
+                }
+            }
+
+            for (StackListEntry<FluidStack> entry : plannedFluids.getStacks()) {
+                StackListResult<FluidStack> available = network.extractFluid(entry.getStack(), entry.getCount(), IComparer.COMPARE_NBT, Action.SIMULATE);
+                if (available == null || available.getCount() < entry.getCount()) {
+                    return false;
+                }
+            }
+
+            List<StackListResult<ItemStack>> extractedItems = new ArrayList<>();
+            List<StackListResult<FluidStack>> extractedFluids = new ArrayList<>();
+
+            boolean complete = true;
+
+            for (StackListEntry<ItemStack> entry : plannedItems.getStacks()) {
+                StackListResult<ItemStack> extracted = network.extractItem(entry.getStack(), entry.getCount(), flags, Action.PERFORM);
+                if (extracted != null) {
+                    extractedItems.add(extracted);
+                }
+
+                if (extracted == null || extracted.getCount() < entry.getCount()) {
+                    complete = false;
+                    break;
+                }
+            }
+
+            if (complete) {
+                for (StackListEntry<FluidStack> entry : plannedFluids.getStacks()) {
+                    StackListResult<FluidStack> extracted = network.extractFluid(entry.getStack(), entry.getCount(), IComparer.COMPARE_NBT, Action.PERFORM);
+                    if (extracted != null) {
+                        extractedFluids.add(extracted);
+                    }
+
+                    if (extracted == null || extracted.getCount() < entry.getCount()) {
+                        complete = false;
+                        break;
+                    }
+                }
+            }
+
+            if (!complete) {
+                rollback(network, extractedItems, extractedFluids);
+
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static void rollback(INetwork network, List<StackListResult<ItemStack>> items, List<StackListResult<FluidStack>> fluids) {
+        for (StackListResult<ItemStack> extracted : items) {
+            StackListResult<ItemStack> remainder = network.insertItem(extracted.getStack(), extracted.getCount(), Action.PERFORM);
+            if (remainder != null) {
+                LOGGER.error("Could not give back {}x {} after a crafting plan could not be committed", remainder.getCount(), extracted.getStack());
+            }
+        }
+
+        for (StackListResult<FluidStack> extracted : fluids) {
+            StackListResult<FluidStack> remainder = network.insertFluid(extracted.getStack(), extracted.getCount(), Action.PERFORM);
+            if (remainder != null) {
+                LOGGER.error("Could not give back {} mB of {} after a crafting plan could not be committed", remainder.getCount(), extracted.getStack().getLocalizedName());
+            }
+        }
+    }
+
+    private static final class Entry<T> {
+        private final T stack;
+        private long count;
+
+        private Entry(T stack, long count) {
+            this.stack = stack;
+            this.count = count;
+        }
+    }
+}
@@ -1,6 +1,5 @@
 package com.raoulvdberge.refinedstorage.apiimpl.autocrafting.engine.task;
 
-import com.raoulvdberge.refinedstorage.RS;
 import com.raoulvdberge.refinedstorage.api.autocrafting.ICraftingPattern;
 import com.raoulvdberge.refinedstorage.api.autocrafting.ICraftingPatternContainer;
 import com.raoulvdberge.refinedstorage.api.autocrafting.ICraftingPatternProvider;
@@ -8,7 +7,6 @@ import com.raoulvdberge.refinedstorage.api.autocrafting.craftingmonitor.ICraftin
 import com.raoulvdberge.refinedstorage.api.autocrafting.engine.CraftingTaskReadException;
 import com.raoulvdberge.refinedstorage.api.autocrafting.engine.ICraftingRequestInfo;
 import com.raoulvdberge.refinedstorage.api.network.INetwork;
-import com.raoulvdberge.refinedstorage.api.util.Action;
 import com.raoulvdberge.refinedstorage.api.util.IComparer;
 import com.raoulvdberge.refinedstorage.api.util.StackListResult;
 import com.raoulvdberge.refinedstorage.apiimpl.API;
@@ -27,8 +25,8 @@ import net.minecraftforge.fluids.FluidStack;
 import net.minecraftforge.items.ItemHandlerHelper;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.util.Collections;
-import java.util.HashSet;
 import java.util.List;
 import java.util.UUID;
 
@@ -53,89 +51,33 @@ public abstract class Task {
 
     private UUID uuid = UUID.randomUUID();
 
+    /**
+     * Whether or not the state of this task changed since it was last written to NBT
+     */
+    private boolean changed = true;
+    /**
+     * Called when the state of this task changes, set by the master task that owns this task
+     */
+    @Nullable
+    private Runnable changeListener;
+
     public Task(@Nonnull ICraftingPattern pattern, ICraftingRequestInfo requestInfo) {
+        this(pattern, requestInfo, null);
+    }
+
+    /**
+     * @param context the calculation this task is created in, used to reuse the analysis of the pattern inputs. Can be
+     *                null if the task isn't part of a calculation
+     */
+    public Task(@Nonnull ICraftingPattern pattern, ICraftingRequestInfo requestInfo, @Nullable CalculationContext context) {
         this.pattern = pattern;
 
         long amountNeeded = requestInfo.getQuantity();
 
         //merge all pattern item inputs
-        for (NonNullList<ItemStack> itemStacks : pattern.getInputs()) {
-            if (itemStacks.isEmpty())
-                continue;
-
-            Input newInput = null;
-
-            //only if there any by-products, check for infinites and re-useables
-            if (!pattern.isProcessing() && pattern.getByproducts().stream().anyMatch(i -> !i.isEmpty())) {
-
-                //detect infinites
-                for (ItemStack itemStack : itemStacks) {
-                    //Create new matrix with oredicted component. This is needed for stuff like the infusion crystal
-                    // from MA with oredict enabled. This is because the oredicted list then contains the infusion
-                    // crystal which has durabiltiy and the master infusion crystal which is infinite. This code ensures
-                    // that the master crystal is detected and also preferred.
-                    NonNullList<ItemStack> matrix = NonNullList.create();
-                    for (NonNullList<ItemStack> input : pattern.getInputs()) {
-                        if (input.isEmpty()) {
-                            matrix.add(ItemStack.EMPTY);
-                            continue;
-                        }
-
-                        ItemStack patternInputItem = input.get(0);
-                        if (API.instance().getComparer().isEqual(patternInputItem, itemStacks.get(0)))
-                            matrix.add(itemStack);
-                        else
-                            matrix.add(patternInputItem);
-                    }
-
-                    //check if input is exactly the same in the remainder -> then it's infinite
-                    for (ItemStack remainder : pattern.getByproducts(matrix)) {
-                        //find item in by products and check if one damage was used up. this means that damage = uses
-                        if (API.instance().getComparer().isEqual(itemStack, remainder)) {
-                            //item was found in remainder staying exactly the same -> infinite input
-                            newInput = new InfiniteInput(itemStack);
-                            break;
-                        }
-                    }
-                }
-
-                //detect re-useable items
-                ItemStack itemStack = itemStacks.get(0);
-                //damageable items won't be oredicted (hopefully)
-                if (itemStacks.size() < 2 && newInput == null && itemStack.isItemStackDamageable()) {
-                    for (ItemStack remainder : pattern.getByproducts()) {
-                        //find item in by products and check if one damage was used up. this means that damage = uses
-                        if (API.instance().getComparer()
-                                    .isEqual(itemStack, remainder,
-                                            IComparer.COMPARE_NBT | IComparer.COMPARE_QUANTITY) &&
-                            remainder.getItemDamage() - 1 == itemStack.getItemDamage()) {
-                            //item was found with one more damage in remainder, then it's a durability input
-                            newInput = new DurabilityInput(itemStack, amountNeeded);
-                            break;
-                        }
-                    }
-                }
-            }
-
-            //check for inputs that appear in the output for processing patterns
-            if (pattern.isProcessing()) {
-                //loop through all possibilities
-                for (ItemStack inputItemStack : itemStacks) {
-                    //loop through all outputs
-                    for (ItemStack output : pattern.getOutputs()) {
-                        //find the possibility that occurs in the output
-                        if (API.instance().getComparer().isEqualNoQuantity(inputItemStack, output)) {
-                            newInput = new RestockableInput(inputItemStack, inputItemStack.getCount());
-                        }
-                    }
-                }
-            }
-
-            //if it's not a durability or infinite input, then just use a normal input
-            if (newInput == null)
-                newInput = new Input(itemStacks, amountNeeded);
-
-            mergeIntoList(newInput, this.inputs);
+        List<InputTemplate> templates = context != null ? context.getInputTemplates(pattern) : createInputTemplates(pattern);
+        for (InputTemplate template : templates) {
+            mergeIntoList(template.create(amountNeeded), this.inputs);
         }
 
         //merge all pattern fluid inputs
@@ -356,6 +298,41 @@ public abstract class Task {
      */
     public abstract boolean isFinished();
 
+    /**
+     * @return whether or not the state of this task changed since it was last written to NBT
+     */
+    public boolean isChanged() {
+        return changed;
+    }
+
+    /**
+     * Marks the state of this task as changed, so that it is written again on the next save.
+     */
+    protected void markChanged() {
+        this.changed = true;
+
+        if (this.changeListener != null)
+            this.changeListener.run();
+    }
+
+    /**
+     * @param changeListener called whenever the state of this task changes
+     */
+    void setChangeListener(@Nullable Runnable changeListener) {
+        this.changeListener = changeListener;
+    }
+
+    /**
+     * Marks the state of this task as changed and notifies the crafting monitors.
+     *
+     * @param network the network
+     */
+    protected void onChanged(@Nonnull INetwork network) {
+        markChanged();
+
+        network.getCraftingManager().onTaskChanged();
+    }
+
     /**
      * Supplies an input to this task. Called by sub tasks when they crafted something.
      *
@@ -363,6 +340,8 @@ public abstract class Task {
      */
     protected void supplyInput(ItemStack stack) {
         if (!isFinished()) {
+            markChanged();
+
             //give to all inputs while there's anything left
             for (Input input : this.inputs) {
                 input.decreaseToCraftAmount(stack);
@@ -382,6 +361,8 @@ public abstract class Task {
      */
     protected void supplyInput(FluidStack stack) {
         if (!isFinished()) {
+            markChanged();
+
             //give to all inputs while there's anything left
             for (Input input : this.inputs) {
                 input.decreaseToCraftAmount(stack);
@@ -412,27 +393,157 @@ public abstract class Task {
             list.add(input);
     }
 
+    /**
+     * Determines the type of every item input of the given {@code pattern}. This only depends on the pattern, so the
+     * result is shared by all tasks of a calculation that use the same pattern.
+     *
+     * @param pattern the pattern
+     * @return a template for every non-empty item input of the pattern, in pattern order
+     */
+    static List<InputTemplate> createInputTemplates(ICraftingPattern pattern) {
+        List<InputTemplate> templates = new ObjectArrayList<>();
+
+        for (NonNullList<ItemStack> itemStacks : pattern.getInputs()) {
+            if (itemStacks.isEmpty())
+                continue;
+
+            InputTemplate template = null;
+
+            //only if there any by-products, check for infinites and re-useables
+            if (!pattern.isProcessing() && pattern.getByproducts().stream().anyMatch(i -> !i.isEmpty())) {
+
+                //detect infinites
+                for (ItemStack itemStack : itemStacks) {
+                    //Create new matrix with oredicted component. This is needed for stuff like the infusion crystal
+                    // from MA with oredict enabled. This is because the oredicted list then contains the infusion
+                    // crystal which has durabiltiy and the master infusion crystal which is infinite. This code ensures
+                    // that the master crystal is detected and also preferred.
+                    NonNullList<ItemStack> matrix = NonNullList.create();
+                    for (NonNullList<ItemStack> input : pattern.getInputs()) {
+                        if (input.isEmpty()) {
+                            matrix.add(ItemStack.EMPTY);
+                            continue;
+                        }
+
+                        ItemStack patternInputItem = input.get(0);
+                        if (API.instance().getComparer().isEqual(patternInputItem, itemStacks.get(0)))
+                            matrix.add(itemStack);
+                        else
+                            matrix.add(patternInputItem);
+                    }
+
+                    //check if input is exactly the same in the remainder -> then it's infinite
+                    for (ItemStack remainder : pattern.getByproducts(matrix)) {
+                        //find item in by products and check if one damage was used up. this means that damage = uses
+                        if (API.instance().getComparer().isEqual(itemStack, remainder)) {
+                            //item was found in remainder staying exactly the same -> infinite input
+                            template = new InputTemplate(InputTemplate.Kind.INFINITE, itemStacks, itemStack);
+                            break;
+                        }
+                    }
+                }
+
+                //detect re-useable items
+                ItemStack itemStack = itemStacks.get(0);
+                //damageable items won't be oredicted (hopefully)
+                if (itemStacks.size() < 2 && template == null && itemStack.isItemStackDamageable()) {
+                    for (ItemStack remainder : pattern.getByproducts()) {
+                        //find item in by products and check if one damage was used up. this means that damage = uses
+                        if (API.instance().getComparer()
+                                    .isEqual(itemStack, remainder,
+                                            IComparer.COMPARE_NBT | IComparer.COMPARE_QUANTITY) &&
+                            remainder.getItemDamage() - 1 == itemStack.getItemDamage()) {
+                            //item was found with one more damage in remainder, then it's a durability input
+                            template = new InputTemplate(InputTemplate.Kind.DURABILITY, itemStacks, itemStack);
+                            break;
+                        }
+                    }
+                }
+            }
+
+            //check for inputs that appear in the output for processing patterns
+            if (pattern.isProcessing()) {
+                //loop through all possibilities
+                for (ItemStack inputItemStack : itemStacks) {
+                    //loop through all outputs
+                    for (ItemStack output : pattern.getOutputs()) {
+                        //find the possibility that occurs in the output
+                        if (API.instance().getComparer().isEqualNoQuantity(inputItemStack, output)) {
+                            template = new InputTemplate(InputTemplate.Kind.RESTOCKABLE, itemStacks, inputItemStack);
+                        }
+                    }
+                }
+            }
+
+            //if it's not a durability or infinite input, then just use a normal input
+            if (template == null)
+                template = new InputTemplate(InputTemplate.Kind.NORMAL, itemStacks, itemStacks.get(0));
+
+            templates.add(template);
+        }
+
+        return templates;
+    }
+
+    /**
+     * The type of an item input of a pattern, creates a new {@link Input} for every task.
+     */
+    static final class InputTemplate {
+        enum Kind {
+            NORMAL, INFINITE, DURABILITY, RESTOCKABLE
+        }
+
+        private final Kind kind;
+        private final NonNullList<ItemStack> itemStacks;
+        private final ItemStack itemStack;
+
+        InputTemplate(Kind kind, NonNullList<ItemStack> itemStacks, ItemStack itemStack) {
+            this.kind = kind;
+            this.itemStacks = itemStacks;
+            this.itemStack = itemStack;
+        }
+
+        Input create(long amountNeeded) {
+            switch (kind) {
+                case INFINITE:
+                    return new InfiniteInput(itemStack);
+                case DURABILITY:
+                    return new DurabilityInput(itemStack, amountNeeded);
+                case RESTOCKABLE:
+                    return new RestockableInput(itemStack, itemStack.getCount());
+                default:
+                    return new Input(itemStacks, amountNeeded);
+            }
+        }
+    }
+
     /**
      * Calculates everything about this {@link Task} and creates new sub tasks if they're needed.
      * This function operates recursively.
      *
-     * @param network              the network in which the calculation is run
-     * @param infiniteInputs       a list of already seen {@link ItemStack}s which have been detected as infinite. This
-     *                             list is checked to make sure infinite items are not extracted multiple times
-     * @param calculationTimeStart the timestamp of when the calculation initially started
-     * @return the {@link CalculationResult}
+     * All sub tasks and missing stacks are added to the result of the given {@code context}, the pattern of this task
+     * has to be entered in the context by the caller.
+     *
+     * @param context the state of the calculation
+     * @return the {@link CalculationResult} of the whole calculation
      */
     @Nonnull
-    public CalculationResult calculate(@Nonnull INetwork network, @Nonnull List<ItemStack> infiniteInputs,
-                                       @Nonnull HashSet<ICraftingPattern> recursedPatterns, long calculationTimeStart) {
+    public CalculationResult calculate(@Nonnull CalculationContext context) {
+        CalculationResult result = context.getResult();
+
         //return if calculation takes too long
-        if (System.currentTimeMillis() - calculationTimeStart > RS.INSTANCE.config.calculationTimeoutMs)
-            return new CalculationResult(new CraftingTaskError());
+        if (context.isTimedOut()) {
+            result.setError(new CraftingTaskError());
+            return result;
+        }
 
-        CalculationResult result = new CalculationResult();
+        ICalculationStock stock = context.getStock();
+        List<ItemStack> infiniteInputs = context.getInfiniteInputs();
 
         inputLoop:
-        for (Input input : this.inputs) {
+        for (int inputIndex = 0; inputIndex < this.inputs.size(); inputIndex++) {
+            Input input = this.inputs.get(inputIndex);
+
             //handle infinite inputs
             if (input instanceof InfiniteInput) {
                 boolean exists = false;
@@ -460,26 +571,29 @@ public abstract class Task {
             if (!input.isFluid()) { //extract items
                 if (input instanceof DurabilityInput) { //handle durability inputs
                     DurabilityInput durabilityInput = (DurabilityInput) input;
-                    //always only extract 1 item
-                    StackListResult<ItemStack> extracted = network.extractItem(durabilityInput.getCompareableItemStack(), 1L,
-                            IComparer.COMPARE_NBT, Action.PERFORM);
-
-                    //extract as many items as needed
-                    while (extracted != null) {
-                        durabilityInput.addDamageableItemStack(extracted.getFixedStack());
-
-                        //keep extracting if input is not satisfied
-                        if (input.getAmountMissing() > 0)
-                            extracted = network.extractItem(durabilityInput.getCompareableItemStack(), 1L,
-                                    IComparer.COMPARE_NBT, Action.PERFORM);
-                        else
+
+                    //the missing amount assumes undamaged items, so extracting all of it at once never takes more
+                    //than extracting one by one would. The stock returns every damage value as its own stack, see
+                    //IStorage#extractAll. Keep extracting while damaged items left something missing
+                    while (input.getAmountMissing() > 0) {
+                        List<StackListResult<ItemStack>> extracted = stock.extractItems(
+                                durabilityInput.getCompareableItemStack(), input.getAmountMissing(), IComparer.COMPARE_NBT);
+
+                        if (extracted.isEmpty())
                             break;
+
+                        for (StackListResult<ItemStack> damaged : extracted) {
+                            for (long i = 0; i < damaged.getCount(); i++) {
+                                durabilityInput.addDamageableItemStack(
+                                        ItemHandlerHelper.copyStackWithSize(damaged.getStack(), 1));
+                            }
+                        }
                     }
                 } else { //handle normal inputs
                     for (ItemStack ingredient : input.getItemStacks()) {
 
-                        StackListResult<ItemStack> extracted = network.extractItem(ingredient,
-                                input.getAmountMissing(), Action.PERFORM);
+                        StackListResult<ItemStack> extracted = stock.extractItem(ingredient,
+                                input.getAmountMissing(), IComparer.COMPARE_DAMAGE | IComparer.COMPARE_NBT);
 
                         if (extracted == null)
                             continue;
@@ -494,21 +608,21 @@ public abstract class Task {
                         //if it extracted too much, insert it back. Shouldn't happen
                         if (remainder != -1) {
                             if (remainder != 0)
-                                network.insertItem(ingredient, remainder, Action.PERFORM);
+                                stock.insertItem(ingredient, remainder);
                             continue inputLoop;
                         }
                     }
                 }
             } else { //extract fluid
-                StackListResult<FluidStack> extracted = network.extractFluid(input.getFluidStack(),
-                        input.getAmountMissing(), Action.PERFORM);
+                StackListResult<FluidStack> extracted = stock.extractFluid(input.getFluidStack(),
+                        input.getAmountMissing());
 
                 if (extracted != null) {
                     long remainder = input.increaseFluidStackAmount(extracted.getCount());
                     //if it extracted too much, insert it back. Shouldn't happen
                     if (remainder != -1) {
                         if (remainder != 0)
-                            network.insertFluid(input.getFluidStack(), remainder, Action.PERFORM);
+                            stock.insertFluid(input.getFluidStack(), remainder);
                         continue;
                     }
                 }
@@ -517,42 +631,39 @@ public abstract class Task {
             //if input is not satisfied -> search for patterns to craft this input
             if (input.getAmountMissing() > 0) {
 
-                ICraftingPattern pattern;
-                ICraftingRequestInfo requestInfo;
                 //find pattern to craft more
-                if (!input.isFluid()) {
-                    //TODO: add possibility for oredict components to be crafted
-                    pattern = network.getCraftingManager().getPattern(input.getCompareableItemStack(), p -> !p.equals(this.pattern));
+                ICraftingPattern pattern = context.getSubPattern(this, inputIndex);
+                ICraftingRequestInfo requestInfo;
+                if (!input.isFluid())
                     requestInfo = API.instance().createCraftingRequestInfo(input.getCompareableItemStack(), input.getAmountMissing());
-                } else {
-                    pattern = network.getCraftingManager().getPattern(input.getFluidStack(), p -> !p.equals(this.pattern));
+                else
                     requestInfo = API.instance().createCraftingRequestInfo(input.getFluidStack(), input.getAmountMissing());
-                }
 
                 //add new sub task if pattern is valid and is not used recursively
-                if (pattern != null && pattern.isValid() && !recursedPatterns.contains(pattern)) {
+                if (pattern != null && pattern.isValid() && !context.isRecursed(pattern)) {
                     Task newTask;
                     if (pattern.isProcessing())
-                        newTask = new ProcessingTask(pattern, requestInfo);
+                        newTask = new ProcessingTask(pattern, requestInfo, context);
                     else
-                        newTask = new CraftingTask(pattern, requestInfo);
+                        newTask = new CraftingTask(pattern, requestInfo, context);
+
+                    context.onTaskCreated();
+
+                    //the new task comes before its own sub tasks
+                    result.getNewTasks().add(newTask);
 
-                    HashSet<ICraftingPattern> recursedPatternsCopy = (HashSet<ICraftingPattern>) recursedPatterns.clone();
-                    recursedPatternsCopy.add(pattern);
+                    context.enter(pattern);
+                    newTask.calculate(context);
+                    context.leave(pattern);
 
-                    CalculationResult newTaskResult =
-                            newTask.calculate(network, infiniteInputs, recursedPatternsCopy, calculationTimeStart);
                     //immediately fail if calculation had any error
-                    if (newTaskResult.getError() != null)
-                        return newTaskResult;
+                    if (result.getError() != null)
+                        return result;
 
                     //make sure nothing is missing for this input, missing stuff is handled by the child task
                     input.increaseToCraftAmount(input.getAmountMissing());
 
                     newTask.addParent(this);
-                    result.getNewTasks().add(newTask);
-                    //merge the calculation results
-                    result.merge(newTaskResult);
                 }
             }
 
@@ -575,6 +686,8 @@ public abstract class Task {
 
     @Nonnull
     public NBTTagCompound writeToNbt(@Nonnull NBTTagCompound compound) {
+        this.changed = false;
+
         compound.setUniqueId(NBT_UUID, this.uuid);
         compound.setString(NBT_TASK_TYPE, getTaskType());
         compound.setTag(NBT_PATTERN, writePatternToNbt(this.pattern));
@@ -29,6 +29,12 @@ import java.util.function.Consumer;
 import static com.raoulvdberge.refinedstorage.capability.CapabilityNetworkNodeProxy.NETWORK_NODE_PROXY_CAPABILITY;
 
 public class NetworkNodeGraph implements INetworkNodeGraph {
+    /**
+     * The maximum amount of nodes visited per neighbour when checking the connectivity around a removed node,
+     * a full rebuild is done when the check can't decide within this limit.
+     */
+    private static final int LOCAL_SEARCH_LIMIT = 1024;
+
     private final INetwork network;
 
     private Set<INetworkNode> nodes = Collections.newSetFromMap(new ConcurrentHashMap<>(1, 1.0f));
@@ -38,6 +44,12 @@ public class NetworkNodeGraph implements INetworkNodeGraph {
 
     private final Set<Consumer<INetwork>> actions = new HashSet<>();
 
+    /**
+     * Nodes that are connected to, or connect to, a node that isn't adjacent (e.g. network transmitters and receivers).
+     * These connections only go one way, so removals around these nodes can't be checked locally.
+     */
+    private Set<INetworkNode> remoteNodes = Collections.newSetFromMap(new ConcurrentHashMap<>(1, 1.0f));
+
     private boolean invalidating = false;
 
     public NetworkNodeGraph(INetwork network) {
@@ -64,34 +76,152 @@ public class NetworkNodeGraph implements INetworkNodeGraph {
             }
         }
 
-        Visitor currentVisitor;
-        while ((currentVisitor = operator.toCheck.poll()) != null) {
-            currentVisitor.visit(operator);
-        }
+        operator.run();
 
         this.nodes = operator.foundNodes;
         this.filteredNodes = operator.filteredNodes;
+        this.remoteNodes = operator.remoteNodes;
 
         if (action == Action.PERFORM) {
-            for (INetworkNode node : operator.newNodes) {
-                node.onConnected(network);
-            }
+            apply(operator.newNodes, operator.previousNodes);
+        }
 
-            for (INetworkNode node : operator.previousNodes) {
-                node.onDisconnected(network);
-            }
+        this.invalidating = false;
+    }
+
+    @Override
+    public void connect(World world, BlockPos pos) {
+        INetworkNode start = getNode(world, pos, null);
+        if (start == null || !nodes.contains(start)) {
+            invalidate(Action.PERFORM, network.world(), network.getPosition());
+
+            return;
+        }
+
+        this.invalidating = true;
+
+        Operator operator = new Operator(Action.PERFORM, true);
+
+        operator.toCheck.add(new Visitor(start, world, pos, null, world.getTileEntity(pos)));
+        operator.run();
 
-            actions.forEach(h -> h.accept(network));
-            actions.clear();
+        this.nodes = operator.foundNodes;
+        this.filteredNodes = operator.filteredNodes;
+        this.remoteNodes = operator.remoteNodes;
+
+        apply(operator.newNodes, Collections.emptySet());
+
+        this.invalidating = false;
+    }
+
+    @Override
+    public void disconnect(World world, BlockPos pos, @Nullable INetworkNode removed) {
+        if (removed != null && !nodes.contains(removed)) {
+            return;
+        }
+
+        INetworkNode current = getNode(world, pos, null);
+
+        if ((removed != null && remoteNodes.contains(removed)) || (current != null && remoteNodes.contains(current))) {
+            invalidate(Action.PERFORM, network.world(), network.getPosition());
+
+            return;
+        }
+
+        // A node that still conducts on some sides can't be left out of the search, as nodes can be reached through it
+        if (removed == null && current != null && conductsOnAnySide(current)) {
+            invalidate(Action.PERFORM, network.world(), network.getPosition());
+
+            return;
+        }
 
-            if (!operator.newNodes.isEmpty() || !operator.previousNodes.isEmpty()) {
-                listeners.forEach(INetworkNodeGraphListener::onChanged);
+        // A node that stopped conducting stays connected through its neighbours, but mustn't be walked through
+        LocalSearch search = new LocalSearch(removed != null ? removed : current);
+
+        for (EnumFacing facing : EnumFacing.VALUES) {
+            INetworkNode neighbour = getNode(world, pos.offset(facing), facing.getOpposite());
+
+            if (neighbour != null && neighbour != search.excluded && nodes.contains(neighbour) && !search.visited.contains(neighbour)) {
+                search.search(world, pos.offset(facing), neighbour);
             }
         }
 
+        Set<INetworkNode> disconnected = search.getDisconnectedNodes();
+        if (disconnected == null) {
+            invalidate(Action.PERFORM, network.world(), network.getPosition());
+
+            return;
+        }
+
+        if (removed != null) {
+            disconnected.add(removed);
+        }
+
+        if (disconnected.isEmpty()) {
+            return;
+        }
+
+        this.invalidating = true;
+
+        Set<INetworkNode> newNodes = Collections.newSetFromMap(new ConcurrentHashMap<>(nodes.size(), 1.0f));
+        newNodes.addAll(nodes);
+        newNodes.removeAll(disconnected);
+
+        Set<INetworkNode> newFilteredNodes = Sets.newConcurrentHashSet(filteredNodes);
+        newFilteredNodes.removeAll(disconnected);
+
+        this.nodes = newNodes;
+        this.filteredNodes = newFilteredNodes;
+
+        apply(Collections.emptySet(), disconnected);
+
         this.invalidating = false;
     }
 
+    private void apply(Set<INetworkNode> connected, Set<INetworkNode> disconnected) {
+        for (INetworkNode node : connected) {
+            node.onConnected(network);
+        }
+
+        for (INetworkNode node : disconnected) {
+            node.onDisconnected(network);
+        }
+
+        actions.forEach(h -> h.accept(network));
+        actions.clear();
+
+        if (!connected.isEmpty() || !disconnected.isEmpty()) {
+            listeners.forEach(INetworkNodeGraphListener::onChanged);
+        }
+    }
+
+    @Nullable
+    private static INetworkNode getNode(World world, BlockPos pos, @Nullable EnumFacing side) {
+        TileEntity tile = world.getTileEntity(pos);
+
+        if (tile != null && tile.hasCapability(NETWORK_NODE_PROXY_CAPABILITY, side)) {
+            INetworkNodeProxy<?> proxy = NETWORK_NODE_PROXY_CAPABILITY.cast(tile.getCapability(NETWORK_NODE_PROXY_CAPABILITY, side));
+
+            return proxy == null ? null : proxy.getNode();
+        }
+
+        return null;
+    }
+
+    private static boolean conductsOnAnySide(INetworkNode node) {
+        for (EnumFacing facing : EnumFacing.VALUES) {
+            if (node.canConduct(facing)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static boolean isRemote(@Nullable Visitor from, World world, BlockPos pos) {
+        return from != null && (from.world != world || from.pos.distanceSq(pos) != 1);
+    }
+
     @Override
     public INetwork getNetworkForBCReasons() {
         return network;
@@ -142,18 +272,45 @@ public class NetworkNodeGraph implements INetworkNodeGraph {
         // All unscanned nodes (nodes that were in the previous list, but not in the new list)
         private final Set<INetworkNode> previousNodes;
 
+        private final Set<INetworkNode> remoteNodes = Collections.newSetFromMap(new ConcurrentHashMap<>(1, 1.0f));
+
         private final Queue<Visitor> toCheck = new LinkedList<>();
+        @Nullable
+        private Visitor current;
 
         private final Action action;
 
         public Operator(Action action) {
+            this(action, false);
+        }
+
+        /**
+         * @param action      the action
+         * @param incremental whether the current nodes are kept and only new nodes are searched for
+         */
+        public Operator(Action action, boolean incremental) {
             this.action = action;
-            //use load factor of 1 because the list size won't change
-            this.previousNodes = Collections.newSetFromMap(new ConcurrentHashMap<>(nodes.size(), 1.0f));
-            this.previousNodes.addAll(nodes);
 
-            //load factor of 1 to allow fast iteration later
-            this.foundNodes = ObjectSets.synchronize(new ObjectOpenHashSet<>(nodes.size(), 1.0f));
+            if (incremental) {
+                this.previousNodes = Collections.emptySet();
+
+                this.foundNodes = ObjectSets.synchronize(new ObjectOpenHashSet<>(nodes));
+                this.filteredNodes.addAll(NetworkNodeGraph.this.filteredNodes);
+                this.remoteNodes.addAll(NetworkNodeGraph.this.remoteNodes);
+            } else {
+                //use load factor of 1 because the list size won't change
+                this.previousNodes = Collections.newSetFromMap(new ConcurrentHashMap<>(nodes.size(), 1.0f));
+                this.previousNodes.addAll(nodes);
+
+                //load factor of 1 to allow fast iteration later
+                this.foundNodes = ObjectSets.synchronize(new ObjectOpenHashSet<>(nodes.size(), 1.0f));
+            }
+        }
+
+        private void run() {
+            while ((current = toCheck.poll()) != null) {
+                current.visit(this);
+            }
         }
 
         @Override
@@ -176,6 +333,11 @@ public class NetworkNodeGraph implements INetworkNodeGraph {
                 if (otherNode.getEnergyUsage() != 0)
                     filteredNodes.add(otherNode);
 
+                if (isRemote(current, world, pos)) {
+                    remoteNodes.add(current.node);
+                    remoteNodes.add(otherNode);
+                }
+
                 if (foundNodes.add(otherNode)) {
                     if (!nodes.contains(otherNode)) {
                         // We can't let the node connect immediately
@@ -212,6 +374,130 @@ public class NetworkNodeGraph implements INetworkNodeGraph {
         }
     }
 
+    /**
+     * Walks the current nodes from the neighbours of a removed node to find out which of them lost their connection to
+     * the network. Each neighbour that isn't reached from an earlier neighbour starts its own component.
+     */
+    private class LocalSearch implements INetworkNodeVisitor.Operator {
+        @Nullable
+        private final INetworkNode excluded;
+
+        private final Set<INetworkNode> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        private final List<Set<INetworkNode>> exhaustedComponents = new ArrayList<>();
+        private int unfinishedComponents;
+        private boolean controllerFound;
+        private boolean remoteFound;
+
+        private final Queue<Visitor> toCheck = new ArrayDeque<>();
+        private Set<INetworkNode> component;
+        @Nullable
+        private Visitor current;
+
+        LocalSearch(@Nullable INetworkNode excluded) {
+            this.excluded = excluded;
+        }
+
+        void search(World world, BlockPos pos, INetworkNode start) {
+            component = Collections.newSetFromMap(new IdentityHashMap<>());
+            toCheck.clear();
+
+            boolean containsController = false;
+
+            visited.add(start);
+            component.add(start);
+            toCheck.add(new Visitor(start, world, pos, null, world.getTileEntity(pos)));
+
+            while ((current = toCheck.poll()) != null) {
+                if (component.size() > LOCAL_SEARCH_LIMIT) {
+                    break;
+                }
+
+                containsController |= current.node == network;
+
+                remoteFound |= hasOneWayConnection(current);
+
+                current.visit(this);
+            }
+
+            if (containsController) {
+                controllerFound = true;
+            } else if (current != null) {
+                unfinishedComponents++;
+            } else {
+                for (INetworkNode node : component) {
+                    remoteFound |= remoteNodes.contains(node);
+                }
+
+                exhaustedComponents.add(component);
+            }
+        }
+
+        /**
+         * @return the nodes that are no longer connected, or null if that can't be determined locally
+         */
+        @Nullable
+        Set<INetworkNode> getDisconnectedNodes() {
+            // The graph was connected before, so the controller has to be in one of the unfinished components
+            if (remoteFound || (controllerFound ? unfinishedComponents > 0 : unfinishedComponents != 1)) {
+                return null;
+            }
+
+            Set<INetworkNode> disconnected = Collections.newSetFromMap(new IdentityHashMap<>());
+            exhaustedComponents.forEach(disconnected::addAll);
+
+            return disconnected;
+        }
+
+        @Override
+        public void apply(World world, BlockPos pos, @Nullable EnumFacing side) {
+            INetworkNode node = getNode(world, pos, side);
+
+            if (node == null || node == excluded || !nodes.contains(node)) {
+                return;
+            }
+
+            if (isRemote(current, world, pos)) {
+                remoteFound = true;
+            }
+
+            if (visited.add(node)) {
+                component.add(node);
+
+                toCheck.add(new Visitor(node, world, pos, side, world.getTileEntity(pos)));
+            } else if (!component.contains(node)) {
+                // Reached a node of an earlier component, either through a one way connection or because the
+                // earlier search stopped at the limit before getting here
+                remoteFound = true;
+            }
+        }
+
+        /**
+         * A search only follows the sides a node conducts on, so a neighbour that conducts towards the node without
+         * the node conducting back could reach it without being found.
+         * The edges the search does follow are covered too, as the node at the other end is checked once visited.
+         */
+        private boolean hasOneWayConnection(Visitor visitor) {
+            for (EnumFacing facing : EnumFacing.VALUES) {
+                if (visitor.node.canConduct(facing)) {
+                    continue;
+                }
+
+                INetworkNode neighbour = getNode(visitor.world, visitor.pos.offset(facing), facing.getOpposite());
+
+                if (neighbour != null && neighbour != excluded && nodes.contains(neighbour) && neighbour.canConduct(facing.getOpposite())) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+        @Override
+        public Action getAction() {
+            return Action.SIMULATE;
+        }
+    }
+
     private static class Visitor implements INetworkNodeVisitor {
         private final INetworkNode node;
         private final World world;
@@ -14,7 +14,9 @@ import net.minecraftforge.common.util.Constants;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 public class NetworkNodeManager extends WorldSavedData implements INetworkNodeManager {
@@ -31,6 +33,13 @@ public class NetworkNodeManager extends WorldSavedData implements INetworkNodeMa
     private final Map<BlockPos, INetworkNode> nodes = new ConcurrentHashMap<>();
     private final Map<BlockPos, INetworkNode> tickableNodes = new ConcurrentHashMap<>();
 
+    /**
+     * The tags the nodes were last written as, nodes that didn't change since then reuse them
+     */
+    private final Map<BlockPos, NBTTagCompound> writtenNodes = new HashMap<>();
+    private final Set<BlockPos> dirtyNodes = ConcurrentHashMap.newKeySet();
+    private boolean allDirty;
+
     public NetworkNodeManager(String name) {
         super(name);
     }
@@ -84,20 +93,39 @@ public class NetworkNodeManager extends WorldSavedData implements INetworkNodeMa
     public NBTTagCompound writeToNBT(@Nonnull NBTTagCompound tag) {
         NBTTagList list = new NBTTagList();
 
-        for (INetworkNode node : all()) {
-            try {
-                NBTTagCompound nodeTag = new NBTTagCompound();
+        boolean writeAll = this.allDirty;
+        this.allDirty = false;
+
+        Map<BlockPos, NBTTagCompound> written = new HashMap<>();
+
+        for (Map.Entry<BlockPos, INetworkNode> entry : nodes.entrySet()) {
+            BlockPos pos = entry.getKey();
+            INetworkNode node = entry.getValue();
+
+            NBTTagCompound nodeTag = writtenNodes.get(pos);
 
-                nodeTag.setString(NBT_NODE_ID, node.getId());
-                nodeTag.setLong(NBT_NODE_POS, node.getNetworkNodePos().toLong());
-                nodeTag.setTag(NBT_NODE_DATA, node.write(new NBTTagCompound()));
+            // Remove the mark before writing, so that changes made while writing are saved the next time
+            if (dirtyNodes.remove(pos) || writeAll || nodeTag == null) {
+                try {
+                    nodeTag = new NBTTagCompound();
 
-                list.appendTag(nodeTag);
-            } catch (Exception t) {
-                t.printStackTrace();
+                    nodeTag.setString(NBT_NODE_ID, node.getId());
+                    nodeTag.setLong(NBT_NODE_POS, node.getNetworkNodePos().toLong());
+                    nodeTag.setTag(NBT_NODE_DATA, node.write(new NBTTagCompound()));
+                } catch (Exception t) {
+                    t.printStackTrace();
+
+                    continue;
+                }
             }
+
+            written.put(pos, nodeTag);
+            list.appendTag(nodeTag);
         }
 
+        this.writtenNodes.clear();
+        this.writtenNodes.putAll(written);
+
         tag.setTag(NBT_NODES, list);
 
         return tag;
@@ -117,6 +145,7 @@ public class NetworkNodeManager extends WorldSavedData implements INetworkNodeMa
 
         nodes.remove(pos);
         tickableNodes.remove(pos);
+        dirtyNodes.remove(pos);
     }
 
     @Override
@@ -130,6 +159,7 @@ public class NetworkNodeManager extends WorldSavedData implements INetworkNodeMa
         }
 
         nodes.put(pos, node);
+        dirtyNodes.add(pos);
 
         if (node.isTickable())
             tickableNodes.put(pos, node);
@@ -147,6 +177,15 @@ public class NetworkNodeManager extends WorldSavedData implements INetworkNodeMa
 
     @Override
     public void markForSaving() {
+        this.allDirty = true;
+
+        markDirty();
+    }
+
+    @Override
+    public void markForSaving(INetworkNode node) {
+        dirtyNodes.add(node.getNetworkNodePos());
+
         markDirty();
     }
 }
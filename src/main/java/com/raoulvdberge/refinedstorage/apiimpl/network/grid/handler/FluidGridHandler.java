@@ -10,6 +10,7 @@ import com.raoulvdberge.refinedstorage.api.util.Action;
 import com.raoulvdberge.refinedstorage.api.util.StackListEntry;
 import com.raoulvdberge.refinedstorage.api.util.StackListResult;
 import com.raoulvdberge.refinedstorage.apiimpl.API;
+import com.raoulvdberge.refinedstorage.apiimpl.autocrafting.CraftingCalculationExecutor;
 import com.raoulvdberge.refinedstorage.apiimpl.autocrafting.preview.CraftingPreviewElementError;
 import com.raoulvdberge.refinedstorage.network.MessageGridCraftingPreviewResponse;
 import com.raoulvdberge.refinedstorage.network.MessageGridCraftingStartResponse;
@@ -25,6 +26,7 @@ import net.minecraftforge.fml.common.FMLCommonHandler;
 import org.apache.commons.lang3.tuple.Pair;
 
 import javax.annotation.Nullable;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
@@ -135,13 +137,20 @@ public class FluidGridHandler implements IFluidGridHandler {
         StackListEntry<FluidStack> stack = network.getFluidStorageCache().getCraftablesList().get(id);
 
         if (stack != null) {
+            Object key = Arrays.asList(network, player.getUniqueID(), id, quantity, noPreview);
+
+            //the same request of this player is still waiting, its calculation sends the player the same response
+            if (CraftingCalculationExecutor.instance().isQueued(key)) {
+                return;
+            }
+
             ICraftingTask task = network.getCraftingManager().create(stack.getStack(), quantity);
 
             if (task == null) {
                 return;
             }
 
-            CompletableFuture.supplyAsync(() -> {
+            CompletableFuture<Void> calculation = CraftingCalculationExecutor.instance().submit(CraftingCalculationExecutor.Priority.PLAYER, key, () -> {
                 ICraftingTaskError error = task.calculate();
 
                 FMLCommonHandler.instance().getMinecraftServerInstance().addScheduledTask(() -> {
@@ -168,7 +177,15 @@ public class FluidGridHandler implements IFluidGridHandler {
                 }
 
                 return null;
-            }).exceptionally(t -> {
+            });
+
+            //the queue only refuses player requests that are already queued, which is checked above
+            if (calculation == null) {
+                task.onCancelled();
+                return;
+            }
+
+            calculation.exceptionally(t -> {
                 t.printStackTrace();
                 task.onCancelled();
                 return null;
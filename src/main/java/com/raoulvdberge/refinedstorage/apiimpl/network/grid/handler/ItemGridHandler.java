@@ -12,6 +12,7 @@ import com.raoulvdberge.refinedstorage.api.util.IComparer;
 import com.raoulvdberge.refinedstorage.api.util.StackListEntry;
 import com.raoulvdberge.refinedstorage.api.util.StackListResult;
 import com.raoulvdberge.refinedstorage.apiimpl.API;
+import com.raoulvdberge.refinedstorage.apiimpl.autocrafting.CraftingCalculationExecutor;
 import com.raoulvdberge.refinedstorage.apiimpl.autocrafting.preview.CraftingPreviewElementError;
 import com.raoulvdberge.refinedstorage.network.MessageGridCraftingPreviewResponse;
 import com.raoulvdberge.refinedstorage.network.MessageGridCraftingStartResponse;
@@ -25,6 +26,7 @@ import net.minecraftforge.items.IItemHandler;
 import net.minecraftforge.items.ItemHandlerHelper;
 
 import javax.annotation.Nullable;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
@@ -210,13 +212,20 @@ public class ItemGridHandler implements IItemGridHandler {
         StackListEntry<ItemStack> stack = network.getItemStorageCache().getCraftablesList().get(id);
 
         if (stack != null) {
+            Object key = Arrays.asList(network, player.getUniqueID(), id, quantity, noPreview);
+
+            //the same request of this player is still waiting, its calculation sends the player the same response
+            if (CraftingCalculationExecutor.instance().isQueued(key)) {
+                return;
+            }
+
             ICraftingTask task = network.getCraftingManager().create(stack.getStack(), quantity);
 
             if (task == null) {
                 return;
             }
 
-            CompletableFuture.supplyAsync(() -> {
+            CompletableFuture<Void> calculation = CraftingCalculationExecutor.instance().submit(CraftingCalculationExecutor.Priority.PLAYER, key, () -> {
                 ICraftingTaskError error = task.calculate();
 
                 FMLCommonHandler.instance().getMinecraftServerInstance().addScheduledTask(() -> {
@@ -243,7 +252,15 @@ public class ItemGridHandler implements IItemGridHandler {
                 }
 
                 return null;
-            }).exceptionally(t -> {
+            });
+
+            //the queue only refuses player requests that are already queued, which is checked above
+            if (calculation == null) {
+                task.onCancelled();
+                return;
+            }
+
+            calculation.exceptionally(t -> {
                 t.printStackTrace();
                 task.onCancelled();
                 return null;
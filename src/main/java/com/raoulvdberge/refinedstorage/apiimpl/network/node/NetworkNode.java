@@ -4,7 +4,6 @@ import com.raoulvdberge.refinedstorage.RS;
 import com.raoulvdberge.refinedstorage.api.network.INetwork;
 import com.raoulvdberge.refinedstorage.api.network.INetworkNodeVisitor;
 import com.raoulvdberge.refinedstorage.api.network.node.INetworkNode;
-import com.raoulvdberge.refinedstorage.api.util.Action;
 import com.raoulvdberge.refinedstorage.apiimpl.API;
 import com.raoulvdberge.refinedstorage.tile.config.IRSFilterConfigProvider;
 import com.raoulvdberge.refinedstorage.tile.config.RedstoneMode;
@@ -103,7 +102,19 @@ public abstract class NetworkNode implements INetworkNode, INetworkNodeVisitor {
     @Override
     public void markNetworkNodeDirty() {
         if (!world.isRemote) {
-            API.instance().getNetworkNodeManager(world).markForSaving();
+            API.instance().getNetworkNodeManager(world).markForSaving(this);
+
+            markEnergyUsageDirty();
+        }
+    }
+
+    /**
+     * Lets the network read the energy usage of this node again, needed when anything it depends on changes. Changes
+     * that mark the node dirty already do this.
+     */
+    protected void markEnergyUsageDirty() {
+        if (network != null) {
+            network.markEnergyUsageDirty(this);
         }
     }
 
@@ -112,7 +123,13 @@ public abstract class NetworkNode implements INetworkNode, INetworkNodeVisitor {
     }
 
     protected void updateRedstoneModeState() {
-        this.redstoneModeEnabled = this.redstoneMode.isEnabled(world, pos);
+        boolean enabled = this.redstoneMode.isEnabled(world, pos);
+
+        if (enabled != this.redstoneModeEnabled) {
+            this.redstoneModeEnabled = enabled;
+
+            markEnergyUsageDirty();
+        }
     }
 
     @Override
@@ -160,7 +177,11 @@ public abstract class NetworkNode implements INetworkNode, INetworkNodeVisitor {
                     onConnectedStateChange(network, canUpdate);
 
                     if (shouldRebuildGraphOnChange()) {
-                        network.getNodeGraph().invalidate(Action.PERFORM, network.world(), network.getPosition());
+                        if (canUpdate) {
+                            network.getNodeGraph().connect(world, pos);
+                        } else {
+                            network.getNodeGraph().disconnect(world, pos, null);
+                        }
                     }
                 }
             }
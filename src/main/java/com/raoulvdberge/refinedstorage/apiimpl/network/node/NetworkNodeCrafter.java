@@ -250,7 +250,11 @@ public class NetworkNodeCrafter extends NetworkNode implements ICraftingPatternC
 
     @Override
     public void unlock() {
-        this.locked = false;
+        if (locked) {
+            this.locked = false;
+
+            markNetworkNodeDirty();
+        }
     }
 
     @Override
@@ -13,6 +13,8 @@ import com.raoulvdberge.refinedstorage.apiimpl.API;
 import com.raoulvdberge.refinedstorage.apiimpl.network.node.cover.CoverManager;
 import com.raoulvdberge.refinedstorage.apiimpl.storage.cache.StorageCacheFluid;
 import com.raoulvdberge.refinedstorage.apiimpl.storage.cache.StorageCacheItem;
+import com.raoulvdberge.refinedstorage.apiimpl.storage.externalstorage.StorageExternalItem;
+import com.raoulvdberge.refinedstorage.apiimpl.util.Metrics;
 import com.raoulvdberge.refinedstorage.tile.TileExternalStorage;
 import com.raoulvdberge.refinedstorage.tile.config.*;
 import com.raoulvdberge.refinedstorage.tile.data.TileDataParameter;
@@ -73,6 +75,12 @@ public class NetworkNodeExternalStorage extends NetworkNode implements IStorageP
         super.onConnectedStateChange(network, state);
 
         updateStorage(network);
+
+        if (state) {
+            Metrics.register(getMetricName(), this::getScanStats);
+        } else {
+            Metrics.unregister(getMetricName());
+        }
     }
 
     @Override
@@ -199,6 +207,24 @@ public class NetworkNodeExternalStorage extends NetworkNode implements IStorageP
 
         network.getNodeGraph().runActionWhenPossible(StorageCacheItem.INVALIDATE);
         network.getNodeGraph().runActionWhenPossible(StorageCacheFluid.INVALIDATE);
+
+        network.markEnergyUsageDirty(this);
+    }
+
+    private String getMetricName() {
+        return "externalStorage.scan." + world.provider.getDimension() + "." + pos.getX() + "," + pos.getY() + "," + pos.getZ();
+    }
+
+    private Object getScanStats() {
+        StringBuilder stats = new StringBuilder();
+
+        for (IStorageExternal<ItemStack> storage : itemStorages) {
+            if (storage instanceof StorageExternalItem) {
+                stats.append(((StorageExternalItem) storage).getCache().getScanStats());
+            }
+        }
+
+        return stats.length() == 0 ? "-" : stats.toString();
     }
 
     @Override
@@ -49,7 +49,15 @@ public class NetworkNodeFluidInterface extends NetworkNode implements IUpgradeCo
             markNetworkNodeDirty();
         }
     };
-    private final FluidTank tankOut = new FluidTank(TANK_CAPACITY);
+    private final FluidTank tankOut = new FluidTank(TANK_CAPACITY) {
+        @Override
+        protected void onContentsChanged() {
+            super.onContentsChanged();
+
+            // Only called when other blocks drain the tank, our own changes go through onTankOutChanged directly
+            onTankOutChanged();
+        }
+    };
 
     private final FluidHandlerProxy tank = new FluidHandlerProxy(tankIn, tankOut);
 
@@ -2,7 +2,11 @@ package com.raoulvdberge.refinedstorage.apiimpl.network.node;
 
 import com.raoulvdberge.refinedstorage.RS;
 import com.raoulvdberge.refinedstorage.api.util.Action;
+import com.raoulvdberge.refinedstorage.api.util.IComparer;
+import com.raoulvdberge.refinedstorage.api.util.StackListResult;
+import com.raoulvdberge.refinedstorage.apiimpl.API;
 import com.raoulvdberge.refinedstorage.apiimpl.network.node.cover.CoverManager;
+import com.raoulvdberge.refinedstorage.apiimpl.util.StackListItem;
 import com.raoulvdberge.refinedstorage.inventory.item.ItemHandlerUpgrade;
 import com.raoulvdberge.refinedstorage.inventory.listener.ListenerNetworkNode;
 import com.raoulvdberge.refinedstorage.item.ItemUpgrade;
@@ -14,6 +18,9 @@ import com.raoulvdberge.refinedstorage.tile.config.IRSFilterConfigProvider;
 import com.raoulvdberge.refinedstorage.tile.config.IUpgradeContainer;
 import com.raoulvdberge.refinedstorage.util.StackUtils;
 import com.raoulvdberge.refinedstorage.util.WorldUtils;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntList;
+import net.minecraft.inventory.InventoryHelper;
 import net.minecraft.item.ItemStack;
 import net.minecraft.nbt.NBTTagCompound;
 import net.minecraft.tileentity.TileEntity;
@@ -26,10 +33,13 @@ import net.minecraftforge.fluids.FluidStack;
 import net.minecraftforge.fluids.capability.IFluidHandler;
 import net.minecraftforge.fluids.capability.IFluidTankProperties;
 import net.minecraftforge.items.IItemHandler;
+import net.minecraftforge.items.ItemHandlerHelper;
 import net.minecraftforge.items.wrapper.CombinedInvWrapper;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 public class NetworkNodeImporter extends NetworkNode implements IRSFilterConfigProvider, ICoverable, IUpgradeContainer {
     public static final String ID = "importer";
@@ -75,6 +85,14 @@ public class NetworkNodeImporter extends NetworkNode implements IRSFilterConfigP
                 return;
             }
 
+            if (RS.INSTANCE.config.importerBulkMode) {
+                if (ticks % upgrades.getSpeed() == 0) {
+                    importItemsBulk(handler);
+                }
+
+                return;
+            }
+
             int handlerSlotCount = handler.getSlots();
             if (currentSlot >= handlerSlotCount) {
                 currentSlot = 0;
@@ -96,7 +114,10 @@ public class NetworkNodeImporter extends NetworkNode implements IRSFilterConfigP
                         result = handler.extractItem(currentSlot, upgrades.getItemInteractCount(), false);
 
                         if (!result.isEmpty()) {
-                            network.insertItemTracked(result, result.getCount());
+                            ItemStack rejected = network.insertItemTracked(result, result.getCount());
+                            if (rejected != null && !rejected.isEmpty()) {
+                                returnItems(handler, currentSlot, rejected);
+                            }
                         }
                     } else {
                         currentSlot++;
@@ -151,6 +172,109 @@ public class NetworkNodeImporter extends NetworkNode implements IRSFilterConfigP
         }
     }
 
+    /**
+     * Takes up to {@link ItemHandlerUpgrade#getItemInteractCount()} items from every slot. The slots are read once and
+     * identical stacks are grouped, so every group is simulated against the network once and only what the network
+     * accepts is extracted. Anything the network still refuses is put back.
+     *
+     * @param handler the connected inventory
+     */
+    public void importItemsBulk(IItemHandler handler) {
+        IComparer comparer = API.instance().getComparer();
+        int interactCount = upgrades.getItemInteractCount();
+
+        //in slot order, so the first slots are emptied first
+        Map<StackListItem.ItemStackWrapper, ImportGroup> groups = new LinkedHashMap<>();
+
+        for (int slot = 0; slot < handler.getSlots(); ++slot) {
+            ItemStack stack = handler.getStackInSlot(slot);
+            if (stack.isEmpty() || !this.config.acceptsItem(stack)) {
+                continue;
+            }
+
+            ImportGroup group = groups.get(StackListItem.ItemStackWrapper.probe(stack));
+            if (group == null) {
+                //the stack in the slot shrinks when it's extracted from
+                group = new ImportGroup(ItemHandlerHelper.copyStackWithSize(stack, 1));
+
+                groups.put(new StackListItem.ItemStackWrapper(group.stack), group);
+            }
+
+            group.slots.add(slot);
+            group.count += Math.min(stack.getCount(), interactCount);
+        }
+
+        for (ImportGroup group : groups.values()) {
+            ItemStack stack = group.stack;
+            long count = group.count;
+
+            StackListResult<ItemStack> remainder = network.insertItem(stack, count, Action.SIMULATE);
+            long accepted = remainder == null ? count : count - remainder.getCount();
+
+            IntList extractedSlots = new IntArrayList();
+            IntList extractedCounts = new IntArrayList();
+            int extracted = 0;
+
+            for (int slot : group.slots) {
+                if (extracted >= accepted) {
+                    break;
+                }
+
+                ItemStack simulated = handler.extractItem(slot, (int) Math.min(interactCount, accepted - extracted), true);
+                if (simulated.isEmpty() || !comparer.isEqualNoQuantity(stack, simulated)) {
+                    continue;
+                }
+
+                ItemStack result = handler.extractItem(slot, simulated.getCount(), false);
+                if (result.isEmpty()) {
+                    continue;
+                }
+
+                if (comparer.isEqualNoQuantity(stack, result)) {
+                    extractedSlots.add(slot);
+                    extractedCounts.add(result.getCount());
+                    extracted += result.getCount();
+                } else {
+                    // The slot changed between the simulation and the extraction
+                    returnItems(handler, slot, result);
+                }
+            }
+
+            if (extracted > 0) {
+                ItemStack rejected = network.insertItemTracked(stack, extracted);
+
+                // The network can accept less than it simulated, give the rest back to the slots it came from
+                int left = rejected == null ? 0 : rejected.getCount();
+                for (int i = extractedSlots.size() - 1; i >= 0 && left > 0; --i) {
+                    int returned = Math.min(left, extractedCounts.getInt(i));
+
+                    returnItems(handler, extractedSlots.getInt(i), ItemHandlerHelper.copyStackWithSize(stack, returned));
+
+                    left -= returned;
+                }
+            }
+        }
+    }
+
+    /**
+     * Puts items that the network didn't accept back into the connected inventory, preferring the slot they were
+     * extracted from. Whatever doesn't fit is dropped at the importer.
+     *
+     * @param handler the connected inventory
+     * @param slot    the slot the items were extracted from
+     * @param stack   the items to put back
+     */
+    private void returnItems(IItemHandler handler, int slot, ItemStack stack) {
+        ItemStack remainder = handler.insertItem(slot, stack, false);
+        if (!remainder.isEmpty()) {
+            remainder = ItemHandlerHelper.insertItem(handler, remainder, false);
+        }
+
+        if (!remainder.isEmpty()) {
+            InventoryHelper.spawnItemStack(world, pos.getX(), pos.getY(), pos.getZ(), remainder);
+        }
+    }
+
     @Override
     public void read(NBTTagCompound tag) {
         super.read(tag);
@@ -214,4 +338,17 @@ public class NetworkNodeImporter extends NetworkNode implements IRSFilterConfigP
     public FilterConfig getConfig() {
         return this.config;
     }
+
+    /**
+     * Identical stacks of the connected inventory, imported together
+     */
+    private static class ImportGroup {
+        private final ItemStack stack;
+        private final IntList slots = new IntArrayList();
+        private long count;
+
+        ImportGroup(ItemStack stack) {
+            this.stack = stack;
+        }
+    }
 }
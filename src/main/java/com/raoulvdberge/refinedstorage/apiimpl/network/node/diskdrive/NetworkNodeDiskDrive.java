@@ -83,7 +83,8 @@ public class NetworkNodeDiskDrive extends NetworkNode implements IGuiStorage, IS
             .filterTypeItems()
             .filterSizeNine()
             .compareDamageAndNbt()
-            .customFilterTypeSupplier((ft) -> world.isRemote ? FilterType.values()[TileDiskDrive.TYPE.getValue()] : ft).build();
+            .customFilterTypeSupplier((ft) -> world.isRemote ? FilterType.values()[TileDiskDrive.TYPE.getValue()] : ft)
+            .onFilterChanged(this::onFilterChanged).build();
 
     public NetworkNodeDiskDrive(World world, BlockPos pos) {
         super(world, pos);
@@ -296,6 +297,12 @@ public class NetworkNodeDiskDrive extends NetworkNode implements IGuiStorage, IS
         return disks;
     }
 
+    private void onFilterChanged() {
+        if (network != null) {
+            ((StorageCacheItem) network.getItemStorageCache()).getRoutingIndex().invalidateInsertTargets();
+        }
+    }
+
     @Nonnull
     @Override
     public FilterConfig getConfig() {
@@ -8,14 +8,17 @@ import com.raoulvdberge.refinedstorage.api.util.Action;
 import com.raoulvdberge.refinedstorage.api.util.StackListEntry;
 import com.raoulvdberge.refinedstorage.api.util.StackListResult;
 import com.raoulvdberge.refinedstorage.render.constants.ConstantsDisk;
+import com.raoulvdberge.refinedstorage.tile.config.FilterConfig;
+import com.raoulvdberge.refinedstorage.tile.config.IRSFilterConfigProvider;
 import net.minecraft.item.ItemStack;
 import net.minecraft.nbt.NBTTagCompound;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.util.Collection;
+import java.util.List;
 
-public class StorageDiskItemDriveWrapper implements IStorageDisk<ItemStack> {
+public class StorageDiskItemDriveWrapper implements IStorageDisk<ItemStack>, IRSFilterConfigProvider {
     private final NetworkNodeDiskDrive diskDrive;
     private final IStorageDisk<ItemStack> parent;
     private int lastState;
@@ -74,6 +77,12 @@ public class StorageDiskItemDriveWrapper implements IStorageDisk<ItemStack> {
         return parent.extract(stack, size, flags, action);
     }
 
+    @Nonnull
+    @Override
+    public List<StackListResult<ItemStack>> extractAll(@Nonnull ItemStack stack, long size, int flags, Action action) {
+        return parent.extractAll(stack, size, flags, action);
+    }
+
     @Override
     public long getStored() {
         return parent.getStored();
@@ -103,4 +112,10 @@ public class StorageDiskItemDriveWrapper implements IStorageDisk<ItemStack> {
     public String getId() {
         return parent.getId();
     }
+
+    @Nonnull
+    @Override
+    public FilterConfig getConfig() {
+        return diskDrive.getConfig();
+    }
 }
@@ -47,7 +47,8 @@ public class NetworkNodeStorage extends NetworkNode implements IGuiStorage, ISto
             .allowedFilterModeBlackAndWhitelist()
             .filterModeBlacklist()
             .filterSizeNine()
-            .compareDamageAndNbt().build();
+            .compareDamageAndNbt()
+            .onFilterChanged(this::onFilterChanged).build();
 
     private UUID storageId = UUID.randomUUID();
     private IStorageDisk<ItemStack> storage;
@@ -246,6 +247,12 @@ public class NetworkNodeStorage extends NetworkNode implements IGuiStorage, ISto
         }
     }
 
+    private void onFilterChanged() {
+        if (network != null) {
+            ((StorageCacheItem) network.getItemStorageCache()).getRoutingIndex().invalidateInsertTargets();
+        }
+    }
+
     @Nonnull
     @Override
     public FilterConfig getConfig() {
@@ -7,14 +7,17 @@ import com.raoulvdberge.refinedstorage.api.storage.disk.IStorageDiskListener;
 import com.raoulvdberge.refinedstorage.api.util.Action;
 import com.raoulvdberge.refinedstorage.api.util.StackListEntry;
 import com.raoulvdberge.refinedstorage.api.util.StackListResult;
+import com.raoulvdberge.refinedstorage.tile.config.FilterConfig;
+import com.raoulvdberge.refinedstorage.tile.config.IRSFilterConfigProvider;
 import net.minecraft.item.ItemStack;
 import net.minecraft.nbt.NBTTagCompound;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.util.Collection;
+import java.util.List;
 
-public class StorageDiskItemStorageWrapper implements IStorageDisk<ItemStack> {
+public class StorageDiskItemStorageWrapper implements IStorageDisk<ItemStack>, IRSFilterConfigProvider {
     private final NetworkNodeStorage storage;
     private final IStorageDisk<ItemStack> parent;
 
@@ -60,6 +63,12 @@ public class StorageDiskItemStorageWrapper implements IStorageDisk<ItemStack> {
         return parent.extract(stack, size, flags, action);
     }
 
+    @Nonnull
+    @Override
+    public List<StackListResult<ItemStack>> extractAll(@Nonnull ItemStack stack, long size, int flags, Action action) {
+        return parent.extractAll(stack, size, flags, action);
+    }
+
     @Override
     public long getStored() {
         return parent.getStored();
@@ -89,4 +98,10 @@ public class StorageDiskItemStorageWrapper implements IStorageDisk<ItemStack> {
     public String getId() {
         return parent.getId();
     }
+
+    @Nonnull
+    @Override
+    public FilterConfig getConfig() {
+        return storage.getConfig();
+    }
 }
@@ -70,8 +70,14 @@ public class ReaderWriterChannel implements IReaderWriterChannel {
 
     @Override
     public void invalidate() {
-        new ArrayList<>(this.cachedWriters).forEach(w -> w.setChannel(""));
-        new ArrayList<>(this.cachedReaders).forEach(r -> r.setChannel(""));
+        new ArrayList<>(this.cachedWriters).forEach(w -> {
+            w.setChannel("");
+            w.markNetworkNodeDirty();
+        });
+        new ArrayList<>(this.cachedReaders).forEach(r -> {
+            r.setChannel("");
+            r.markNetworkNodeDirty();
+        });
     }
 
     @Override
@@ -8,6 +8,8 @@ import com.raoulvdberge.refinedstorage.api.util.IStackList;
 import com.raoulvdberge.refinedstorage.api.util.StackListEntry;
 import com.raoulvdberge.refinedstorage.api.util.StackListResult;
 import com.raoulvdberge.refinedstorage.apiimpl.API;
+import com.raoulvdberge.refinedstorage.apiimpl.storage.cache.listener.GridItemDeltaBroadcaster;
+import com.raoulvdberge.refinedstorage.apiimpl.storage.cache.listener.StorageCacheListenerGridItem;
 import net.minecraft.item.ItemStack;
 
 import javax.annotation.Nonnull;
@@ -27,9 +29,12 @@ public class StorageCacheItem implements IStorageCache<ItemStack> {
     private final IStackList<ItemStack> craftables = API.instance().createItemStackList();
     private final List<IStorageCacheListener<ItemStack>> listeners = new LinkedList<>();
     private final List<StackListResult<ItemStack>> batchedChanges = new ArrayList<>();
+    private final StorageRoutingIndexItem routingIndex = new StorageRoutingIndexItem();
+    private final GridItemDeltaBroadcaster gridDeltaBroadcaster;
 
     public StorageCacheItem(INetwork network) {
         this.network = network;
+        this.gridDeltaBroadcaster = new GridItemDeltaBroadcaster(network);
     }
 
     @Override
@@ -118,6 +123,10 @@ public class StorageCacheItem implements IStorageCache<ItemStack> {
     @Override
     public void removeListener(IStorageCacheListener<ItemStack> listener) {
         listeners.remove(listener);
+
+        if (listener instanceof StorageCacheListenerGridItem) {
+            gridDeltaBroadcaster.cancelSync(((StorageCacheListenerGridItem) listener).getPlayer());
+        }
     }
 
     @Override
@@ -128,6 +137,8 @@ public class StorageCacheItem implements IStorageCache<ItemStack> {
     @Override
     public void sort() {
         storages.sort(IStorage.COMPARATOR);
+
+        routingIndex.rebuild(storages);
     }
 
     @Override
@@ -144,4 +155,15 @@ public class StorageCacheItem implements IStorageCache<ItemStack> {
     public List<IStorage<ItemStack>> getStorages() {
         return storages;
     }
+
+    /**
+     * @return the index used to route insertions and extractions to the storages that can take part in them
+     */
+    public StorageRoutingIndexItem getRoutingIndex() {
+        return routingIndex;
+    }
+
+    public GridItemDeltaBroadcaster getGridDeltaBroadcaster() {
+        return gridDeltaBroadcaster;
+    }
 }
@@ -0,0 +1,231 @@
+package com.raoulvdberge.refinedstorage.apiimpl.storage.cache;
+
+import com.raoulvdberge.refinedstorage.api.storage.AccessType;
+import com.raoulvdberge.refinedstorage.api.storage.IStorage;
+import com.raoulvdberge.refinedstorage.api.storage.disk.IStorageDisk;
+import com.raoulvdberge.refinedstorage.api.util.StackListEntry;
+import com.raoulvdberge.refinedstorage.tile.config.FilterConfig;
+import com.raoulvdberge.refinedstorage.tile.config.IRSFilterConfigProvider;
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+
+import javax.annotation.Nonnull;
+import java.util.*;
+
+/**
+ * Keeps track of which storages of a network hold which items, so that insertions and extractions only have to visit
+ * the storages that can actually take part in the operation.
+ * <p>
+ * Only {@link IStorageDisk}s are indexed, their contents can only change through the network. All other storages
+ * (e.g. external storages) are always visited.
+ * <p>
+ * The insert targets of an item are computed once and reused until a storage starts or stops holding the item, a
+ * storage becomes full or has space again, the storages change or a filter of a storage changes.
+ */
+public class StorageRoutingIndexItem {
+    private final List<IStorage<ItemStack>> storages = new ArrayList<>();
+    private final Map<IStorage<ItemStack>, Integer> positions = new IdentityHashMap<>();
+
+    /**
+     * per item, the positions of the indexed storages that hold at least one stack of it
+     */
+    private final Map<Item, BitSet> holders = new HashMap<>();
+    /**
+     * per position, the amount stored of each item
+     */
+    private final List<Map<Item, Long>> counts = new ArrayList<>();
+
+    private final BitSet unindexed = new BitSet();
+    private final BitSet full = new BitSet();
+
+    private final Map<Item, List<IStorage<ItemStack>>> insertTargets = new HashMap<>();
+
+    /**
+     * Rebuilds the index from scratch.
+     *
+     * @param sortedStorages the storages of the network, sorted by {@link IStorage#COMPARATOR}
+     */
+    public synchronized void rebuild(List<IStorage<ItemStack>> sortedStorages) {
+        storages.clear();
+        positions.clear();
+        holders.clear();
+        counts.clear();
+        unindexed.clear();
+        full.clear();
+        insertTargets.clear();
+
+        for (IStorage<ItemStack> storage : sortedStorages) {
+            int position = storages.size();
+
+            storages.add(storage);
+            positions.put(storage, position);
+
+            Map<Item, Long> storageCounts = new HashMap<>();
+            counts.add(storageCounts);
+
+            if (!(storage instanceof IStorageDisk)) {
+                unindexed.set(position);
+                continue;
+            }
+
+            for (StackListEntry<ItemStack> entry : storage.getEntries()) {
+                if (entry != null && !entry.getStack().isEmpty() && entry.getCount() > 0) {
+                    Item item = entry.getStack().getItem();
+
+                    storageCounts.merge(item, entry.getCount(), Long::sum);
+                    holders.computeIfAbsent(item, i -> new BitSet()).set(position);
+                }
+            }
+
+            updateFull(position);
+        }
+    }
+
+    /**
+     * @param stack the stack to extract
+     * @return the storages that may contain the stack, in priority order
+     */
+    public synchronized List<IStorage<ItemStack>> getExtractTargets(@Nonnull ItemStack stack) {
+        BitSet candidates = (BitSet) unindexed.clone();
+
+        BitSet itemHolders = holders.get(stack.getItem());
+        if (itemHolders != null) {
+            candidates.or(itemHolders);
+        }
+
+        List<IStorage<ItemStack>> targets = new ArrayList<>(candidates.cardinality());
+        for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+            targets.add(storages.get(i));
+        }
+
+        return targets;
+    }
+
+    /**
+     * Returns the storages that may accept the stack. Storages with the same priority that already hold the item are
+     * returned before the other storages with that priority, so existing stacks are filled up first. Extract-only
+     * storages and storages whose filter rejects every stack of the item are left out.
+     *
+     * @param stack the stack to insert
+     * @return the storages that may accept the stack, in priority order, do NOT modify
+     */
+    public synchronized List<IStorage<ItemStack>> getInsertTargets(@Nonnull ItemStack stack) {
+        List<IStorage<ItemStack>> targets = insertTargets.get(stack.getItem());
+        if (targets == null) {
+            targets = Collections.unmodifiableList(computeInsertTargets(stack.getItem()));
+
+            insertTargets.put(stack.getItem(), targets);
+        }
+
+        return targets;
+    }
+
+    /**
+     * Called when the filter or filter mode of one of the storages changed, see {@link FilterConfig.Builder#onFilterChanged(Runnable)}.
+     */
+    public synchronized void invalidateInsertTargets() {
+        insertTargets.clear();
+    }
+
+    private List<IStorage<ItemStack>> computeInsertTargets(Item item) {
+        BitSet itemHolders = holders.get(item);
+
+        List<IStorage<ItemStack>> targets = new ArrayList<>();
+        List<IStorage<ItemStack>> others = new ArrayList<>();
+
+        for (int i = 0; i < storages.size(); ++i) {
+            IStorage<ItemStack> storage = storages.get(i);
+
+            if (i > 0 && storage.getPriority() != storages.get(i - 1).getPriority()) {
+                targets.addAll(others);
+                others.clear();
+            }
+
+            if (storage.getAccessType() == AccessType.EXTRACT ||
+                (storage instanceof IRSFilterConfigProvider && !((IRSFilterConfigProvider) storage).getConfig().mayAcceptItem(item))) {
+                continue;
+            }
+
+            if (unindexed.get(i) || (itemHolders != null && itemHolders.get(i))) {
+                targets.add(storage);
+            } else if (!full.get(i)) {
+                others.add(storage);
+            }
+        }
+
+        targets.addAll(others);
+
+        return targets;
+    }
+
+    /**
+     * Called after a stack has been inserted into a storage.
+     *
+     * @param storage the storage
+     * @param stack   the inserted stack
+     * @param amount  the amount that ended up in the storage
+     */
+    public synchronized void onInserted(IStorage<ItemStack> storage, @Nonnull ItemStack stack, long amount) {
+        Integer position = positions.get(storage);
+        if (position == null || unindexed.get(position) || amount <= 0) {
+            return;
+        }
+
+        Item item = stack.getItem();
+
+        counts.get(position).merge(item, amount, Long::sum);
+
+        BitSet itemHolders = holders.computeIfAbsent(item, i -> new BitSet());
+        if (!itemHolders.get(position)) {
+            itemHolders.set(position);
+
+            insertTargets.remove(item);
+        }
+
+        updateFull(position);
+    }
+
+    /**
+     * Called after a stack has been extracted from a storage.
+     *
+     * @param storage the storage
+     * @param stack   the extracted stack
+     * @param amount  the amount that was taken out of the storage
+     */
+    public synchronized void onExtracted(IStorage<ItemStack> storage, @Nonnull ItemStack stack, long amount) {
+        Integer position = positions.get(storage);
+        if (position == null || unindexed.get(position) || amount <= 0) {
+            return;
+        }
+
+        Item item = stack.getItem();
+
+        Long remaining = counts.get(position).computeIfPresent(item, (i, count) -> count - amount > 0 ? count - amount : null);
+        if (remaining == null) {
+            BitSet itemHolders = holders.get(item);
+            if (itemHolders != null) {
+                itemHolders.clear(position);
+
+                if (itemHolders.isEmpty()) {
+                    holders.remove(item);
+                }
+            }
+
+            insertTargets.remove(item);
+        }
+
+        updateFull(position);
+    }
+
+    private void updateFull(int position) {
+        IStorageDisk<ItemStack> disk = (IStorageDisk<ItemStack>) storages.get(position);
+
+        boolean isFull = disk.getCapacity() != -1 && disk.getStored() >= disk.getCapacity();
+        if (full.get(position) != isFull) {
+            full.set(position, isFull);
+
+            // a full storage is left out of the targets of every item it doesn't hold
+            insertTargets.clear();
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.raoulvdberge.refinedstorage.apiimpl.storage.cache.listener;
+
+import com.raoulvdberge.refinedstorage.api.storage.tracker.StorageTrackerEntry;
+import com.raoulvdberge.refinedstorage.api.util.StackListResult;
+import com.raoulvdberge.refinedstorage.util.StackUtils;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import net.minecraft.item.ItemStack;
+
+import javax.annotation.Nullable;
+import java.util.UUID;
+
+/**
+ * A change of the items of a network, prepared once per tick for all grids watching the network. It holds everything
+ * that doesn't depend on what a grid already knows, the {@link GridItemStackDictionary} of every grid adds the rest.
+ */
+public class GridItemDelta {
+    private final StackListResult<ItemStack> change;
+    @Nullable
+    private final UUID otherId;
+    @Nullable
+    private final StorageTrackerEntry tracker;
+    private final boolean removed;
+
+    @Nullable
+    private byte[] definition;
+
+    /**
+     * @param change  the change
+     * @param otherId the id of the craftable version of the stack
+     * @param tracker the tracker entry of the stack
+     * @param removed whether the entry no longer exists
+     */
+    public GridItemDelta(StackListResult<ItemStack> change, @Nullable UUID otherId, @Nullable StorageTrackerEntry tracker, boolean removed) {
+        this.change = change;
+        this.otherId = otherId;
+        this.tracker = tracker;
+        this.removed = removed;
+    }
+
+    public StackListResult<ItemStack> getChange() {
+        return change;
+    }
+
+    @Nullable
+    public UUID getOtherId() {
+        return otherId;
+    }
+
+    @Nullable
+    public StorageTrackerEntry getTracker() {
+        return tracker;
+    }
+
+    public boolean isRemoved() {
+        return removed;
+    }
+
+    /**
+     * The stack and its id as written for grids that don't know the stack yet. They are serialized by the first grid
+     * that needs them and reused for all other grids.
+     *
+     * @return the serialized stack and id, do NOT modify
+     */
+    public synchronized byte[] getDefinition() {
+        if (definition == null) {
+            ByteBuf buf = Unpooled.buffer();
+
+            StackUtils.writeItemStack(buf, change.getStack());
+            StackUtils.writeUUID(buf, change.getId());
+
+            definition = new byte[buf.readableBytes()];
+            buf.readBytes(definition);
+        }
+
+        return definition;
+    }
+}
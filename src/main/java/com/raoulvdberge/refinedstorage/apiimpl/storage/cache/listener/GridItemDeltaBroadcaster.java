@@ -0,0 +1,140 @@
+package com.raoulvdberge.refinedstorage.apiimpl.storage.cache.listener;
+
+import com.raoulvdberge.refinedstorage.RS;
+import com.raoulvdberge.refinedstorage.api.network.INetwork;
+import com.raoulvdberge.refinedstorage.api.util.StackListResult;
+import com.raoulvdberge.refinedstorage.network.MessageGridItemDelta;
+import net.minecraft.entity.player.EntityPlayerMP;
+import net.minecraft.item.ItemStack;
+
+import java.util.*;
+
+/**
+ * Collects the item changes of a network for all grids watching it and sends them once per tick.
+ * Changes to the same stack within a tick are merged into a single delta. The encoded deltas don't depend on the
+ * permissions of a player, those are only taken into account in the full update sent when a grid is opened.
+ * <p>
+ * The deltas are prepared once per tick as {@link GridItemDelta}s, which hold the storage and tracker lookups and the
+ * serialized stacks. Every grid that is opened gets its own {@link GridItemStackDictionary}, which only adds the
+ * handles and the definitions of stacks that grid doesn't know yet. Full updates are sent over multiple ticks by a {@link GridItemSync}, changes for a player whose full update is
+ * still being sent go to that sync instead.
+ */
+public class GridItemDeltaBroadcaster {
+    private final INetwork network;
+
+    private final Map<Object, StackListResult<ItemStack>> pending = new LinkedHashMap<>();
+    private final Set<StackListResult<ItemStack>> posted = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final Set<EntityPlayerMP> recipients = new LinkedHashSet<>();
+    private final Map<EntityPlayerMP, GridItemSync> syncs = new LinkedHashMap<>();
+    private final Map<EntityPlayerMP, GridItemStackDictionary> dictionaries = new HashMap<>();
+
+    public GridItemDeltaBroadcaster(INetwork network) {
+        this.network = network;
+    }
+
+    /**
+     * Queues changes for a player. Every listener of the storage cache receives the same change instances, so changes
+     * that were already queued by another listener are only added once.
+     *
+     * @param player the player watching the grid
+     * @param deltas the changes
+     */
+    public synchronized void post(EntityPlayerMP player, List<StackListResult<ItemStack>> deltas) {
+        GridItemSync sync = syncs.get(player);
+        if (sync != null) {
+            sync.onChanged(deltas);
+
+            return;
+        }
+
+        recipients.add(player);
+
+        for (StackListResult<ItemStack> delta : deltas) {
+            if (!posted.add(delta)) {
+                continue;
+            }
+
+            Object key = delta.getId() != null ? delta.getId() : delta;
+
+            StackListResult<ItemStack> merged = pending.get(key);
+            if (merged == null) {
+                pending.put(key, delta.getId() != null ?
+                        new StackListResult<>(delta.getStack(), delta.getId(), delta.getChange()) :
+                        new StackListResult<>(delta.getStack(), delta.getChange()));
+            } else {
+                merged.grow(delta.getChange());
+            }
+        }
+    }
+
+    /**
+     * Starts sending the full update to a player with a new dictionary, replacing a full update that is still being
+     * sent to them. The first page is sent right away.
+     *
+     * @param player   the player
+     * @param canCraft whether the player is allowed to start autocrafting
+     */
+    public synchronized void startSync(EntityPlayerMP player, boolean canCraft) {
+        // Changes that happened before the full update mustn't be sent to this player afterwards
+        flushDeltas();
+
+        GridItemStackDictionary dictionary = new GridItemStackDictionary();
+        dictionaries.put(player, dictionary);
+
+        GridItemSync sync = new GridItemSync(network, player, canCraft, dictionary);
+
+        if (sync.step(RS.INSTANCE.config.gridSyncBytesPerTick)) {
+            syncs.remove(player);
+        } else {
+            syncs.put(player, sync);
+        }
+    }
+
+    /**
+     * Stops sending the full update to a player and forgets their dictionary, called when the grid is closed.
+     *
+     * @param player the player
+     */
+    public synchronized void cancelSync(EntityPlayerMP player) {
+        syncs.remove(player);
+        dictionaries.remove(player);
+    }
+
+    /**
+     * Sends the queued changes and the next pages of the full updates that are still being sent, called at the end of
+     * every network tick.
+     */
+    public synchronized void flush() {
+        flushDeltas();
+
+        syncs.values().removeIf(sync -> sync.step(RS.INSTANCE.config.gridSyncBytesPerTick));
+    }
+
+    private void flushDeltas() {
+        if (!recipients.isEmpty()) {
+            List<StackListResult<ItemStack>> deltas = new ArrayList<>(pending.size());
+
+            for (StackListResult<ItemStack> delta : pending.values()) {
+                if (delta.getChange() != 0) {
+                    deltas.add(delta);
+                }
+            }
+
+            if (!deltas.isEmpty()) {
+                List<GridItemDelta> prepared = MessageGridItemDelta.prepare(network, deltas);
+
+                for (EntityPlayerMP player : recipients) {
+                    GridItemStackDictionary dictionary = dictionaries.get(player);
+
+                    if (dictionary != null) {
+                        RS.INSTANCE.network.sendTo(new MessageGridItemDelta(MessageGridItemDelta.encode(dictionary, prepared)), player);
+                    }
+                }
+            }
+        }
+
+        pending.clear();
+        posted.clear();
+        recipients.clear();
+    }
+}
@@ -0,0 +1,226 @@
+package com.raoulvdberge.refinedstorage.apiimpl.storage.cache.listener;
+
+import com.raoulvdberge.refinedstorage.api.storage.tracker.StorageTrackerEntry;
+import com.raoulvdberge.refinedstorage.api.util.StackListResult;
+import com.raoulvdberge.refinedstorage.util.StackUtils;
+import io.netty.buffer.ByteBuf;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import net.minecraft.item.ItemStack;
+import net.minecraftforge.fml.common.network.ByteBufUtils;
+
+import javax.annotation.Nullable;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Assigns compact handles to the stack entries and tracker names of a network for the grid protocol, see
+ * {@link com.raoulvdberge.refinedstorage.network.MessageGridItemUpdate} and
+ * {@link com.raoulvdberge.refinedstorage.network.MessageGridItemDelta}.
+ * <p>
+ * A dictionary is created every time a grid starts watching the network and only serves that grid, which receives
+ * the full update and all deltas written with it. Once a stack has been sent, the following deltas only contain its
+ * handle and the count change. The handles of removed stacks are freed and reused for new stacks.
+ * The client side counterpart is {@link com.raoulvdberge.refinedstorage.gui.grid.stack.GridItemStackDictionaryClient}.
+ */
+public class GridItemStackDictionary {
+    public static final int FLAG_DEFINITION = 1;
+    public static final int FLAG_OTHER_ID = 2;
+    public static final int FLAG_TRACKER = 4;
+
+    /**
+     * Handle of stacks that don't have one, craftables are only sent in full updates
+     */
+    public static final int NO_HANDLE = 0;
+
+    private static final AtomicInteger SESSIONS = new AtomicInteger();
+
+    private final int session = SESSIONS.incrementAndGet();
+
+    private final Map<UUID, Entry> entries = new HashMap<>();
+    private final IntArrayList freeHandles = new IntArrayList();
+    private int nextHandle = NO_HANDLE + 1;
+
+    private final Object2IntMap<String> nameIds = new Object2IntOpenHashMap<>();
+    private final List<String> names = new ArrayList<>();
+    private final BitSet broadcastNames = new BitSet();
+
+    public GridItemStackDictionary() {
+        nameIds.defaultReturnValue(-1);
+    }
+
+    /**
+     * Writes the tracker names that were added since a previous call, must be written after all stacks of a full
+     * update page went through {@link #writeStack(ByteBuf, ItemStack, long, UUID, UUID, boolean, StorageTrackerEntry)}.
+     *
+     * @param buf  the buffer
+     * @param from the amount of names that were already written
+     * @return the amount of names written so far, to pass as {@code from} in the next call
+     */
+    public synchronized int writeNames(ByteBuf buf, int from) {
+        ByteBufUtils.writeVarInt(buf, names.size() - from, 5);
+
+        for (int i = from; i < names.size(); ++i) {
+            ByteBufUtils.writeUTF8String(buf, names.get(i));
+        }
+
+        broadcastNames.set(from, names.size());
+
+        return names.size();
+    }
+
+    /**
+     * Writes a stack of a full update.
+     */
+    public synchronized void writeStack(ByteBuf buf, ItemStack stack, long count, UUID id, @Nullable UUID otherId, boolean craftable, @Nullable StorageTrackerEntry tracker) {
+        Entry entry = craftable ? null : getEntry(id);
+
+        ByteBufUtils.writeVarInt(buf, entry == null ? NO_HANDLE : entry.handle, 5);
+
+        StackUtils.writeItemStack(buf, stack);
+        StackUtils.writeVarLong(buf, count);
+        buf.writeBoolean(craftable);
+        StackUtils.writeUUID(buf, id);
+
+        writeOtherId(buf, otherId);
+
+        int nameId = tracker == null ? -1 : intern(tracker.getName());
+
+        buf.writeBoolean(tracker != null);
+        if (tracker != null) {
+            StackUtils.writeVarLong(buf, tracker.getTime());
+            ByteBufUtils.writeVarInt(buf, nameId, 5);
+        }
+
+        // The grid now knows the stack, so its deltas don't have to define it again
+        if (entry != null) {
+            entry.broadcast = true;
+            entry.otherId = otherId;
+            entry.trackerTime = tracker == null ? -1 : tracker.getTime();
+            entry.trackerName = nameId;
+        }
+    }
+
+    /**
+     * Frees the handle of a stack that no longer exists, for stacks that are removed without a delta being written.
+     *
+     * @param id the id of the stack
+     */
+    public synchronized void remove(UUID id) {
+        Entry entry = entries.remove(id);
+
+        if (entry != null) {
+            freeHandles.add(entry.handle);
+        }
+    }
+
+    /**
+     * Writes the session, used by the first page of a full update and by every delta message.
+     *
+     * @param buf the buffer
+     */
+    public void writeSession(ByteBuf buf) {
+        ByteBufUtils.writeVarInt(buf, session, 5);
+    }
+
+    /**
+     * Writes a delta. The handle of a removed entry is reused afterwards.
+     *
+     * @param buf   the buffer
+     * @param delta the prepared delta, shared with the other grids watching the network
+     */
+    public synchronized void writeDelta(ByteBuf buf, GridItemDelta delta) {
+        StackListResult<ItemStack> change = delta.getChange();
+        UUID otherId = delta.getOtherId();
+        StorageTrackerEntry tracker = delta.getTracker();
+
+        Entry entry = getEntry(change.getId());
+
+        int nameId = tracker == null ? -1 : intern(tracker.getName());
+
+        int flags = 0;
+        if (!entry.broadcast) {
+            flags |= FLAG_DEFINITION | FLAG_OTHER_ID;
+        } else if (!Objects.equals(otherId, entry.otherId)) {
+            flags |= FLAG_OTHER_ID;
+        }
+
+        if (tracker != null && (!entry.broadcast || tracker.getTime() != entry.trackerTime || nameId != entry.trackerName)) {
+            flags |= FLAG_TRACKER;
+        }
+
+        ByteBufUtils.writeVarInt(buf, entry.handle, 5);
+        buf.writeByte(flags);
+        StackUtils.writeSignedVarLong(buf, change.getChange());
+
+        if ((flags & FLAG_DEFINITION) != 0) {
+            buf.writeBytes(delta.getDefinition());
+        }
+
+        if ((flags & FLAG_OTHER_ID) != 0) {
+            writeOtherId(buf, otherId);
+        }
+
+        if ((flags & FLAG_TRACKER) != 0) {
+            StackUtils.writeVarLong(buf, tracker.getTime());
+
+            // The lowest bit tells whether the name itself follows
+            if (broadcastNames.get(nameId)) {
+                ByteBufUtils.writeVarInt(buf, nameId << 1, 5);
+            } else {
+                ByteBufUtils.writeVarInt(buf, (nameId << 1) | 1, 5);
+                ByteBufUtils.writeUTF8String(buf, tracker.getName());
+
+                broadcastNames.set(nameId);
+            }
+
+            entry.trackerTime = tracker.getTime();
+            entry.trackerName = nameId;
+        }
+
+        entry.broadcast = true;
+        entry.otherId = otherId;
+
+        if (delta.isRemoved()) {
+            remove(change.getId());
+        }
+    }
+
+    private static void writeOtherId(ByteBuf buf, @Nullable UUID otherId) {
+        buf.writeBoolean(otherId != null);
+        if (otherId != null) {
+            StackUtils.writeUUID(buf, otherId);
+        }
+    }
+
+    private Entry getEntry(UUID id) {
+        return entries.computeIfAbsent(id, k -> new Entry(freeHandles.isEmpty() ? nextHandle++ : freeHandles.popInt()));
+    }
+
+    private int intern(String name) {
+        int id = nameIds.getInt(name);
+
+        if (id == -1) {
+            id = names.size();
+
+            names.add(name);
+            nameIds.put(name, id);
+        }
+
+        return id;
+    }
+
+    private static class Entry {
+        private final int handle;
+        private boolean broadcast;
+        @Nullable
+        private UUID otherId;
+        private long trackerTime = -1;
+        private int trackerName = -1;
+
+        Entry(int handle) {
+            this.handle = handle;
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.raoulvdberge.refinedstorage.apiimpl.storage.cache.listener;
+
+import com.raoulvdberge.refinedstorage.RS;
+import com.raoulvdberge.refinedstorage.api.network.INetwork;
+import com.raoulvdberge.refinedstorage.api.util.IComparer;
+import com.raoulvdberge.refinedstorage.api.util.IStackList;
+import com.raoulvdberge.refinedstorage.api.util.StackListEntry;
+import com.raoulvdberge.refinedstorage.api.util.StackListResult;
+import com.raoulvdberge.refinedstorage.network.MessageGridItemUpdate;
+import com.raoulvdberge.refinedstorage.util.StackUtils;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import net.minecraft.entity.player.EntityPlayerMP;
+import net.minecraft.item.ItemStack;
+import net.minecraftforge.fml.common.network.ByteBufUtils;
+
+import java.util.*;
+
+/**
+ * Sends the full update of a grid in pages of at most {@link com.raoulvdberge.refinedstorage.RSConfig#gridSyncBytesPerTick}
+ * bytes per tick, so opening a grid on a huge network doesn't stall the server or the connection.
+ * <p>
+ * The ids of all stacks are taken when the grid is opened, the stacks themselves are written with their state at the
+ * time the page is sent. Changes to stacks that were already sent, and stacks that didn't exist when the grid was
+ * opened, are sent again after the snapshot is done. The player doesn't receive deltas until the last page was sent.
+ */
+public class GridItemSync {
+    private final INetwork network;
+    private final EntityPlayerMP player;
+    private final boolean canCraft;
+    private final GridItemStackDictionary dictionary;
+
+    private final List<UUID> ids = new ArrayList<>();
+    private final int craftablesStart;
+    private final Object2IntMap<UUID> positions = new Object2IntOpenHashMap<>();
+    private int position;
+
+    private final Set<UUID> resend = new LinkedHashSet<>();
+
+    private boolean first = true;
+    private int sentNames;
+
+    public GridItemSync(INetwork network, EntityPlayerMP player, boolean canCraft, GridItemStackDictionary dictionary) {
+        this.network = network;
+        this.player = player;
+        this.canCraft = canCraft;
+        this.dictionary = dictionary;
+
+        positions.defaultReturnValue(-1);
+
+        for (StackListEntry<ItemStack> entry : network.getItemStorageCache().getList().getStacks()) {
+            positions.put(entry.getId(), ids.size());
+            ids.add(entry.getId());
+        }
+
+        this.craftablesStart = ids.size();
+
+        for (StackListEntry<ItemStack> entry : network.getItemStorageCache().getCraftablesList().getStacks()) {
+            ids.add(entry.getId());
+        }
+    }
+
+    /**
+     * Marks changed stacks, stacks that still have to be sent from the snapshot are sent with their current state.
+     *
+     * @param deltas the changes
+     */
+    public void onChanged(List<StackListResult<ItemStack>> deltas) {
+        for (StackListResult<ItemStack> delta : deltas) {
+            if (delta.getId() == null) {
+                continue;
+            }
+
+            int pos = positions.getInt(delta.getId());
+
+            if (pos == -1 || pos < position) {
+                resend.add(delta.getId());
+            }
+        }
+    }
+
+    /**
+     * Sends the next page.
+     *
+     * @param budget the maximum amount of stack bytes in the page, at least one stack is always sent
+     * @return true if this was the last page
+     */
+    public boolean step(int budget) {
+        IStackList<ItemStack> list = network.getItemStorageCache().getList();
+        IStackList<ItemStack> craftables = network.getItemStorageCache().getCraftablesList();
+
+        ByteBuf stacksBuf = Unpooled.buffer();
+        int stacks = 0;
+
+        ByteBuf removedBuf = Unpooled.buffer();
+        int removed = 0;
+
+        while (stacksBuf.writerIndex() + removedBuf.writerIndex() < budget) {
+            if (position < ids.size()) {
+                boolean craftable = position >= craftablesStart;
+                StackListEntry<ItemStack> entry = (craftable ? craftables : list).get(ids.get(position++));
+
+                // Stacks removed in the meantime were never sent, so there is nothing to remove
+                if (entry != null && (craftable || entry.getCount() > 0)) {
+                    writeStack(stacksBuf, entry, craftable);
+                    stacks++;
+                }
+            } else if (!resend.isEmpty()) {
+                Iterator<UUID> it = resend.iterator();
+                UUID id = it.next();
+                it.remove();
+
+                StackListEntry<ItemStack> entry = list.get(id);
+
+                if (entry == null || entry.getCount() <= 0) {
+                    StackUtils.writeUUID(removedBuf, id);
+                    removed++;
+
+                    dictionary.remove(id);
+                } else {
+                    writeStack(stacksBuf, entry, false);
+                    stacks++;
+                }
+            } else {
+                break;
+            }
+        }
+
+        ByteBuf buf = Unpooled.buffer();
+
+        buf.writeBoolean(first);
+        buf.writeBoolean(canCraft);
+
+        if (first) {
+            dictionary.writeSession(buf);
+        }
+
+        // The stacks are written first so the names contain every name they use
+        sentNames = dictionary.writeNames(buf, sentNames);
+
+        ByteBufUtils.writeVarInt(buf, stacks, 5);
+        buf.writeBytes(stacksBuf);
+
+        ByteBufUtils.writeVarInt(buf, removed, 5);
+        buf.writeBytes(removedBuf);
+
+        byte[] encoded = new byte[buf.readableBytes()];
+        buf.readBytes(encoded);
+
+        RS.INSTANCE.network.sendTo(new MessageGridItemUpdate(encoded), player);
+
+        first = false;
+
+        return position >= ids.size() && resend.isEmpty();
+    }
+
+    private void writeStack(ByteBuf buf, StackListEntry<ItemStack> entry, boolean craftable) {
+        StackListEntry<ItemStack> otherEntry = (craftable ? network.getItemStorageCache().getList() : network.getItemStorageCache().getCraftablesList())
+                .getEntry(entry.getStack(), IComparer.COMPARE_NBT | IComparer.COMPARE_DAMAGE);
+
+        dictionary.writeStack(buf, entry.getStack(), entry.getCount(), entry.getId(),
+                otherEntry != null ? otherEntry.getId() : null, craftable,
+                network.getItemStorageTracker().get(entry.getStack()));
+    }
+}
@@ -1,12 +1,10 @@
 package com.raoulvdberge.refinedstorage.apiimpl.storage.cache.listener;
 
-import com.raoulvdberge.refinedstorage.RS;
 import com.raoulvdberge.refinedstorage.api.network.INetwork;
 import com.raoulvdberge.refinedstorage.api.network.security.Permission;
 import com.raoulvdberge.refinedstorage.api.storage.IStorageCacheListener;
 import com.raoulvdberge.refinedstorage.api.util.StackListResult;
-import com.raoulvdberge.refinedstorage.network.MessageGridItemDelta;
-import com.raoulvdberge.refinedstorage.network.MessageGridItemUpdate;
+import com.raoulvdberge.refinedstorage.apiimpl.storage.cache.StorageCacheItem;
 import net.minecraft.entity.player.EntityPlayerMP;
 import net.minecraft.item.ItemStack;
 
@@ -25,7 +23,11 @@ public class StorageCacheListenerGridItem implements IStorageCacheListener<ItemS
 
     @Override
     public void onAttached() {
-        RS.INSTANCE.network.sendTo(new MessageGridItemUpdate(network, network.getSecurityManager().hasPermission(Permission.AUTOCRAFTING, player)), player);
+        getBroadcaster().startSync(player, network.getSecurityManager().hasPermission(Permission.AUTOCRAFTING, player));
+    }
+
+    public EntityPlayerMP getPlayer() {
+        return player;
     }
 
     @Override
@@ -43,6 +45,10 @@ public class StorageCacheListenerGridItem implements IStorageCacheListener<ItemS
 
     @Override
     public void onChangedBulk(@Nonnull List<StackListResult<ItemStack>> deltas) {
-        RS.INSTANCE.network.sendTo(new MessageGridItemDelta(network, deltas), player);
+        getBroadcaster().post(player, deltas);
+    }
+
+    private GridItemDeltaBroadcaster getBroadcaster() {
+        return ((StorageCacheItem) network.getItemStorageCache()).getGridDeltaBroadcaster();
     }
 }
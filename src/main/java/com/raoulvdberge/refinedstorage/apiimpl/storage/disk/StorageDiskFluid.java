@@ -229,6 +229,6 @@ public class StorageDiskFluid implements IStorageDisk<FluidStack> {
             listener.onChanged();
 
         if (world != null)
-            API.instance().getStorageDiskManager(world).markForSaving();
+            API.instance().getStorageDiskManager(world).markForSaving(this);
     }
 }
@@ -14,16 +14,17 @@ import com.raoulvdberge.refinedstorage.api.util.StackListResult;
 import com.raoulvdberge.refinedstorage.apiimpl.API;
 import com.raoulvdberge.refinedstorage.apiimpl.storage.disk.factory.StorageDiskFactoryItem;
 import com.raoulvdberge.refinedstorage.apiimpl.util.StackListItem;
-import com.raoulvdberge.refinedstorage.util.StackUtils;
 import net.minecraft.item.Item;
 import net.minecraft.item.ItemStack;
 import net.minecraft.nbt.NBTTagCompound;
-import net.minecraft.nbt.NBTTagList;
 import net.minecraft.world.World;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
@@ -33,6 +34,8 @@ public class StorageDiskItem implements IStorageDisk<ItemStack> {
     public static final String NBT_CAPACITY = "Capacity";
     public static final String NBT_ITEMS = "Items";
     public static final String NBT_REAL_SIZE = "RealSize";
+    public static final String NBT_FORMAT = "Format";
+    public static final String NBT_COMPACT_ITEMS = "CompactItems";
 
     private final World world;
     private final long capacity;
@@ -58,16 +61,9 @@ public class StorageDiskItem implements IStorageDisk<ItemStack> {
     public NBTTagCompound writeToNbt() {
         NBTTagCompound tag = new NBTTagCompound();
 
-        NBTTagList list = new NBTTagList();
-
-        for (StackListEntry<ItemStack> entry : stacks.values()) {
-            NBTTagCompound stackTag = StackUtils.serializeStackToNbt(entry.getStack());
-            stackTag.setLong(NBT_REAL_SIZE, entry.getCount());
-            list.appendTag(stackTag);
-        }
-
         tag.setString(NBT_VERSION, RS.VERSION);
-        tag.setTag(NBT_ITEMS, list);
+        tag.setInteger(NBT_FORMAT, StorageDiskItemEncoding.VERSION);
+        tag.setByteArray(NBT_COMPACT_ITEMS, StorageDiskItemEncoding.encode(stacks.values()));
         tag.setLong(NBT_CAPACITY, capacity);
 
         return tag;
@@ -91,9 +87,7 @@ public class StorageDiskItem implements IStorageDisk<ItemStack> {
     @Override
     @Nullable
     public StackListResult<ItemStack> insert(@Nonnull ItemStack stack, long size, Action action) {
-        StackListItem.ItemStackWrapper wrapper = new StackListItem.ItemStackWrapper(stack);
-
-        StackListEntry<ItemStack> entry = stacks.get(wrapper);
+        StackListEntry<ItemStack> entry = stacks.get(StackListItem.ItemStackWrapper.probe(stack));
         if (entry != null) {
             if (getCapacity() != -1 && getStored() + size > getCapacity()) {
                 long remainingSpace = getCapacity() - getStored();
@@ -130,10 +124,9 @@ public class StorageDiskItem implements IStorageDisk<ItemStack> {
             }
 
             if (action == Action.PERFORM) {
-                ItemStack newStack = stack.copy();
-                wrapper.setStack(newStack);
-                stacks.put(wrapper, new StackListEntry<>(newStack, remainingSpace));
-                stacksByItem.put(stack.getItem(), new StackListItem.ItemStackWrapper(newStack));
+                StackListItem.ItemStackWrapper wrapper = new StackListItem.ItemStackWrapper(stack.copy());
+                stacks.put(wrapper, new StackListEntry<>(wrapper.getStack(), remainingSpace));
+                stacksByItem.put(stack.getItem(), wrapper);
                 stored += remainingSpace;
 
                 onChanged();
@@ -142,10 +135,9 @@ public class StorageDiskItem implements IStorageDisk<ItemStack> {
             return new StackListResult<>(stack.copy(), size - remainingSpace);
         } else {
             if (action == Action.PERFORM) {
-                ItemStack newStack = stack.copy();
-                wrapper.setStack(newStack);
-                stacks.put(wrapper, new StackListEntry<>(newStack, size));
-                stacksByItem.put(stack.getItem(), new StackListItem.ItemStackWrapper(newStack));
+                StackListItem.ItemStackWrapper wrapper = new StackListItem.ItemStackWrapper(stack.copy());
+                stacks.put(wrapper, new StackListEntry<>(wrapper.getStack(), size));
+                stacksByItem.put(stack.getItem(), wrapper);
                 stored += size;
 
                 onChanged();
@@ -161,7 +153,7 @@ public class StorageDiskItem implements IStorageDisk<ItemStack> {
         //extract exact
         if ((flags & IComparer.COMPARE_NBT) == IComparer.COMPARE_NBT &&
                 (flags & IComparer.COMPARE_DAMAGE) == IComparer.COMPARE_DAMAGE) {
-            StackListItem.ItemStackWrapper wrapper = new StackListItem.ItemStackWrapper(stack);
+            StackListItem.ItemStackWrapper wrapper = StackListItem.ItemStackWrapper.probe(stack);
 
             StackListEntry<ItemStack> entry = stacks.get(wrapper);
 
@@ -175,7 +167,7 @@ public class StorageDiskItem implements IStorageDisk<ItemStack> {
             if (action == Action.PERFORM) {
                 if (entry.getCount() - size == 0) {
                     stacks.remove(wrapper);
-                    stacksByItem.remove(stack.getItem(), new StackListItem.ItemStackWrapper(stack));
+                    stacksByItem.remove(stack.getItem(), wrapper);
                     stored -= entry.getCount();
                 } else {
                     entry.shrink(size);
@@ -216,6 +208,53 @@ public class StorageDiskItem implements IStorageDisk<ItemStack> {
         return null;
     }
 
+    @Nonnull
+    @Override
+    public List<StackListResult<ItemStack>> extractAll(@Nonnull ItemStack stack, long size, int flags, Action action) {
+        //an exact match can only be a single stack
+        if ((flags & IComparer.COMPARE_NBT) == IComparer.COMPARE_NBT &&
+                (flags & IComparer.COMPARE_DAMAGE) == IComparer.COMPARE_DAMAGE) {
+            StackListResult<ItemStack> result = extract(stack, size, flags, action);
+
+            return result == null ? Collections.emptyList() : Collections.singletonList(result);
+        }
+
+        List<StackListResult<ItemStack>> results = new ArrayList<>();
+
+        //copy the keys, entries are removed while iterating
+        for (StackListItem.ItemStackWrapper key : new ArrayList<>(stacksByItem.get(stack.getItem()))) {
+            if (size < 1)
+                break;
+
+            StackListEntry<ItemStack> entry = stacks.get(key);
+
+            if (!API.instance().getComparer().isEqual(entry.getStack(), stack, flags))
+                continue;
+
+            long taken = Math.min(size, entry.getCount());
+
+            if (action == Action.PERFORM) {
+                if (entry.getCount() - taken == 0) {
+                    stacks.remove(key);
+                    stacksByItem.remove(stack.getItem(), key);
+                    stored -= entry.getCount();
+                } else {
+                    entry.shrink(taken);
+                    stored -= taken;
+                }
+            }
+
+            results.add(new StackListResult<>(entry.getStack().copy(), taken));
+            size -= taken;
+        }
+
+        if (action == Action.PERFORM && !results.isEmpty()) {
+            onChanged();
+        }
+
+        return results;
+    }
+
     @Override
     public long getStored() {
         return this.stored;
@@ -263,8 +302,9 @@ public class StorageDiskItem implements IStorageDisk<ItemStack> {
      */
     @Deprecated
     public void putRaw(ItemStack stack, long count) {
-        stacks.put(new StackListItem.ItemStackWrapper(stack), new StackListEntry<>(stack, count));
-        stacksByItem.put(stack.getItem(), new StackListItem.ItemStackWrapper(stack));
+        StackListItem.ItemStackWrapper wrapper = new StackListItem.ItemStackWrapper(stack);
+        stacks.put(wrapper, new StackListEntry<>(stack, count));
+        stacksByItem.put(stack.getItem(), wrapper);
     }
 
     private void onChanged() {
@@ -272,6 +312,6 @@ public class StorageDiskItem implements IStorageDisk<ItemStack> {
             listener.onChanged();
 
         if (world != null)
-            API.instance().getStorageDiskManager(world).markForSaving();
+            API.instance().getStorageDiskManager(world).markForSaving(this);
     }
 }
@@ -0,0 +1,175 @@
+package com.raoulvdberge.refinedstorage.apiimpl.storage.disk;
+
+import com.raoulvdberge.refinedstorage.api.util.StackListEntry;
+import com.raoulvdberge.refinedstorage.util.StackUtils;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.Unpooled;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraft.nbt.CompressedStreamTools;
+import net.minecraft.nbt.NBTSizeTracker;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.util.ResourceLocation;
+import net.minecraftforge.fml.common.network.ByteBufUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * The compact format of the contents of an item storage disk.
+ * <p>
+ * Instead of a compound tag per entry, the disk is written as one byte array: a palette of the registry names of all
+ * items on the disk, the distinct NBT of the stacks, and then every entry as palette index, damage, NBT index and
+ * count, all as varints.
+ */
+public final class StorageDiskItemEncoding {
+    public static final int VERSION = 1;
+
+    private static final String NBT_TAG = "Tag";
+    private static final String NBT_CAPS = "Caps";
+
+    private StorageDiskItemEncoding() {
+    }
+
+    /**
+     * @param entries the entries of the disk
+     * @return the encoded entries
+     */
+    public static byte[] encode(Collection<StackListEntry<ItemStack>> entries) {
+        Object2IntMap<Item> palette = new Object2IntOpenHashMap<>();
+        List<Item> items = new ArrayList<>();
+
+        Object2IntMap<NBTTagCompound> blobs = new Object2IntOpenHashMap<>();
+        List<NBTTagCompound> blobList = new ArrayList<>();
+
+        ByteBuf entriesBuf = Unpooled.buffer();
+        ByteBufUtils.writeVarInt(entriesBuf, entries.size(), 5);
+
+        for (StackListEntry<ItemStack> entry : entries) {
+            ItemStack stack = entry.getStack();
+
+            int item = palette.computeIfAbsent(stack.getItem(), k -> {
+                items.add(stack.getItem());
+
+                return items.size() - 1;
+            });
+
+            // 0 means the stack has no NBT
+            int blob = 0;
+
+            NBTTagCompound blobTag = createBlob(stack);
+            if (blobTag != null) {
+                blob = blobs.computeIfAbsent(blobTag, k -> {
+                    blobList.add(blobTag);
+
+                    return blobList.size();
+                });
+            }
+
+            ByteBufUtils.writeVarInt(entriesBuf, item, 5);
+            ByteBufUtils.writeVarInt(entriesBuf, stack.getItemDamage(), 5);
+            ByteBufUtils.writeVarInt(entriesBuf, blob, 5);
+            StackUtils.writeVarLong(entriesBuf, entry.getCount());
+        }
+
+        ByteBuf buf = Unpooled.buffer(entriesBuf.readableBytes() + items.size() * 24);
+
+        ByteBufUtils.writeVarInt(buf, items.size(), 5);
+        for (Item item : items) {
+            ByteBufUtils.writeUTF8String(buf, item.getRegistryName().toString());
+        }
+
+        ByteBufUtils.writeVarInt(buf, blobList.size(), 5);
+        try (ByteBufOutputStream out = new ByteBufOutputStream(buf)) {
+            for (NBTTagCompound blob : blobList) {
+                CompressedStreamTools.write(blob, out);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not write stack NBT", e);
+        }
+
+        buf.writeBytes(entriesBuf);
+
+        byte[] encoded = new byte[buf.readableBytes()];
+        buf.readBytes(encoded);
+
+        return encoded;
+    }
+
+    /**
+     * Entries of items that are no longer registered are skipped.
+     *
+     * @param encoded  the encoded entries
+     * @param consumer receives every stack with its count
+     */
+    public static void decode(byte[] encoded, ObjLongConsumer<ItemStack> consumer) {
+        ByteBuf buf = Unpooled.wrappedBuffer(encoded);
+
+        Item[] items = new Item[ByteBufUtils.readVarInt(buf, 5)];
+        for (int i = 0; i < items.length; ++i) {
+            items[i] = Item.REGISTRY.getObject(new ResourceLocation(ByteBufUtils.readUTF8String(buf)));
+        }
+
+        NBTTagCompound[] blobs = new NBTTagCompound[ByteBufUtils.readVarInt(buf, 5)];
+        try (ByteBufInputStream in = new ByteBufInputStream(buf)) {
+            for (int i = 0; i < blobs.length; ++i) {
+                blobs[i] = CompressedStreamTools.read(in, NBTSizeTracker.INFINITE);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not read stack NBT", e);
+        }
+
+        int entries = ByteBufUtils.readVarInt(buf, 5);
+
+        for (int i = 0; i < entries; ++i) {
+            Item item = items[ByteBufUtils.readVarInt(buf, 5)];
+            int damage = ByteBufUtils.readVarInt(buf, 5);
+            int blob = ByteBufUtils.readVarInt(buf, 5);
+            long count = StackUtils.readVarLong(buf);
+
+            if (item == null) {
+                continue;
+            }
+
+            NBTTagCompound blobTag = blob == 0 ? null : blobs[blob - 1];
+
+            ItemStack stack = new ItemStack(item, 1, damage,
+                    blobTag != null && blobTag.hasKey(NBT_CAPS) ? blobTag.getCompoundTag(NBT_CAPS) : null);
+
+            if (blobTag != null && blobTag.hasKey(NBT_TAG)) {
+                stack.setTagCompound(blobTag.getCompoundTag(NBT_TAG));
+            }
+
+            if (!stack.isEmpty()) {
+                consumer.accept(stack, count);
+            }
+        }
+    }
+
+    private static NBTTagCompound createBlob(ItemStack stack) {
+        NBTTagCompound caps = stack.writeToNBT(new NBTTagCompound()).getCompoundTag("ForgeCaps");
+
+        if (!stack.hasTagCompound() && caps.isEmpty()) {
+            return null;
+        }
+
+        NBTTagCompound blob = new NBTTagCompound();
+
+        if (stack.hasTagCompound()) {
+            blob.setTag(NBT_TAG, stack.getTagCompound());
+        }
+
+        if (!caps.isEmpty()) {
+            blob.setTag(NBT_CAPS, caps);
+        }
+
+        return blob;
+    }
+}
@@ -1,44 +1,159 @@
 package com.raoulvdberge.refinedstorage.apiimpl.storage.disk;
 
+import com.raoulvdberge.refinedstorage.RS;
 import com.raoulvdberge.refinedstorage.api.storage.disk.IStorageDisk;
 import com.raoulvdberge.refinedstorage.api.storage.disk.IStorageDiskFactory;
 import com.raoulvdberge.refinedstorage.api.storage.disk.IStorageDiskManager;
 import com.raoulvdberge.refinedstorage.api.storage.disk.IStorageDiskProvider;
 import com.raoulvdberge.refinedstorage.apiimpl.API;
 import net.minecraft.item.ItemStack;
+import net.minecraft.nbt.CompressedStreamTools;
 import net.minecraft.nbt.NBTTagCompound;
 import net.minecraft.nbt.NBTTagList;
 import net.minecraft.world.World;
 import net.minecraft.world.storage.WorldSavedData;
 import net.minecraftforge.common.util.Constants;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
-import java.util.Map;
-import java.util.UUID;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.ref.WeakReference;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
 
+/**
+ * Stores the storage disks of a world.
+ * <p>
+ * The contents of the disks are split over {@link #SEGMENTS} segment files in the {@link #NAME} directory next to
+ * the data file, by the id of the disk. The data file itself only holds the index of all disks. A changed disk only
+ * marks its own segment for saving, so a save only writes the segments that changed instead of every disk.
+ * Worlds that still use the old format, with all disks in the data file, are converted on the next save.
+ * <p>
+ * Only the index is read when the world loads, a disk is read from its segment the first time it is requested.
+ * Disks that weren't requested or changed for {@link com.raoulvdberge.refinedstorage.RSConfig#storageDiskUnloadMinutes}
+ * are only weakly referenced after a save. A disk that is still used somewhere, like in a Disk Drive, stays the same
+ * instance, all others are garbage collected and read again when requested.
+ */
 public class StorageDiskManager extends WorldSavedData implements IStorageDiskManager {
     public static final String NAME = "refinedstorage_disks";
 
+    private static final Logger LOGGER = LogManager.getLogger(StorageDiskManager.class);
+
+    static final int SEGMENTS = 64;
+
+    private static final int CACHED_SEGMENTS = 4;
+
     private static final String NBT_DISKS = "Disks";
     private static final String NBT_DISK_ID = "Id";
     private static final String NBT_DISK_TYPE = "Type";
     private static final String NBT_DISK_DATA = "Data";
+    private static final String NBT_FORMAT = "Format";
+    private static final String NBT_INDEX = "Index";
+
+    private static final int FORMAT_SEGMENTED = 1;
+
+    /**
+     * The time in milliseconds after which a disk that isn't used is unloaded, 0 or less to keep all disks loaded
+     */
+    private final LongSupplier unloadDelay;
 
     private boolean canReadDisks;
     private NBTTagList disksTag;
+    private boolean segmented;
 
+    @Nullable
+    private World world;
+    @Nullable
+    private File directory;
+
+    /**
+     * The type of every disk, loaded or not.
+     */
+    private final Map<UUID, String> index = new ConcurrentHashMap<>();
     private final ConcurrentHashMap<UUID, IStorageDisk<?>> disks = new ConcurrentHashMap<>();
+    private final Map<UUID, WeakReference<IStorageDisk<?>>> unloaded = new ConcurrentHashMap<>();
+    private final Map<UUID, Long> lastAccess = new ConcurrentHashMap<>();
+    private final Map<IStorageDisk<?>, UUID> ids = Collections.synchronizedMap(new WeakHashMap<>());
+    private final Set<Integer> dirtySegments = ConcurrentHashMap.newKeySet();
+
+    /**
+     * The most recently read segments, a lot of disks of the same segment are requested at once while the world
+     * loads.
+     */
+    private final Map<Integer, Map<UUID, NBTTagCompound>> segmentCache = new LinkedHashMap<Integer, Map<UUID, NBTTagCompound>>(CACHED_SEGMENTS, 0.75F, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Map<UUID, NBTTagCompound>> eldest) {
+            return size() > CACHED_SEGMENTS;
+        }
+    };
 
     public StorageDiskManager(String name) {
+        this(name, () -> RS.INSTANCE.config.storageDiskUnloadMinutes * 60_000L);
+    }
+
+    /**
+     * @param name        the name of the data
+     * @param unloadDelay the time in milliseconds after which a disk that isn't used is unloaded, 0 or less to keep
+     *                    all disks loaded
+     */
+    public StorageDiskManager(String name, LongSupplier unloadDelay) {
         super(name);
+
+        this.unloadDelay = unloadDelay;
     }
 
     @Override
     @Nullable
     public IStorageDisk<?> get(UUID id) {
-        return disks.get(id);
+        IStorageDisk<?> disk = disks.get(id);
+
+        if (disk == null) {
+            if (!index.containsKey(id)) {
+                return null;
+            }
+
+            disk = load(id);
+        }
+
+        if (disk != null) {
+            lastAccess.put(id, System.currentTimeMillis());
+        }
+
+        return disk;
+    }
+
+    @Nullable
+    private synchronized IStorageDisk<?> load(UUID id) {
+        IStorageDisk<?> disk = disks.get(id);
+        if (disk != null) {
+            return disk;
+        }
+
+        WeakReference<IStorageDisk<?>> reference = unloaded.remove(id);
+        if (reference != null && (disk = reference.get()) != null) {
+            disks.put(id, disk);
+
+            return disk;
+        }
+
+        NBTTagCompound diskTag = readSegment(getSegment(id)).get(id);
+        if (diskTag == null) {
+            LOGGER.warn("Storage disk " + id + " is missing from its segment");
+
+            return null;
+        }
+
+        return readDisk(diskTag);
     }
 
     @Nullable
@@ -59,9 +174,18 @@ public class StorageDiskManager extends WorldSavedData implements IStorageDiskMa
 
     @Override
     public Map<UUID, IStorageDisk<?>> getAll() {
+        for (UUID id : index.keySet()) {
+            get(id);
+        }
+
         return disks;
     }
 
+    @Override
+    public Set<UUID> getIds() {
+        return Collections.unmodifiableSet(index.keySet());
+    }
+
     @Override
     public void set(UUID id, IStorageDisk<?> disk) {
         if (id == null) {
@@ -72,11 +196,15 @@ public class StorageDiskManager extends WorldSavedData implements IStorageDiskMa
             throw new IllegalArgumentException("Disk cannot be null");
         }
 
-        if (disks.containsKey(id)) {
+        if (index.containsKey(id)) {
             throw new IllegalArgumentException("Disks already contains id '" + id + "'");
         }
 
+        index.put(id, disk.getId());
         disks.put(id, disk);
+        ids.put(disk, id);
+        lastAccess.put(id, System.currentTimeMillis());
+        dirtySegments.add(getSegment(id));
     }
 
     @Override
@@ -85,7 +213,17 @@ public class StorageDiskManager extends WorldSavedData implements IStorageDiskMa
             throw new IllegalArgumentException("Id cannot be null");
         }
 
+        IStorageDisk<?> disk = getLoaded(id);
+        if (disk != null) {
+            ids.remove(disk);
+        }
+
+        index.remove(id);
         disks.remove(id);
+        unloaded.remove(id);
+        lastAccess.remove(id);
+
+        dirtySegments.add(getSegment(id));
     }
 
     @Override
@@ -93,50 +231,271 @@ public class StorageDiskManager extends WorldSavedData implements IStorageDiskMa
         markDirty();
     }
 
+    @Override
+    public void markForSaving(IStorageDisk<?> disk) {
+        UUID id = ids.get(disk);
+
+        if (id != null) {
+            // A disk that is still used after it was unloaded is loaded again
+            if (disks.putIfAbsent(id, disk) == null) {
+                unloaded.remove(id);
+            }
+
+            lastAccess.put(id, System.currentTimeMillis());
+            dirtySegments.add(getSegment(id));
+        }
+
+        markDirty();
+    }
+
     @Override
     public void readFromNBT(NBTTagCompound tag) {
         if (tag.hasKey(NBT_DISKS)) {
             this.disksTag = tag.getTagList(NBT_DISKS, Constants.NBT.TAG_COMPOUND);
+            this.segmented = false;
+            this.canReadDisks = true;
+        } else if (tag.getInteger(NBT_FORMAT) == FORMAT_SEGMENTED) {
+            this.disksTag = tag.getTagList(NBT_INDEX, Constants.NBT.TAG_COMPOUND);
+            this.segmented = true;
             this.canReadDisks = true;
         }
     }
 
     public void tryReadDisks(World world) {
+        if (this.world == null) {
+            this.world = world;
+            this.directory = new File(world.getSaveHandler().getMapFileFromName(NAME).getParentFile(), NAME);
+        }
+
         if (this.canReadDisks) {
             this.canReadDisks = false;
 
-            for (int i = 0; i < disksTag.tagCount(); ++i) {
-                NBTTagCompound diskTag = disksTag.getCompoundTagAt(i);
+            if (segmented) {
+                for (int i = 0; i < disksTag.tagCount(); ++i) {
+                    NBTTagCompound diskTag = disksTag.getCompoundTagAt(i);
 
-                UUID id = diskTag.getUniqueId(NBT_DISK_ID);
-                NBTTagCompound data = diskTag.getCompoundTag(NBT_DISK_DATA);
-                String type = diskTag.getString(NBT_DISK_TYPE);
+                    index.put(diskTag.getUniqueId(NBT_DISK_ID), diskTag.getString(NBT_DISK_TYPE));
+                }
+            } else {
+                for (int i = 0; i < disksTag.tagCount(); ++i) {
+                    readDisk(disksTag.getCompoundTagAt(i));
+                }
 
-                IStorageDiskFactory<?> factory = API.instance().getStorageDiskRegistry().get(type);
-                if (factory != null) {
-                    disks.put(id, factory.createFromNbt(world, data));
+                // Convert to the segmented format on the next save
+                for (int segment = 0; segment < SEGMENTS; ++segment) {
+                    dirtySegments.add(segment);
                 }
+
+                markDirty();
             }
+
+            this.disksTag = null;
         }
     }
 
+    @Nullable
+    private IStorageDisk<?> readDisk(NBTTagCompound diskTag) {
+        UUID id = diskTag.getUniqueId(NBT_DISK_ID);
+        NBTTagCompound data = diskTag.getCompoundTag(NBT_DISK_DATA);
+        String type = diskTag.getString(NBT_DISK_TYPE);
+
+        IStorageDiskFactory<?> factory = API.instance().getStorageDiskRegistry().get(type);
+        if (factory == null) {
+            return null;
+        }
+
+        IStorageDisk<?> disk = factory.createFromNbt(world, data);
+
+        index.put(id, type);
+        disks.put(id, disk);
+        ids.put(disk, id);
+        lastAccess.put(id, System.currentTimeMillis());
+
+        return disk;
+    }
+
     @Nonnull
     @Override
     public NBTTagCompound writeToNBT(@Nonnull NBTTagCompound tag) {
-        NBTTagList tagList = new NBTTagList();
+        if (directory == null) {
+            throw new IllegalStateException("Storage disks are saved before they were read");
+        }
+
+        // The segments are written first, a disk that is in a segment but not in the index is ignored when reading
+        for (Iterator<Integer> it = dirtySegments.iterator(); it.hasNext(); ) {
+            int segment = it.next();
+
+            it.remove();
+
+            try {
+                writeSegment(segment);
+            } catch (IOException e) {
+                LOGGER.error("Could not save storage disk segment " + segment, e);
 
-        for (Map.Entry<UUID, IStorageDisk<?>> entry : this.disks.entrySet()) {
+                dirtySegments.add(segment);
+            }
+        }
+
+        unloadInactive();
+
+        NBTTagList indexTag = new NBTTagList();
+
+        for (Map.Entry<UUID, String> entry : this.index.entrySet()) {
             NBTTagCompound diskTag = new NBTTagCompound();
 
             diskTag.setUniqueId(NBT_DISK_ID, entry.getKey());
-            diskTag.setTag(NBT_DISK_DATA, entry.getValue().writeToNbt());
-            diskTag.setString(NBT_DISK_TYPE, entry.getValue().getId());
+            diskTag.setString(NBT_DISK_TYPE, entry.getValue());
 
-            tagList.appendTag(diskTag);
+            indexTag.appendTag(diskTag);
         }
 
-        tag.setTag(NBT_DISKS, tagList);
+        tag.setInteger(NBT_FORMAT, FORMAT_SEGMENTED);
+        tag.setTag(NBT_INDEX, indexTag);
 
         return tag;
     }
+
+    private void unloadInactive() {
+        unloaded.values().removeIf(reference -> reference.get() == null);
+
+        long delay = unloadDelay.getAsLong();
+        if (delay <= 0) {
+            return;
+        }
+
+        long threshold = System.currentTimeMillis() - delay;
+
+        for (Iterator<Map.Entry<UUID, IStorageDisk<?>>> it = disks.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<UUID, IStorageDisk<?>> entry = it.next();
+
+            // Disks of segments that failed to save are kept, they are the only copy of the changes
+            if (lastAccess.getOrDefault(entry.getKey(), 0L) < threshold && !dirtySegments.contains(getSegment(entry.getKey()))) {
+                unloaded.put(entry.getKey(), new WeakReference<>(entry.getValue()));
+                lastAccess.remove(entry.getKey());
+
+                it.remove();
+            }
+        }
+    }
+
+    private synchronized void writeSegment(int segment) throws IOException {
+        NBTTagList segmentDisks = new NBTTagList();
+        Map<UUID, NBTTagCompound> previous = null;
+
+        for (Map.Entry<UUID, String> entry : this.index.entrySet()) {
+            if (getSegment(entry.getKey()) != segment) {
+                continue;
+            }
+
+            IStorageDisk<?> disk = getLoaded(entry.getKey());
+
+            if (disk != null) {
+                NBTTagCompound diskTag = new NBTTagCompound();
+
+                diskTag.setUniqueId(NBT_DISK_ID, entry.getKey());
+                diskTag.setTag(NBT_DISK_DATA, disk.writeToNbt());
+                diskTag.setString(NBT_DISK_TYPE, disk.getId());
+
+                segmentDisks.appendTag(diskTag);
+            } else {
+                // Disks that aren't loaded didn't change, copy them from the current segment
+                if (previous == null) {
+                    previous = segmentCache.containsKey(segment) ? segmentCache.get(segment) : readSegmentFile(segment);
+                }
+
+                NBTTagCompound diskTag = previous.get(entry.getKey());
+                if (diskTag != null) {
+                    segmentDisks.appendTag(diskTag);
+                }
+            }
+        }
+
+        segmentCache.remove(segment);
+
+        File file = getSegmentFile(segment);
+
+        if (segmentDisks.tagCount() == 0) {
+            Files.deleteIfExists(file.toPath());
+
+            return;
+        }
+
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Could not create " + directory);
+        }
+
+        NBTTagCompound tag = new NBTTagCompound();
+        tag.setTag(NBT_DISKS, segmentDisks);
+
+        // Write to a temporary file first, so a crash during saving doesn't leave a broken segment behind
+        File tmp = new File(directory, file.getName() + ".tmp");
+
+        try (OutputStream out = new FileOutputStream(tmp)) {
+            CompressedStreamTools.writeCompressed(tag, out);
+        }
+
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Nullable
+    private IStorageDisk<?> getLoaded(UUID id) {
+        IStorageDisk<?> disk = disks.get(id);
+
+        if (disk == null) {
+            WeakReference<IStorageDisk<?>> reference = unloaded.get(id);
+
+            if (reference != null) {
+                disk = reference.get();
+            }
+        }
+
+        return disk;
+    }
+
+    private synchronized Map<UUID, NBTTagCompound> readSegment(int segment) {
+        Map<UUID, NBTTagCompound> cached = segmentCache.get(segment);
+        if (cached != null) {
+            return cached;
+        }
+
+        try {
+            Map<UUID, NBTTagCompound> segmentDisks = readSegmentFile(segment);
+
+            segmentCache.put(segment, segmentDisks);
+
+            return segmentDisks;
+        } catch (IOException e) {
+            LOGGER.error("Could not read storage disk segment " + segment, e);
+
+            return Collections.emptyMap();
+        }
+    }
+
+    private Map<UUID, NBTTagCompound> readSegmentFile(int segment) throws IOException {
+        Map<UUID, NBTTagCompound> segmentDisks = new HashMap<>();
+
+        File file = getSegmentFile(segment);
+
+        if (file.exists()) {
+            try (InputStream in = new FileInputStream(file)) {
+                NBTTagList list = CompressedStreamTools.readCompressed(in).getTagList(NBT_DISKS, Constants.NBT.TAG_COMPOUND);
+
+                for (int i = 0; i < list.tagCount(); ++i) {
+                    NBTTagCompound diskTag = list.getCompoundTagAt(i);
+
+                    segmentDisks.put(diskTag.getUniqueId(NBT_DISK_ID), diskTag);
+                }
+            }
+        }
+
+        return segmentDisks;
+    }
+
+    private File getSegmentFile(int segment) {
+        return new File(directory, "segment_" + segment + ".dat");
+    }
+
+    static int getSegment(UUID id) {
+        return Math.floorMod(id.hashCode(), SEGMENTS);
+    }
 }
@@ -3,11 +3,13 @@ package com.raoulvdberge.refinedstorage.apiimpl.storage.disk.factory;
 import com.raoulvdberge.refinedstorage.api.storage.disk.IStorageDisk;
 import com.raoulvdberge.refinedstorage.api.storage.disk.IStorageDiskFactory;
 import com.raoulvdberge.refinedstorage.apiimpl.storage.disk.StorageDiskItem;
+import com.raoulvdberge.refinedstorage.apiimpl.storage.disk.StorageDiskItemEncoding;
 import com.raoulvdberge.refinedstorage.util.StackUtils;
 import net.minecraft.item.ItemStack;
 import net.minecraft.nbt.NBTTagCompound;
 import net.minecraft.nbt.NBTTagList;
 import net.minecraft.world.World;
+import net.minecraftforge.common.util.Constants;
 
 public class StorageDiskFactoryItem implements IStorageDiskFactory<ItemStack> {
     public static final String ID = "normal_item";
@@ -16,7 +18,20 @@ public class StorageDiskFactoryItem implements IStorageDiskFactory<ItemStack> {
     public IStorageDisk<ItemStack> createFromNbt(World world, NBTTagCompound tag) {
         StorageDiskItem disk = new StorageDiskItem(world, tag.getLong(StorageDiskItem.NBT_CAPACITY));
 
-        NBTTagList list = (NBTTagList) tag.getTag(StorageDiskItem.NBT_ITEMS);
+        if (tag.hasKey(StorageDiskItem.NBT_COMPACT_ITEMS)) {
+            if (tag.getInteger(StorageDiskItem.NBT_FORMAT) > StorageDiskItemEncoding.VERSION) {
+                throw new IllegalStateException("Storage disk was saved in an unknown format " + tag.getInteger(StorageDiskItem.NBT_FORMAT));
+            }
+
+            StorageDiskItemEncoding.decode(tag.getByteArray(StorageDiskItem.NBT_COMPACT_ITEMS), disk::putRaw);
+
+            disk.calculateStoredAmount();
+
+            return disk;
+        }
+
+        // Disks saved before the compact format, they are written in the compact format on the next save
+        NBTTagList list = tag.getTagList(StorageDiskItem.NBT_ITEMS, Constants.NBT.TAG_COMPOUND);
 
         for (int i = 0; i < list.tagCount(); ++i) {
             NBTTagCompound stackTag = list.getCompoundTagAt(i);
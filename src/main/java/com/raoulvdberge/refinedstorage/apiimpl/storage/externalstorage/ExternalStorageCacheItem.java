@@ -1,7 +1,11 @@
 package com.raoulvdberge.refinedstorage.apiimpl.storage.externalstorage;
 
+import com.raoulvdberge.refinedstorage.RS;
 import com.raoulvdberge.refinedstorage.api.network.INetwork;
+import com.raoulvdberge.refinedstorage.api.storage.externalstorage.IExternalStorageChangeCounter;
 import com.raoulvdberge.refinedstorage.apiimpl.API;
+import it.unimi.dsi.fastutil.ints.IntCollection;
+import it.unimi.dsi.fastutil.ints.IntIterator;
 import net.minecraft.item.ItemStack;
 import net.minecraftforge.items.IItemHandler;
 
@@ -9,9 +13,30 @@ import javax.annotation.Nullable;
 import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * Mirrors the contents of an external item handler and submits the differences to the network storage cache.
+ * <p>
+ * Handlers implementing {@link IExternalStorageChangeCounter} are only compared when their change count moved. Other
+ * handlers are compared in passes of {@link com.raoulvdberge.refinedstorage.RSConfig#externalStorageScanWindow} slots
+ * per tick, the pause between two passes doubles every time a pass finds no changes.
+ * <p>
+ * Slots the network itself modified are compared right away. Scanning can't be skipped for a plain handler just because
+ * only the network seems to write to it: hoppers, pipes, players and other networks change inventories without
+ * telling anyone, so only the handler can vouch for that through its change count.
+ */
 public class ExternalStorageCacheItem {
     private List<ItemStack> cache;
 
+    private int cursor;
+    private int interval = 1;
+    private int ticksUntilPass;
+    private boolean changedDuringPass;
+    private long lastChangeCount;
+
+    private long scannedSlots;
+    private long skippedTicks;
+    private long scanNanos;
+
     public void update(INetwork network, @Nullable IItemHandler handler) {
         if (handler == null) {
             return;
@@ -24,64 +49,195 @@ public class ExternalStorageCacheItem {
                 cache.add(handler.getStackInSlot(i).copy());
             }
 
+            if (handler instanceof IExternalStorageChangeCounter) {
+                lastChangeCount = ((IExternalStorageChangeCounter) handler).getChangeCount();
+            }
+
             return;
         }
 
-        for (int i = 0; i < handler.getSlots(); ++i) {
-            ItemStack actual = handler.getStackInSlot(i);
+        long start = System.nanoTime();
+
+        if (handler instanceof IExternalStorageChangeCounter) {
+            long changeCount = ((IExternalStorageChangeCounter) handler).getChangeCount();
+
+            if (changeCount == lastChangeCount) {
+                skippedTicks++;
+
+                return;
+            }
+
+            lastChangeCount = changeCount;
+
+            scanAll(network, handler);
+        } else {
+            if (cursor == 0 && ticksUntilPass > 0) {
+                ticksUntilPass--;
+                skippedTicks++;
+
+                return;
+            }
+
+            boolean changed;
+
+            if (cache.size() != handler.getSlots()) {
+                changed = scanAll(network, handler);
+                cursor = 0;
+            } else {
+                int end = Math.min(cache.size(), cursor + RS.INSTANCE.config.externalStorageScanWindow);
+
+                changed = scan(network, handler, cursor, end);
+                cursor = end >= cache.size() ? 0 : end;
+            }
+
+            changedDuringPass |= changed;
 
-            if (i >= cache.size()) { // ENLARGED
-                if (!actual.isEmpty()) {
-                    network.getItemStorageCache().add(actual, actual.getCount(), true);
+            if (changed) {
+                interval = 1;
+            }
 
-                    cache.add(actual.copy());
+            if (cursor == 0) {
+                if (!changedDuringPass) {
+                    interval = Math.min(interval * 2, RS.INSTANCE.config.externalStorageMaxScanInterval);
                 }
 
-                continue;
+                changedDuringPass = false;
+                ticksUntilPass = interval - 1;
             }
+        }
 
-            ItemStack cached = cache.get(i);
+        network.getItemStorageCache().flush();
 
-            if (!cached.isEmpty() && actual.isEmpty()) { // REMOVED
-                network.getItemStorageCache().remove(cached, cached.getCount(), true);
+        scanNanos += System.nanoTime() - start;
+    }
 
-                cache.set(i, ItemStack.EMPTY);
-            } else if (cached.isEmpty() && !actual.isEmpty()) { // ADDED
-                network.getItemStorageCache().add(actual, actual.getCount(), true);
+    /**
+     * Compares only the given slots, used after the network itself modified the handler.
+     * The change count of the handler is taken over, so the modification doesn't cause another scan.
+     *
+     * @param network the network
+     * @param handler the handler
+     * @param slots   the slots that were modified
+     */
+    public void update(INetwork network, @Nullable IItemHandler handler, IntCollection slots) {
+        if (handler == null || cache == null) {
+            update(network, handler);
 
-                cache.set(i, actual.copy());
-            } else if (!API.instance().getComparer().isEqualNoQuantity(cached, actual)) { // CHANGED
-                network.getItemStorageCache().remove(cached, cached.getCount(), true);
-                network.getItemStorageCache().add(actual, actual.getCount(), true);
+            return;
+        }
 
-                cache.set(i, actual.copy());
-            } else if (cached.getCount() != actual.getCount()) { // COUNT_CHANGED
-                int delta = actual.getCount() - cached.getCount();
+        long start = System.nanoTime();
 
-                if (delta > 0) {
-                    network.getItemStorageCache().add(actual, delta, true);
+        if (cache.size() != handler.getSlots()) {
+            scanAll(network, handler);
+        } else {
+            IntIterator it = slots.iterator();
 
-                    cached.grow(delta);
-                } else {
-                    network.getItemStorageCache().remove(actual, Math.abs(delta), true);
+            while (it.hasNext()) {
+                int slot = it.nextInt();
 
-                    cached.shrink(Math.abs(delta));
+                if (slot < cache.size()) {
+                    scanSlot(network, handler, slot);
                 }
             }
         }
 
+        if (handler instanceof IExternalStorageChangeCounter) {
+            lastChangeCount = ((IExternalStorageChangeCounter) handler).getChangeCount();
+        }
+
+        network.getItemStorageCache().flush();
+
+        scanNanos += System.nanoTime() - start;
+    }
+
+    private boolean scanAll(INetwork network, IItemHandler handler) {
+        boolean changed = scan(network, handler, 0, Math.min(cache.size(), handler.getSlots()));
+
+        for (int i = cache.size(); i < handler.getSlots(); ++i) { // ENLARGED
+            ItemStack actual = handler.getStackInSlot(i);
+
+            if (!actual.isEmpty()) {
+                network.getItemStorageCache().add(actual, actual.getCount(), true);
+
+                changed = true;
+            }
+
+            cache.add(actual.copy());
+        }
+
         if (cache.size() > handler.getSlots()) { // SHRUNK
             for (int i = cache.size() - 1; i >= handler.getSlots(); --i) { // Reverse order for the remove call.
                 ItemStack cached = cache.get(i);
 
                 if (!cached.isEmpty()) {
                     network.getItemStorageCache().remove(cached, cached.getCount(), true);
+
+                    changed = true;
                 }
 
                 cache.remove(i);
             }
         }
 
-        network.getItemStorageCache().flush();
+        return changed;
+    }
+
+    private boolean scan(INetwork network, IItemHandler handler, int from, int to) {
+        boolean changed = false;
+
+        for (int i = from; i < to; ++i) {
+            changed |= scanSlot(network, handler, i);
+        }
+
+        return changed;
+    }
+
+    private boolean scanSlot(INetwork network, IItemHandler handler, int slot) {
+        scannedSlots++;
+
+        ItemStack actual = handler.getStackInSlot(slot);
+        ItemStack cached = cache.get(slot);
+
+        if (!cached.isEmpty() && actual.isEmpty()) { // REMOVED
+            network.getItemStorageCache().remove(cached, cached.getCount(), true);
+
+            cache.set(slot, ItemStack.EMPTY);
+        } else if (cached.isEmpty() && !actual.isEmpty()) { // ADDED
+            network.getItemStorageCache().add(actual, actual.getCount(), true);
+
+            cache.set(slot, actual.copy());
+        } else if (cached.isEmpty()) { // BOTH EMPTY
+            return false;
+        } else if (!API.instance().getComparer().isEqualNoQuantity(cached, actual)) { // CHANGED
+            network.getItemStorageCache().remove(cached, cached.getCount(), true);
+            network.getItemStorageCache().add(actual, actual.getCount(), true);
+
+            cache.set(slot, actual.copy());
+        } else if (cached.getCount() != actual.getCount()) { // COUNT_CHANGED
+            int delta = actual.getCount() - cached.getCount();
+
+            if (delta > 0) {
+                network.getItemStorageCache().add(actual, delta, true);
+
+                cached.grow(delta);
+            } else {
+                network.getItemStorageCache().remove(actual, Math.abs(delta), true);
+
+                cached.shrink(Math.abs(delta));
+            }
+        } else {
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * @return a short summary of the scanning work done so far, used for metrics
+     */
+    public String getScanStats() {
+        return String.format("slots=%d, scannedSlots=%d, skippedTicks=%d, scanMs=%.2f, interval=%d",
+            cache == null ? 0 : cache.size(), scannedSlots, skippedTicks, scanNanos / 1_000_000D, interval);
     }
 }
@@ -5,10 +5,12 @@ import com.raoulvdberge.refinedstorage.api.storage.AccessType;
 import com.raoulvdberge.refinedstorage.api.storage.externalstorage.IExternalStorageContext;
 import com.raoulvdberge.refinedstorage.api.storage.externalstorage.IStorageExternal;
 import com.raoulvdberge.refinedstorage.api.util.Action;
+import com.raoulvdberge.refinedstorage.api.util.IComparer;
 import com.raoulvdberge.refinedstorage.api.util.StackListEntry;
 import com.raoulvdberge.refinedstorage.api.util.StackListResult;
 import com.raoulvdberge.refinedstorage.apiimpl.API;
-import com.raoulvdberge.refinedstorage.util.StackUtils;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import it.unimi.dsi.fastutil.ints.IntSet;
 import net.minecraft.item.ItemStack;
 import net.minecraftforge.items.IItemHandler;
 import net.minecraftforge.items.ItemHandlerHelper;
@@ -27,6 +29,10 @@ public class StorageExternalItem implements IStorageExternal<ItemStack> {
     private final Supplier<IItemHandler> handlerSupplier;
     private final boolean connectedToInterface;
     private final ExternalStorageCacheItem cache = new ExternalStorageCacheItem();
+    /**
+     * the slots modified by the network since the last update, these don't need a full scan to be detected
+     */
+    private final IntSet modifiedSlots = new IntOpenHashSet();
 
     public StorageExternalItem(IExternalStorageContext context, Supplier<IItemHandler> handlerSupplier, boolean connectedToInterface) {
         this.context = context;
@@ -44,7 +50,17 @@ public class StorageExternalItem implements IStorageExternal<ItemStack> {
             return;
         }
 
-        cache.update(network, handlerSupplier.get());
+        if (modifiedSlots.isEmpty()) {
+            cache.update(network, handlerSupplier.get());
+        } else {
+            cache.update(network, handlerSupplier.get(), modifiedSlots);
+
+            modifiedSlots.clear();
+        }
+    }
+
+    public ExternalStorageCacheItem getCache() {
+        return cache;
     }
 
     @Override
@@ -97,14 +113,22 @@ public class StorageExternalItem implements IStorageExternal<ItemStack> {
 
         if (handler != null && context.acceptsItem(stack)) {
             //TODO: remove cast
-            ItemStack result = StackUtils.emptyToNull(
-                    ItemHandlerHelper.insertItem(
-                            handler,
-                            ItemHandlerHelper.copyStackWithSize(stack, (int) size),
-                            action == Action.SIMULATE));
-            if (result == null)
+            ItemStack remainder = ItemHandlerHelper.copyStackWithSize(stack, (int) size);
+
+            // Same as ItemHandlerHelper#insertItem, but keeps track of the modified slots
+            for (int i = 0; i < handler.getSlots() && !remainder.isEmpty(); ++i) {
+                int countPre = remainder.getCount();
+
+                remainder = handler.insertItem(i, remainder, action == Action.SIMULATE);
+
+                if (action == Action.PERFORM && remainder.getCount() != countPre) {
+                    modifiedSlots.add(i);
+                }
+            }
+
+            if (remainder.isEmpty())
                 return null;
-            return new StackListResult<>(result, result.getCount());
+            return new StackListResult<>(remainder, remainder.getCount());
         }
 
         return new StackListResult<>(stack.copy(), size);
@@ -136,6 +160,10 @@ public class StorageExternalItem implements IStorageExternal<ItemStack> {
                 boolean shouldLoop = got.getCount() < remaining && got.getCount() != countInSlot;
 
                 while (!got.isEmpty()) {
+                    if (action == Action.PERFORM) {
+                        modifiedSlots.add(i);
+                    }
+
                     if (received == null) {
                         received = got.copy();
                     } else {
@@ -158,6 +186,36 @@ public class StorageExternalItem implements IStorageExternal<ItemStack> {
         return received == null ? null : new StackListResult<>(received, received.getCount());
     }
 
+    /**
+     * {@link #extract(ItemStack, long, int, Action)} merges everything matching into the first stack found, so items
+     * that the flags don't tell apart are taken one at a time. Simulating only reports the first item, as every
+     * simulated extract would find the same one again.
+     */
+    @Nonnull
+    @Override
+    public List<StackListResult<ItemStack>> extractAll(@Nonnull ItemStack stack, long size, int flags, Action action) {
+        int exact = IComparer.COMPARE_NBT | IComparer.COMPARE_DAMAGE;
+
+        if ((flags & exact) == exact) {
+            StackListResult<ItemStack> result = extract(stack, size, flags, action);
+
+            return result == null ? Collections.emptyList() : Collections.singletonList(result);
+        }
+
+        List<StackListResult<ItemStack>> results = new ArrayList<>();
+
+        for (long i = 0; i < (action == Action.SIMULATE ? Math.min(size, 1) : size); ++i) {
+            StackListResult<ItemStack> result = extract(stack, 1, flags, action);
+            if (result == null) {
+                break;
+            }
+
+            results.add(result);
+        }
+
+        return results;
+    }
+
     @Override
     public long getStored() {
         IItemHandler handler = handlerSupplier.get();
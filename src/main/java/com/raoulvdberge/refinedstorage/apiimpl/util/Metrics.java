@@ -0,0 +1,45 @@
+package com.raoulvdberge.refinedstorage.apiimpl.util;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Process-wide registry of named gauges used to expose internal performance figures, see
+ * {@link com.raoulvdberge.refinedstorage.command.CommandMetrics}.
+ */
+public final class Metrics {
+    private static final Map<String, Supplier<Object>> GAUGES = new ConcurrentHashMap<>();
+
+    private Metrics() {
+    }
+
+    /**
+     * Registers a gauge, replacing any gauge that was registered with the same name.
+     *
+     * @param name  the name of the metric
+     * @param gauge supplies the current value, called from the server thread
+     */
+    public static void register(String name, Supplier<Object> gauge) {
+        GAUGES.put(name, gauge);
+    }
+
+    /**
+     * @param name the name of the metric to remove
+     */
+    public static void unregister(String name) {
+        GAUGES.remove(name);
+    }
+
+    /**
+     * @return the current value of every registered metric, sorted by name
+     */
+    public static Map<String, Object> getValues() {
+        Map<String, Object> values = new TreeMap<>();
+
+        GAUGES.forEach((name, gauge) -> values.put(name, gauge.get()));
+
+        return values;
+    }
+}
@@ -1,7 +1,5 @@
 package com.raoulvdberge.refinedstorage.apiimpl.util;
 
-import com.google.common.collect.HashMultimap;
-import com.google.common.collect.Multimap;
 import com.raoulvdberge.refinedstorage.api.util.IComparer;
 import com.raoulvdberge.refinedstorage.api.util.IStackList;
 import com.raoulvdberge.refinedstorage.api.util.StackListEntry;
@@ -18,7 +16,10 @@ import java.util.concurrent.ConcurrentHashMap;
 
 public class StackListItem implements IStackList<ItemStack> {
     private final Map<ItemStackWrapper, StackListEntry<ItemStack>> stacks = new ConcurrentHashMap<>();
-    private final Multimap<Item, ItemStackWrapper> stacksByItem = HashMultimap.create();
+    /**
+     * Concurrent like {@link #stacks}, so other threads can look up the stacks of an item, see {@link #getEntries(Item)}
+     */
+    private final Map<Item, Set<ItemStackWrapper>> stacksByItem = new ConcurrentHashMap<>();
     private final Map<UUID, StackListEntry<ItemStack>> index = new HashMap<>();
 
     private long stored;
@@ -29,9 +30,7 @@ public class StackListItem implements IStackList<ItemStack> {
             throw new IllegalArgumentException("Cannot accept empty stack");
         }
 
-        ItemStackWrapper wrapper = new ItemStackWrapper(stack);
-
-        StackListEntry<ItemStack> entry = stacks.get(wrapper);
+        StackListEntry<ItemStack> entry = stacks.get(ItemStackWrapper.probe(stack));
         if (entry != null) {
             entry.grow(size);
 
@@ -40,11 +39,11 @@ public class StackListItem implements IStackList<ItemStack> {
             return new StackListResult<>(entry.getStack().copy(), entry.getId(), size);
         }
 
-        wrapper.setStack(stack.copy());
+        ItemStackWrapper wrapper = new ItemStackWrapper(stack.copy());
         StackListEntry<ItemStack> newEntry = new StackListEntry<>(wrapper.itemStack, size);
 
         stacks.put(wrapper, newEntry);
-        stacksByItem.put(stack.getItem(), wrapper);
+        stacksByItem.computeIfAbsent(stack.getItem(), k -> ConcurrentHashMap.newKeySet()).add(wrapper);
         index.put(newEntry.getId(), newEntry);
 
         stored += size;
@@ -59,13 +58,13 @@ public class StackListItem implements IStackList<ItemStack> {
 
     @Override
     public StackListResult<ItemStack> remove(@Nonnull ItemStack stack, long size) {
-        ItemStackWrapper wrapper = new ItemStackWrapper(stack);
+        ItemStackWrapper wrapper = ItemStackWrapper.probe(stack);
 
         StackListEntry<ItemStack> entry = stacks.get(wrapper);
         if (entry != null) {
             if (entry.getCount() - size <= 0) {
                 stacks.remove(wrapper);
-                stacksByItem.remove(stack.getItem(), wrapper);
+                removeFromItem(stack.getItem(), wrapper);
                 index.remove(entry.getId());
 
                 stored -= entry.getCount();
@@ -93,14 +92,14 @@ public class StackListItem implements IStackList<ItemStack> {
     public StackListEntry<ItemStack> getEntry(@Nonnull ItemStack stack, int flags) {
         if ((flags & IComparer.COMPARE_NBT) == IComparer.COMPARE_NBT &&
             (flags & IComparer.COMPARE_DAMAGE) == IComparer.COMPARE_DAMAGE) {
-            StackListEntry<ItemStack> entry = stacks.get(new ItemStackWrapper(stack));
+            StackListEntry<ItemStack> entry = stacks.get(ItemStackWrapper.probe(stack));
             if (entry == null)
                 return null;
 
             return entry.asUnmodifiable();
         }
 
-        for (ItemStackWrapper key : stacksByItem.get(stack.getItem())) {
+        for (ItemStackWrapper key : stacksByItem.getOrDefault(stack.getItem(), Collections.emptySet())) {
             StackListEntry<ItemStack> entry = stacks.get(key);
 
             if (API.instance().getComparer().isEqual(entry.getStack(), stack, flags)) {
@@ -111,6 +110,43 @@ public class StackListItem implements IStackList<ItemStack> {
         return null;
     }
 
+    /**
+     * Can be called from another thread than the one modifying this list, changes that happen meanwhile may or may not
+     * be visible.
+     *
+     * @param item the item
+     * @return the entries of all stacks of the item
+     */
+    public List<StackListEntry<ItemStack>> getEntries(@Nonnull Item item) {
+        Set<ItemStackWrapper> keys = stacksByItem.get(item);
+        if (keys == null) {
+            return Collections.emptyList();
+        }
+
+        List<StackListEntry<ItemStack>> entries = new ArrayList<>(keys.size());
+        for (ItemStackWrapper key : keys) {
+            StackListEntry<ItemStack> entry = stacks.get(key);
+
+            //removed in the meantime
+            if (entry != null) {
+                entries.add(entry.asUnmodifiable());
+            }
+        }
+
+        return entries;
+    }
+
+    private void removeFromItem(Item item, ItemStackWrapper wrapper) {
+        Set<ItemStackWrapper> keys = stacksByItem.get(item);
+        if (keys != null) {
+            keys.remove(wrapper);
+
+            if (keys.isEmpty()) {
+                stacksByItem.remove(item);
+            }
+        }
+    }
+
     @Nullable
     @Override
     public ItemStack get(@Nonnull ItemStack stack, int flags) {
@@ -155,7 +191,7 @@ public class StackListItem implements IStackList<ItemStack> {
             Map.Entry<ItemStackWrapper, StackListEntry<ItemStack>> entry = iterator.next();
             StackListEntry<ItemStack> stackListEntry = entry.getValue();
             if (stackListEntry.getCount() < 1) {
-                stacksByItem.remove(stackListEntry.getStack().getItem(), entry.getKey());
+                removeFromItem(stackListEntry.getStack().getItem(), entry.getKey());
                 index.remove(stackListEntry.getId());
                 iterator.remove();
             }
@@ -188,8 +224,9 @@ public class StackListItem implements IStackList<ItemStack> {
             ItemStack newStack = entry.getValue().getStack().copy();
 
             StackListEntry<ItemStack> newEntry = new StackListEntry<>(entry.getValue().getId(), newStack, entry.getValue().getCount());
-            list.stacks.put(new ItemStackWrapper(newStack), newEntry);
-            list.stacksByItem.put(newStack.getItem(), new ItemStackWrapper(newStack));
+            ItemStackWrapper wrapper = new ItemStackWrapper(newStack);
+            list.stacks.put(wrapper, newEntry);
+            list.stacksByItem.computeIfAbsent(newStack.getItem(), k -> ConcurrentHashMap.newKeySet()).add(wrapper);
             list.index.put(entry.getValue().getId(), newEntry);
 
             list.stored += newEntry.getCount();
@@ -199,23 +236,43 @@ public class StackListItem implements IStackList<ItemStack> {
     }
 
     public static final class ItemStackWrapper {
-        private final int hashCode;
+        /**
+         * Reusable per-thread key used for lookups only, see {@link #probe(ItemStack)}
+         */
+        private static final ThreadLocal<ItemStackWrapper> PROBE = ThreadLocal.withInitial(() -> new ItemStackWrapper(ItemStack.EMPTY));
+
+        private int hashCode;
         private ItemStack itemStack;
 
         public ItemStackWrapper(ItemStack template) {
             this.itemStack = template;
+            this.hashCode = hash(template);
+        }
+
+        /**
+         * Returns a thread-confined wrapper around the given stack without allocating a new key. The returned instance
+         * is re-used by the next call on the same thread, so it must only be used to query maps and must never be
+         * stored as a key.
+         *
+         * @param template the stack to look up
+         * @return the shared lookup key
+         */
+        public static ItemStackWrapper probe(ItemStack template) {
+            ItemStackWrapper wrapper = PROBE.get();
+            wrapper.itemStack = template;
+            wrapper.hashCode = hash(template);
+            return wrapper;
+        }
+
+        private static int hash(ItemStack template) {
+            NBTTagCompound nbt = template.getTagCompound();
 
-            boolean isEmpty = template.isEmpty();
-            Item item = template.getItem();
-            NBTTagCompound originalNbt = template.getTagCompound();
-            NBTTagCompound nbt = originalNbt == null || originalNbt.isEmpty() ? null : originalNbt.copy();
-
-            int hashCode1;
-            hashCode1 = 31 + Boolean.hashCode(isEmpty);
-            hashCode1 = 31 * hashCode1 + item.hashCode();
-            hashCode1 = 31 * hashCode1 + (nbt == null ? 0 : nbt.hashCode());
-            hashCode1 = 31 * hashCode1 + template.getItemDamage();
-            hashCode = hashCode1;
+            int hashCode;
+            hashCode = 31 + Boolean.hashCode(template.isEmpty());
+            hashCode = 31 * hashCode + template.getItem().hashCode();
+            hashCode = 31 * hashCode + (nbt == null || nbt.isEmpty() ? 0 : nbt.hashCode());
+            hashCode = 31 * hashCode + template.getItemDamage();
+            return hashCode;
         }
 
         public void setStack(ItemStack itemStack) {
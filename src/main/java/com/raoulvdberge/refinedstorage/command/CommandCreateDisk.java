@@ -86,7 +86,7 @@ public class CommandCreateDisk extends CommandBase {
         } else if (args.length == 2) {
             return getListOfStringsMatchingLastWord(args, Item.REGISTRY.getKeys());
         } else if (args.length == 4) {
-            return getListOfStringsMatchingLastWord(args, API.instance().getStorageDiskManager(sender.getEntityWorld()).getAll().keySet().stream().map(UUID::toString).collect(Collectors.toList()));
+            return getListOfStringsMatchingLastWord(args, API.instance().getStorageDiskManager(sender.getEntityWorld()).getIds().stream().map(UUID::toString).collect(Collectors.toList()));
         }
 
         return Collections.emptyList();
@@ -0,0 +1,49 @@
+package com.raoulvdberge.refinedstorage.command;
+
+import com.raoulvdberge.refinedstorage.apiimpl.util.Metrics;
+import net.minecraft.command.CommandBase;
+import net.minecraft.command.ICommandSender;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.util.text.TextComponentString;
+import net.minecraft.util.text.TextComponentTranslation;
+
+import javax.annotation.Nonnull;
+import java.util.Map;
+
+public class CommandMetrics extends CommandBase {
+    @Nonnull
+    @Override
+    public String getName() {
+        return "rsmetrics";
+    }
+
+    @Nonnull
+    @Override
+    public String getUsage(@Nonnull ICommandSender sender) {
+        return "commands.refinedstorage.rsmetrics.usage";
+    }
+
+    @Override
+    public int getRequiredPermissionLevel() {
+        return 2;
+    }
+
+    @Override
+    public void execute(@Nonnull MinecraftServer server, @Nonnull ICommandSender sender, String[] args) {
+        String prefix = args.length > 0 ? args[0] : "";
+
+        boolean any = false;
+
+        for (Map.Entry<String, Object> metric : Metrics.getValues().entrySet()) {
+            if (metric.getKey().startsWith(prefix)) {
+                sender.sendMessage(new TextComponentString(metric.getKey() + ": " + metric.getValue()));
+
+                any = true;
+            }
+        }
+
+        if (!any) {
+            sender.sendMessage(new TextComponentTranslation("commands.refinedstorage.rsmetrics.none"));
+        }
+    }
+}
@@ -15,9 +15,19 @@ import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
 public class ContainerCraftingMonitor extends ContainerBase implements ICraftingMonitorListener {
+    /**
+     * Changes are sent at most this often, the progress of the tasks is refreshed at {@link #REFRESH_INTERVAL}
+     */
+    private static final int UPDATE_INTERVAL = 5;
+    private static final int REFRESH_INTERVAL = 20;
+
     private final ICraftingMonitor craftingMonitor;
     private boolean addedListener;
 
+    private final MessageCraftingMonitorElements.Baseline baseline = new MessageCraftingMonitorElements.Baseline();
+    private boolean changed;
+    private int ticksSinceUpdate;
+
     public ContainerCraftingMonitor(ICraftingMonitor craftingMonitor, @Nullable TileCraftingMonitor craftingMonitorTile, EntityPlayer player) {
         super(craftingMonitorTile, player);
 
@@ -37,6 +47,12 @@ public class ContainerCraftingMonitor extends ContainerBase implements ICrafting
             } else if (manager == null && addedListener) {
                 this.addedListener = false;
             }
+
+            ticksSinceUpdate++;
+
+            if (addedListener && ((changed && ticksSinceUpdate >= UPDATE_INTERVAL) || ticksSinceUpdate >= REFRESH_INTERVAL)) {
+                sendUpdate(ticksSinceUpdate >= REFRESH_INTERVAL);
+            }
         }
     }
 
@@ -90,11 +106,24 @@ public class ContainerCraftingMonitor extends ContainerBase implements ICrafting
 
     @Override
     public void onAttached() {
-        onChanged();
+        baseline.reset();
+
+        sendUpdate(true);
     }
 
     @Override
     public void onChanged() {
-        RS.INSTANCE.network.sendTo(new MessageCraftingMonitorElements(craftingMonitor), (EntityPlayerMP) getPlayer());
+        this.changed = true;
+    }
+
+    private void sendUpdate(boolean force) {
+        byte[] encoded = MessageCraftingMonitorElements.encode(craftingMonitor.getTasks(), baseline, force);
+
+        if (encoded != null) {
+            RS.INSTANCE.network.sendTo(new MessageCraftingMonitorElements(encoded), (EntityPlayerMP) getPlayer());
+        }
+
+        this.changed = false;
+        this.ticksSinceUpdate = 0;
     }
 }
@@ -79,6 +79,22 @@ public class GuiCraftingMonitor extends GuiBase {
             this.elements = elements;
         }
 
+        public UUID getId() {
+            return id;
+        }
+
+        public ICraftingRequestInfo getRequested() {
+            return requested;
+        }
+
+        public long getQuantity() {
+            return qty;
+        }
+
+        public List<ICraftingMonitorElement> getElements() {
+            return elements;
+        }
+
         @Override
         @Nullable
         public List<IFilter<?>> getFilters() {
@@ -181,6 +197,10 @@ public class GuiCraftingMonitor extends GuiBase {
         this.tasks = tasks;
     }
 
+    public List<IGridTab> getTasks() {
+        return tasks;
+    }
+
     public List<ICraftingMonitorElement> getElements() {
         if (!craftingMonitor.isActive()) {
             return Collections.emptyList();
@@ -302,10 +322,13 @@ public class GuiCraftingMonitor extends GuiBase {
             if (item < getElements().size()) {
                 ICraftingMonitorElement element = getElements().get(item);
 
-                element.draw(x, y, drawers);
+                //elements the client can't read are kept as empty positions
+                if (element != null) {
+                    element.draw(x, y, drawers);
 
-                if (inBounds(x, y, ITEM_WIDTH, ITEM_HEIGHT, mouseX, mouseY)) {
-                    itemSelectedTooltip = element.getTooltip();
+                    if (inBounds(x, y, ITEM_WIDTH, ITEM_HEIGHT, mouseX, mouseY)) {
+                        itemSelectedTooltip = element.getTooltip();
+                    }
                 }
 
                 if ((i + 1) % 3 == 0) {
@@ -13,6 +13,6 @@ public class GridFilterName implements Predicate<IGridStack> {
 
     @Override
     public boolean test(IGridStack stack) {
-        return stack.getName().toLowerCase().contains(name);
+        return stack.getSearchData().getName().contains(name);
     }
 }
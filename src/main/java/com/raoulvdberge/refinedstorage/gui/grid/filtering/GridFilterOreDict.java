@@ -2,7 +2,6 @@ package com.raoulvdberge.refinedstorage.gui.grid.filtering;
 
 import com.raoulvdberge.refinedstorage.gui.grid.stack.IGridStack;
 
-import java.util.Arrays;
 import java.util.function.Predicate;
 
 public class GridFilterOreDict implements Predicate<IGridStack> {
@@ -14,6 +13,12 @@ public class GridFilterOreDict implements Predicate<IGridStack> {
 
     @Override
     public boolean test(IGridStack stack) {
-        return Arrays.stream(stack.getOreIds()).anyMatch(s -> s.toLowerCase().contains(this.oreName));
+        for (String oreId : stack.getSearchData().getOreIds()) {
+            if (oreId.contains(this.oreName)) {
+                return true;
+            }
+        }
+
+        return false;
     }
 }
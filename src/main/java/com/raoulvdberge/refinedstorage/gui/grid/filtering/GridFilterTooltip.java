@@ -13,14 +13,8 @@ public class GridFilterTooltip implements Predicate<IGridStack> {
 
     @Override
     public boolean test(IGridStack stack) {
-        String otherTooltip = stack.getTooltip(true).trim().toLowerCase();
+        String otherTooltip = stack.getSearchData().getTooltip(); // Without the first line as that states the item name
 
-        if (!otherTooltip.contains("\n")) {
-            return false;
-        }
-
-        otherTooltip = otherTooltip.substring(otherTooltip.indexOf('\n') + 1); // Remove the first line as that states the item name
-
-        return otherTooltip.contains(tooltip);
+        return otherTooltip != null && otherTooltip.contains(tooltip);
     }
 }
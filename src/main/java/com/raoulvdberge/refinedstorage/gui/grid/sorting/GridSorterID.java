@@ -2,8 +2,6 @@ package com.raoulvdberge.refinedstorage.gui.grid.sorting;
 
 import com.raoulvdberge.refinedstorage.api.network.grid.IGrid;
 import com.raoulvdberge.refinedstorage.gui.grid.stack.IGridStack;
-import net.minecraft.item.Item;
-import net.minecraft.item.ItemStack;
 
 public class GridSorterID implements IGridSorter {
     @Override
@@ -13,13 +11,8 @@ public class GridSorterID implements IGridSorter {
 
     @Override
     public int compare(IGridStack left, IGridStack right, GridSorterDirection sortingDirection) {
-        int leftId = 0;
-        int rightId = 0;
-
-        if (left.getIngredient() instanceof ItemStack && right.getIngredient() instanceof ItemStack) {
-            leftId = Item.getIdFromItem(((ItemStack) left.getIngredient()).getItem());
-            rightId = Item.getIdFromItem(((ItemStack) right.getIngredient()).getItem());
-        }
+        int leftId = left.getSortKeys().getId();
+        int rightId = right.getSortKeys().getId();
 
         if (leftId != rightId) {
             if (sortingDirection == GridSorterDirection.DESCENDING) {
@@ -37,4 +37,9 @@ public class GridSorterInventoryTweaks implements IGridSorter {
         return 0;
     }
 
+    @Override
+    public boolean isThreadSafe() {
+        // The Inventory Tweaks API makes no promises about this
+        return false;
+    }
 }
\ No newline at end of file
@@ -11,8 +11,8 @@ public class GridSorterName implements IGridSorter {
 
     @Override
     public int compare(IGridStack left, IGridStack right, GridSorterDirection sortingDirection) {
-        String leftName = left.getName();
-        String rightName = right.getName();
+        String leftName = left.getSortKeys().getName();
+        String rightName = right.getSortKeys().getName();
 
         if (sortingDirection == GridSorterDirection.ASCENDING) {
             return leftName.compareTo(rightName);
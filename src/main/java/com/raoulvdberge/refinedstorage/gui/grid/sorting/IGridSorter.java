@@ -7,4 +7,11 @@ public interface IGridSorter {
     boolean isApplicable(IGrid grid);
 
     int compare(IGridStack left, IGridStack right, GridSorterDirection direction);
+
+    /**
+     * @return whether or not stacks can be compared from multiple threads at once
+     */
+    default boolean isThreadSafe() {
+        return true;
+    }
 }
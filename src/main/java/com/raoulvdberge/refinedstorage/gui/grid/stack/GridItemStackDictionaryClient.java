@@ -0,0 +1,175 @@
+package com.raoulvdberge.refinedstorage.gui.grid.stack;
+
+import com.raoulvdberge.refinedstorage.api.storage.tracker.StorageTrackerEntry;
+import com.raoulvdberge.refinedstorage.apiimpl.storage.cache.listener.GridItemStackDictionary;
+import com.raoulvdberge.refinedstorage.util.StackUtils;
+import io.netty.buffer.ByteBuf;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import net.minecraft.item.ItemStack;
+import net.minecraftforge.fml.common.network.ByteBufUtils;
+import org.apache.commons.lang3.tuple.Pair;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Client side counterpart of {@link GridItemStackDictionary}, remembers the stacks behind the handles of the grid
+ * that was opened last. Messages are decoded in order on the network thread, which is the only thread using this.
+ */
+public class GridItemStackDictionaryClient {
+    private static final GridItemStackDictionaryClient INSTANCE = new GridItemStackDictionaryClient();
+
+    private int session = -1;
+    private final Int2ObjectMap<Template> templates = new Int2ObjectOpenHashMap<>();
+    private final List<String> names = new ArrayList<>();
+
+    public static GridItemStackDictionaryClient instance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Reads the session from the first page of a full update and forgets all previous handles.
+     *
+     * @param buf the buffer
+     */
+    public void readNewSession(ByteBuf buf) {
+        session = ByteBufUtils.readVarInt(buf, 5);
+
+        templates.clear();
+        names.clear();
+    }
+
+    /**
+     * Reads the tracker names added by a page of a full update.
+     *
+     * @param buf the buffer
+     */
+    public void readNames(ByteBuf buf) {
+        int size = ByteBufUtils.readVarInt(buf, 5);
+
+        for (int i = 0; i < size; ++i) {
+            names.add(ByteBufUtils.readUTF8String(buf));
+        }
+    }
+
+    /**
+     * Reads a stack of a full update.
+     *
+     * @param buf the buffer
+     * @return the stack
+     */
+    public GridStackItem readStack(ByteBuf buf) {
+        int handle = ByteBufUtils.readVarInt(buf, 5);
+
+        ItemStack stack = StackUtils.readItemStack(buf);
+        long count = StackUtils.readVarLong(buf);
+        boolean craftable = buf.readBoolean();
+        UUID id = StackUtils.readUUID(buf);
+        UUID otherId = readOtherId(buf);
+
+        StorageTrackerEntry tracker = null;
+        if (buf.readBoolean()) {
+            tracker = new StorageTrackerEntry(StackUtils.readVarLong(buf), names.get(ByteBufUtils.readVarInt(buf, 5)));
+        }
+
+        if (handle != GridItemStackDictionary.NO_HANDLE) {
+            templates.put(handle, new Template(id, otherId, stack, tracker));
+        }
+
+        return new GridStackItem(id, otherId, stack, count, craftable, tracker);
+    }
+
+    /**
+     * Reads the session of a delta message.
+     *
+     * @param buf the buffer
+     * @return true if the deltas belong to the last full update, false if they were sent for another grid
+     */
+    public boolean readSession(ByteBuf buf) {
+        return ByteBufUtils.readVarInt(buf, 5) == session;
+    }
+
+    /**
+     * Reads a delta.
+     *
+     * @param buf the buffer
+     * @return the stack and the change, or null if the handle is unknown
+     */
+    @Nullable
+    public Pair<IGridStack, Long> readDelta(ByteBuf buf) {
+        int handle = ByteBufUtils.readVarInt(buf, 5);
+        int flags = buf.readByte();
+        long change = StackUtils.readSignedVarLong(buf);
+
+        Template template = templates.get(handle);
+
+        if ((flags & GridItemStackDictionary.FLAG_DEFINITION) != 0) {
+            ItemStack stack = StackUtils.readItemStack(buf);
+            UUID id = StackUtils.readUUID(buf);
+
+            template = new Template(id, null, stack, null);
+            templates.put(handle, template);
+        }
+
+        UUID otherId = null;
+        if ((flags & GridItemStackDictionary.FLAG_OTHER_ID) != 0) {
+            otherId = readOtherId(buf);
+        }
+
+        StorageTrackerEntry tracker = null;
+        if ((flags & GridItemStackDictionary.FLAG_TRACKER) != 0) {
+            long time = StackUtils.readVarLong(buf);
+            int nameRef = ByteBufUtils.readVarInt(buf, 5);
+            int nameId = nameRef >> 1;
+
+            // The lowest bit tells whether the name itself follows
+            if ((nameRef & 1) != 0) {
+                while (names.size() <= nameId) {
+                    names.add("");
+                }
+
+                names.set(nameId, ByteBufUtils.readUTF8String(buf));
+            }
+
+            tracker = new StorageTrackerEntry(time, names.get(nameId));
+        }
+
+        if (template == null) {
+            return null;
+        }
+
+        if ((flags & GridItemStackDictionary.FLAG_OTHER_ID) != 0) {
+            template.otherId = otherId;
+        }
+
+        if (tracker != null) {
+            template.tracker = tracker;
+        }
+
+        return Pair.of(new GridStackItem(template.id, template.otherId, template.stack, 0, false, template.tracker), change);
+    }
+
+    @Nullable
+    private static UUID readOtherId(ByteBuf buf) {
+        return buf.readBoolean() ? StackUtils.readUUID(buf) : null;
+    }
+
+    private static class Template {
+        private final UUID id;
+        @Nullable
+        private UUID otherId;
+        private final ItemStack stack;
+        @Nullable
+        private StorageTrackerEntry tracker;
+
+        Template(UUID id, @Nullable UUID otherId, ItemStack stack, @Nullable StorageTrackerEntry tracker) {
+            this.id = id;
+            this.otherId = otherId;
+            this.stack = stack;
+            this.tracker = tracker;
+        }
+    }
+}
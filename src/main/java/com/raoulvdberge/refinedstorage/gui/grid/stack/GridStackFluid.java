@@ -23,6 +23,8 @@ public class GridStackFluid implements IGridStack {
     private final boolean craftable;
     private String modId;
     private String modName;
+    private GridStackSearchData searchData;
+    private GridStackSortKeys sortKeys;
 
     public GridStackFluid(UUID id, @Nullable UUID otherId, FluidStack stack, long count, @Nullable StorageTrackerEntry entry, boolean craftable) {
         this.id = id;
@@ -99,6 +101,24 @@ public class GridStackFluid implements IGridStack {
         return stack.getFluid().getLocalizedName(stack);
     }
 
+    @Override
+    public GridStackSearchData getSearchData() {
+        if (searchData == null) {
+            searchData = new GridStackSearchData(this);
+        }
+
+        return searchData;
+    }
+
+    @Override
+    public GridStackSortKeys getSortKeys() {
+        if (sortKeys == null) {
+            sortKeys = new GridStackSortKeys(this);
+        }
+
+        return sortKeys;
+    }
+
     @Override
     public long getQuantity() {
         return isCraftable() ? 0 : getCount();
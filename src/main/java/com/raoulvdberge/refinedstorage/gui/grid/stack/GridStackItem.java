@@ -29,6 +29,8 @@ public class GridStackItem implements IGridStack {
     private String modId;
     private String modName;
     private String tooltip;
+    private GridStackSearchData searchData;
+    private GridStackSortKeys sortKeys;
 
     public GridStackItem(ItemStack stack, long count) {
         this.stack = stack;
@@ -150,6 +152,24 @@ public class GridStackItem implements IGridStack {
         }
     }
 
+    @Override
+    public GridStackSearchData getSearchData() {
+        if (searchData == null) {
+            searchData = new GridStackSearchData(this);
+        }
+
+        return searchData;
+    }
+
+    @Override
+    public GridStackSortKeys getSortKeys() {
+        if (sortKeys == null) {
+            sortKeys = new GridStackSortKeys(this);
+        }
+
+        return sortKeys;
+    }
+
     @Override
     public long getQuantity() {
         return isCraftable() ? 0 : getCount();
@@ -0,0 +1,103 @@
+package com.raoulvdberge.refinedstorage.gui.grid.stack;
+
+import javax.annotation.Nullable;
+
+/**
+ * The normalized texts of a grid stack that the search filters match against. They are computed once per stack
+ * instead of on every test, the tooltip only when a tooltip search needs it.
+ */
+public class GridStackSearchData {
+    private final IGridStack stack;
+
+    private String name;
+    private String modId;
+    private String modName;
+    private String[] oreIds;
+
+    private boolean tooltipBuilt;
+    @Nullable
+    private String tooltip;
+
+    public GridStackSearchData(IGridStack stack) {
+        this.stack = stack;
+    }
+
+    /**
+     * Computes everything but the tooltip, which is expensive to build and rarely searched.
+     */
+    public void build() {
+        getName();
+        getModId();
+        getModName();
+        getOreIds();
+    }
+
+    /**
+     * @return the name in lower case
+     */
+    public String getName() {
+        if (name == null) {
+            name = stack.getName().toLowerCase();
+        }
+
+        return name;
+    }
+
+    public String getModId() {
+        if (modId == null) {
+            modId = stack.getModId();
+        }
+
+        return modId;
+    }
+
+    /**
+     * @return the mod name in lower case and without spaces, null if the stack has no mod name
+     */
+    @Nullable
+    public String getModName() {
+        if (modName == null) {
+            String original = stack.getModName();
+
+            modName = original == null ? null : standardify(original);
+        }
+
+        return modName;
+    }
+
+    /**
+     * @return the ore names in lower case
+     */
+    public String[] getOreIds() {
+        if (oreIds == null) {
+            String[] original = stack.getOreIds();
+
+            oreIds = new String[original.length];
+            for (int i = 0; i < original.length; ++i) {
+                oreIds[i] = original[i].toLowerCase();
+            }
+        }
+
+        return oreIds;
+    }
+
+    /**
+     * @return the tooltip in lower case without the first line that states the name, null if the tooltip only has
+     * one line
+     */
+    @Nullable
+    public String getTooltip() {
+        if (!tooltipBuilt) {
+            String original = stack.getTooltip(true).trim().toLowerCase();
+
+            tooltip = original.contains("\n") ? original.substring(original.indexOf('\n') + 1) : null;
+            tooltipBuilt = true;
+        }
+
+        return tooltip;
+    }
+
+    public static String standardify(String input) {
+        return input.toLowerCase().replace(" ", "");
+    }
+}
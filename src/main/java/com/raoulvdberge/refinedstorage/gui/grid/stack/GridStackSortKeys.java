@@ -0,0 +1,30 @@
+package com.raoulvdberge.refinedstorage.gui.grid.stack;
+
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+
+/**
+ * The sort keys of a grid stack that don't change while the stack is in the view. They are computed once, so
+ * comparing two stacks doesn't look up display names or registry ids. The quantity and the last modified time change
+ * and are read from the stack itself.
+ */
+public class GridStackSortKeys {
+    private final String name;
+    private final int id;
+
+    public GridStackSortKeys(IGridStack stack) {
+        this.name = stack.getName();
+        this.id = stack.getIngredient() instanceof ItemStack ? Item.getIdFromItem(((ItemStack) stack.getIngredient()).getItem()) : 0;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the item id, 0 for fluids
+     */
+    public int getId() {
+        return id;
+    }
+}
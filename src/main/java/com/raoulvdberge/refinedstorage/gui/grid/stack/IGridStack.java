@@ -25,6 +25,10 @@ public interface IGridStack {
 
     String getTooltip(boolean cached);
 
+    GridStackSearchData getSearchData();
+
+    GridStackSortKeys getSortKeys();
+
     long getQuantity();
 
     long getCount();
@@ -1,6 +1,7 @@
 package com.raoulvdberge.refinedstorage.gui.grid.view;
 
 import com.raoulvdberge.refinedstorage.api.network.grid.IGrid;
+import com.raoulvdberge.refinedstorage.api.util.IFilter;
 import com.raoulvdberge.refinedstorage.gui.grid.GuiGrid;
 import com.raoulvdberge.refinedstorage.gui.grid.filtering.GridFilterParser;
 import com.raoulvdberge.refinedstorage.gui.grid.sorting.GridSorterDirection;
@@ -20,9 +21,32 @@ public class GridViewImpl implements IGridView {
     private final IGridSorter defaultSorter;
     private final List<IGridSorter> sorters;
 
-    private List<IGridStack> stacks = new ArrayList<>();
+    private GridViewStackList stacks = new GridViewStackList();
     protected final Map<UUID, IGridStack> map = new HashMap<>();
 
+    /**
+     * The parsed filters, reused until the query, the view type or the filters change
+     */
+    private Predicate<IGridStack> activeFilters;
+    private String activeFiltersQuery;
+    private int activeFiltersViewType;
+    private List<IFilter<?>> activeFiltersFilters;
+
+    /**
+     * The composed comparator, reused until the sorting direction or the applicable sorters change
+     */
+    private Comparator<IGridStack> activeSort;
+    private GridSorterDirection activeSortDirection;
+    private List<IGridSorter> activeSortSorters;
+    private boolean activeSortThreadSafe;
+
+    /**
+     * The query the view was last sorted with, null if the view may contain stacks that were filtered with another
+     * query since
+     */
+    @Nullable
+    private String sortedQuery;
+
     public GridViewImpl(GuiGrid gui, IGridSorter defaultSorter, List<IGridSorter> sorters) {
         this.gui = gui;
         this.defaultSorter = defaultSorter;
@@ -33,37 +57,82 @@ public class GridViewImpl implements IGridView {
     public void sort() {
         if (gui.getGrid().isActive()) {
             Predicate<IGridStack> activeFilters = getActiveFilters();
+            String previousQuery = this.sortedQuery;
+            String query = this.activeFiltersQuery;
 
             gui.resetLockedStackUUID();
 
-            this.stacks = new ArrayList<>(map.values());
+            Collection<IGridStack> candidates;
+
+            //typing more of the query only narrows down the result, so only the previous result has to be filtered
+            if (this.active && previousQuery != null && isRefinement(previousQuery, query)) {
+                candidates = this.stacks;
+            } else {
+                candidates = map.values();
+            }
 
-            this.stacks.removeIf(gridStack -> {
-                if (gui.getGrid().getViewType() != IGrid.VIEW_TYPE_CRAFTABLES &&
-                    gridStack.isCraftable() &&
-                    gridStack.getOtherId() != null &&
-                    map.containsKey(gridStack.getOtherId()))
-                    return true;
+            Comparator<IGridStack> activeSort = getActiveSort();
 
-                //check filter and remove the locked stack
-                return !activeFilters.test(gridStack);
-            });
+            //check filter and remove the locked stack
+            IGridStack[] sorted = filterAndSort(candidates,
+                    gridStack -> !isHiddenCraftable(gridStack) && activeFilters.test(gridStack),
+                    activeSort, activeSortThreadSafe);
 
-            this.stacks.sort(getActiveSort());
+            this.stacks = new GridViewStackList(Arrays.asList(sorted));
 
+            this.sortedQuery = query;
             this.active = true;
         } else {
-            this.stacks = new ArrayList<>();
+            this.stacks = new GridViewStackList();
+            this.sortedQuery = null;
             this.active = false;
         }
 
         this.gui.updateScrollbar();
     }
 
+    /**
+     * Appending to a query only adds characters to the last term or adds more terms, which both narrow the result.
+     * Alternatives are left out, as they widen it.
+     *
+     * @param previousQuery the query of the previous result
+     * @param query         the new query
+     * @return whether or not every stack matching the new query also matches the previous query
+     */
+    public static boolean isRefinement(String previousQuery, String query) {
+        return query.startsWith(previousQuery) && query.indexOf('|') == -1;
+    }
+
+    /**
+     * @param stacks     the stacks to filter
+     * @param filter     the filter
+     * @param comparator the comparator
+     * @param threadSafe whether or not the comparator can be used from multiple threads at once
+     * @return the stacks that match the filter in sorted order
+     */
+    public static IGridStack[] filterAndSort(Collection<IGridStack> stacks, Predicate<IGridStack> filter, Comparator<IGridStack> comparator, boolean threadSafe) {
+        IGridStack[] sorted = stacks.stream().filter(filter).toArray(IGridStack[]::new);
+
+        //the sort keys are computed up front, the sorters only read them
+        if (threadSafe) {
+            for (IGridStack stack : sorted) {
+                stack.getSortKeys();
+            }
+
+            Arrays.parallelSort(sorted, comparator);
+        } else {
+            Arrays.sort(sorted, comparator);
+        }
+
+        return sorted;
+    }
+
     @Override
     public void postChange(IGridStack stack, long delta) {
         if (!this.active)
             return;
+
+        prepare(stack);
         /*
         Explanation of otherId:
         otherId for a normal GridStack is the id of the same GridStack but the craftable version
@@ -105,7 +174,7 @@ public class GridViewImpl implements IGridView {
             this.stacks.remove(map.get(lockedStackUUID));
         }
 
-        Predicate<IGridStack> activeFilters = getActiveFilters();
+        Predicate<IGridStack> activeFilters = getActiveFiltersForUpdate();
 
         if (existing == null) {
             stack.setCount(delta);
@@ -153,12 +222,67 @@ public class GridViewImpl implements IGridView {
         this.gui.updateScrollbar();
     }
 
-    private void binaryInsert(IGridStack stack) {
-        int insertionPos = Collections.binarySearch(stacks, stack, getActiveSort());
-        if (insertionPos < 0) {
-            insertionPos = -insertionPos - 1;
+    @Override
+    public void addStacks(List<IGridStack> stacks) {
+        if (!this.active) {
+            for (IGridStack stack : stacks) {
+                prepare(stack);
+
+                map.put(stack.getId(), stack);
+            }
+
+            return;
+        }
+
+        List<IGridStack> added = new ArrayList<>();
+
+        for (IGridStack stack : stacks) {
+            IGridStack existing = map.get(stack.getId());
+
+            if (existing != null) {
+                postChange(stack, stack.getCount() - existing.getCount());
+            } else {
+                prepare(stack);
+
+                map.put(stack.getId(), stack);
+
+                added.add(stack);
+            }
+        }
+
+        Predicate<IGridStack> activeFilters = getActiveFiltersForUpdate();
+        Comparator<IGridStack> activeSort = getActiveSort();
+
+        // Every stack is inserted into the order statistics tree on its own, so a page costs O(k log n) and not a
+        // copy of the whole view
+        for (IGridStack stack : added) {
+            //craftable stacks of added stacks are removed from view
+            if (!stack.isCraftable() && stack.getOtherId() != null && map.containsKey(stack.getOtherId())) {
+                this.stacks.remove(map.get(stack.getOtherId()));
+            }
+
+            if (!isHiddenCraftable(stack) && activeFilters.test(stack)) {
+                this.stacks.add(stack, activeSort);
+            }
         }
-        stacks.add(insertionPos, stack);
+
+        this.gui.updateScrollbar();
+    }
+
+    private static void prepare(IGridStack stack) {
+        stack.getSearchData().build();
+        stack.getSortKeys();
+    }
+
+    private boolean isHiddenCraftable(IGridStack stack) {
+        return gui.getGrid().getViewType() != IGrid.VIEW_TYPE_CRAFTABLES &&
+               stack.isCraftable() &&
+               stack.getOtherId() != null &&
+               map.containsKey(stack.getOtherId());
+    }
+
+    private void binaryInsert(IGridStack stack) {
+        stacks.add(stack, getActiveSort());
     }
 
     private void indexedInsert(int index, IGridStack stack) {
@@ -172,8 +296,12 @@ public class GridViewImpl implements IGridView {
         map.clear();
 
         for (IGridStack stack : stacks) {
+            prepare(stack);
+
             map.put(stack.getId(), stack);
         }
+
+        this.sortedQuery = null;
     }
 
     @Override
@@ -188,19 +316,72 @@ public class GridViewImpl implements IGridView {
 
     private Predicate<IGridStack> getActiveFilters() {
         IGrid grid = gui.getGrid();
-        return GridFilterParser.getFilters(
-                grid,
-                gui.getSearchField() != null ? gui.getSearchField().getText() : "",
-                (grid.getTabSelected() >= 0 && grid.getTabSelected() < grid.getTabs().size()) ? grid.getTabs().get(grid.getTabSelected()).getFilters() : grid.getFilters()
-        );
+
+        String query = gui.getSearchField() != null ? gui.getSearchField().getText() : "";
+        int viewType = grid.getViewType();
+        List<IFilter<?>> filters = (grid.getTabSelected() >= 0 && grid.getTabSelected() < grid.getTabs().size()) ? grid.getTabs().get(grid.getTabSelected()).getFilters() : grid.getFilters();
+
+        if (activeFilters == null || !query.equals(activeFiltersQuery) || viewType != activeFiltersViewType || !filters.equals(activeFiltersFilters)) {
+            //the view was only filtered by the query if the other filters stayed the same
+            if (activeFilters != null && (viewType != activeFiltersViewType || !filters.equals(activeFiltersFilters))) {
+                this.sortedQuery = null;
+            }
+
+            this.activeFilters = GridFilterParser.getFilters(grid, query, filters);
+            this.activeFiltersQuery = query;
+            this.activeFiltersViewType = viewType;
+            this.activeFiltersFilters = new ArrayList<>(filters);
+        }
+
+        return activeFilters;
+    }
+
+    /**
+     * Stacks that change in between sorts are filtered with the current query, which the view might not be sorted
+     * with yet.
+     *
+     * @return the active filters
+     */
+    private Predicate<IGridStack> getActiveFiltersForUpdate() {
+        Predicate<IGridStack> filters = getActiveFilters();
+
+        if (sortedQuery != null && !sortedQuery.equals(activeFiltersQuery)) {
+            this.sortedQuery = null;
+        }
+
+        return filters;
     }
 
     private Comparator<IGridStack> getActiveSort() {
         IGrid grid = gui.getGrid();
         GridSorterDirection sortingDirection = grid.getSortingDirection() == IGrid.SORTING_DIRECTION_DESCENDING ? GridSorterDirection.DESCENDING : GridSorterDirection.ASCENDING;
 
-        return Stream.concat(Stream.of(defaultSorter), sorters.stream().filter(s -> s.isApplicable(grid)))
-                .map(sorter -> (Comparator<IGridStack>) (o1, o2) -> sorter.compare(o1, o2, sortingDirection))
+        List<IGridSorter> applicableSorters = new ArrayList<>(sorters.size());
+        for (IGridSorter sorter : sorters) {
+            if (sorter.isApplicable(grid)) {
+                applicableSorters.add(sorter);
+            }
+        }
+
+        if (activeSort == null || sortingDirection != activeSortDirection || !applicableSorters.equals(activeSortSorters)) {
+            this.activeSort = createComparator(defaultSorter, applicableSorters, sortingDirection);
+            this.activeSortDirection = sortingDirection;
+            this.activeSortSorters = applicableSorters;
+            this.activeSortThreadSafe = defaultSorter.isThreadSafe() && applicableSorters.stream().allMatch(IGridSorter::isThreadSafe);
+        }
+
+        return activeSort;
+    }
+
+    /**
+     * @param defaultSorter the sorter that decides when all other sorters consider two stacks equal
+     * @param sorters       the applicable sorters, the last one decides first
+     * @param direction     the sorting direction
+     * @return the comparator
+     */
+    public static Comparator<IGridStack> createComparator(IGridSorter defaultSorter, List<IGridSorter> sorters, GridSorterDirection direction) {
+        return Stream.concat(Stream.of(defaultSorter), sorters.stream())
+                .map(sorter -> (Comparator<IGridStack>) (o1, o2) -> sorter.compare(o1, o2, direction))
                 .reduce((l, r) -> r.thenComparing(l))
                 .orElseThrow(IllegalStateException::new);
     }
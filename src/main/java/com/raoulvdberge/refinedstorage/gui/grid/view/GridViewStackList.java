@@ -0,0 +1,425 @@
+package com.raoulvdberge.refinedstorage.gui.grid.view;
+
+import com.raoulvdberge.refinedstorage.gui.grid.stack.IGridStack;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * The stacks of a grid view in the order they're displayed. This is a balanced tree that knows the size of its
+ * subtrees, so stacks can be looked up by index, inserted and removed in O(log n).
+ * <p>
+ * Stacks are removed through the node they're in. This also works after a stack changed in a way that moves it in
+ * the sort order. A stack is in the list at most once; adding it again moves it.
+ */
+public class GridViewStackList extends AbstractList<IGridStack> {
+    private static final class Node {
+        private IGridStack stack;
+        private Node parent;
+        private Node left;
+        private Node right;
+        private int size = 1;
+        private int height = 1;
+
+        private Node(IGridStack stack, Node parent) {
+            this.stack = stack;
+            this.parent = parent;
+        }
+    }
+
+    private final Map<IGridStack, Node> nodes = new IdentityHashMap<>();
+    private Node root;
+
+    public GridViewStackList() {
+    }
+
+    /**
+     * @param stacks the stacks in the order they should be in
+     */
+    public GridViewStackList(List<IGridStack> stacks) {
+        Set<IGridStack> unique = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        if (stacks.stream().allMatch(unique::add)) {
+            this.root = build(stacks, 0, stacks.size(), null);
+        } else {
+            List<IGridStack> withoutDuplicates = new ArrayList<>(unique.size());
+
+            unique.clear();
+            for (IGridStack stack : stacks) {
+                if (unique.add(stack)) {
+                    withoutDuplicates.add(stack);
+                }
+            }
+
+            this.root = build(withoutDuplicates, 0, withoutDuplicates.size(), null);
+        }
+    }
+
+    private Node build(List<IGridStack> stacks, int from, int to, Node parent) {
+        if (from >= to) {
+            return null;
+        }
+
+        int middle = (from + to) >>> 1;
+
+        Node node = new Node(stacks.get(middle), parent);
+        nodes.put(node.stack, node);
+
+        node.left = build(stacks, from, middle, node);
+        node.right = build(stacks, middle + 1, to, node);
+
+        update(node);
+
+        return node;
+    }
+
+    @Override
+    public IGridStack get(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+        }
+
+        Node node = root;
+
+        while (true) {
+            int leftSize = size(node.left);
+
+            if (index < leftSize) {
+                node = node.left;
+            } else if (index == leftSize) {
+                return node.stack;
+            } else {
+                index -= leftSize + 1;
+                node = node.right;
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        return size(root);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return nodes.containsKey(o);
+    }
+
+    @Override
+    public int indexOf(Object o) {
+        Node node = nodes.get(o);
+        if (node == null) {
+            return -1;
+        }
+
+        int index = size(node.left);
+
+        while (node.parent != null) {
+            if (node.parent.right == node) {
+                index += size(node.parent.left) + 1;
+            }
+
+            node = node.parent;
+        }
+
+        return index;
+    }
+
+    @Override
+    public int lastIndexOf(Object o) {
+        return indexOf(o);
+    }
+
+    @Override
+    public void add(int index, IGridStack stack) {
+        remove(stack);
+
+        if (index < 0 || index > size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+        }
+
+        if (root == null) {
+            insert(stack, null, false);
+
+            return;
+        }
+
+        Node node = root;
+
+        while (true) {
+            int leftSize = size(node.left);
+
+            if (index <= leftSize) {
+                if (node.left == null) {
+                    insert(stack, node, true);
+
+                    return;
+                }
+
+                node = node.left;
+            } else {
+                index -= leftSize + 1;
+
+                if (node.right == null) {
+                    insert(stack, node, false);
+
+                    return;
+                }
+
+                node = node.right;
+            }
+        }
+    }
+
+    /**
+     * Inserts a stack after all stacks that don't come after it.
+     *
+     * @param stack      the stack
+     * @param comparator the order of the list
+     */
+    public void add(IGridStack stack, Comparator<IGridStack> comparator) {
+        remove(stack);
+
+        if (root == null) {
+            insert(stack, null, false);
+
+            return;
+        }
+
+        Node node = root;
+
+        while (true) {
+            if (comparator.compare(stack, node.stack) < 0) {
+                if (node.left == null) {
+                    insert(stack, node, true);
+
+                    return;
+                }
+
+                node = node.left;
+            } else {
+                if (node.right == null) {
+                    insert(stack, node, false);
+
+                    return;
+                }
+
+                node = node.right;
+            }
+        }
+    }
+
+    private void insert(IGridStack stack, Node parent, boolean left) {
+        Node node = new Node(stack, parent);
+
+        if (parent == null) {
+            root = node;
+        } else if (left) {
+            parent.left = node;
+        } else {
+            parent.right = node;
+        }
+
+        nodes.put(stack, node);
+
+        rebalance(parent);
+
+        modCount++;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        Node node = nodes.remove(o);
+        if (node == null) {
+            return false;
+        }
+
+        // A node with two children takes the stack of its successor, which is removed instead
+        if (node.left != null && node.right != null) {
+            Node successor = node.right;
+            while (successor.left != null) {
+                successor = successor.left;
+            }
+
+            node.stack = successor.stack;
+            nodes.put(node.stack, node);
+
+            node = successor;
+        }
+
+        Node child = node.left != null ? node.left : node.right;
+        if (child != null) {
+            child.parent = node.parent;
+        }
+
+        replace(node.parent, node, child);
+
+        rebalance(node.parent);
+
+        modCount++;
+
+        return true;
+    }
+
+    @Override
+    public IGridStack remove(int index) {
+        IGridStack stack = get(index);
+
+        remove(stack);
+
+        return stack;
+    }
+
+    @Override
+    public void clear() {
+        nodes.clear();
+        root = null;
+
+        modCount++;
+    }
+
+    @Override
+    public Iterator<IGridStack> iterator() {
+        Node first = root;
+        while (first != null && first.left != null) {
+            first = first.left;
+        }
+
+        Node start = first;
+
+        return new Iterator<IGridStack>() {
+            private Node next = start;
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public IGridStack next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+
+                IGridStack stack = next.stack;
+
+                next = successor(next);
+
+                return stack;
+            }
+        };
+    }
+
+    private static Node successor(Node node) {
+        if (node.right != null) {
+            node = node.right;
+
+            while (node.left != null) {
+                node = node.left;
+            }
+
+            return node;
+        }
+
+        while (node.parent != null && node.parent.right == node) {
+            node = node.parent;
+        }
+
+        return node.parent;
+    }
+
+    private void rebalance(Node node) {
+        while (node != null) {
+            update(node);
+
+            int balance = height(node.left) - height(node.right);
+
+            if (balance > 1) {
+                if (height(node.left.left) < height(node.left.right)) {
+                    rotateLeft(node.left);
+                }
+
+                node = rotateRight(node);
+            } else if (balance < -1) {
+                if (height(node.right.right) < height(node.right.left)) {
+                    rotateRight(node.right);
+                }
+
+                node = rotateLeft(node);
+            }
+
+            node = node.parent;
+        }
+    }
+
+    private Node rotateLeft(Node node) {
+        Node right = node.right;
+
+        node.right = right.left;
+        if (right.left != null) {
+            right.left.parent = node;
+        }
+
+        right.parent = node.parent;
+        replace(node.parent, node, right);
+
+        right.left = node;
+        node.parent = right;
+
+        update(node);
+        update(right);
+
+        return right;
+    }
+
+    private Node rotateRight(Node node) {
+        Node left = node.left;
+
+        node.left = left.right;
+        if (left.right != null) {
+            left.right.parent = node;
+        }
+
+        left.parent = node.parent;
+        replace(node.parent, node, left);
+
+        left.right = node;
+        node.parent = left;
+
+        update(node);
+        update(left);
+
+        return left;
+    }
+
+    private void replace(Node parent, Node node, Node replacement) {
+        if (parent == null) {
+            root = replacement;
+        } else if (parent.left == node) {
+            parent.left = replacement;
+        } else {
+            parent.right = replacement;
+        }
+    }
+
+    private static void update(Node node) {
+        node.size = size(node.left) + size(node.right) + 1;
+        node.height = Math.max(height(node.left), height(node.right)) + 1;
+    }
+
+    private static int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static int height(Node node) {
+        return node == null ? 0 : node.height;
+    }
+}
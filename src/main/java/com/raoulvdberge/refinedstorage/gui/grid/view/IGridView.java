@@ -14,6 +14,14 @@ public interface IGridView {
 
     void setStacks(List<IGridStack> stacks);
 
+    /**
+     * Adds stacks received after the first page of a full update, stacks that are already known take over the
+     * count of the new stack.
+     *
+     * @param stacks the stacks
+     */
+    void addStacks(List<IGridStack> stacks);
+
     void postChange(IGridStack stack, long delta);
 
     void setCanCraft(boolean canCraft);
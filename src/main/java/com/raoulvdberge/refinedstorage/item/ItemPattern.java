@@ -1,5 +1,7 @@
 package com.raoulvdberge.refinedstorage.item;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.raoulvdberge.refinedstorage.RS;
 import com.raoulvdberge.refinedstorage.RSItems;
 import com.raoulvdberge.refinedstorage.api.autocrafting.ICraftingPattern;
@@ -18,6 +20,7 @@ import net.minecraft.client.resources.I18n;
 import net.minecraft.client.util.ITooltipFlag;
 import net.minecraft.entity.player.EntityPlayer;
 import net.minecraft.item.ItemStack;
+import net.minecraft.item.crafting.CraftingManager;
 import net.minecraft.nbt.NBTTagCompound;
 import net.minecraft.util.ActionResult;
 import net.minecraft.util.EnumActionResult;
@@ -30,13 +33,14 @@ import net.minecraftforge.fml.relauncher.SideOnly;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.stream.Collectors;
 
 public class ItemPattern extends ItemBase implements ICraftingPatternProvider {
-    private static final Map<PatternCacheKey, CraftingPattern> PATTERN_CACHE = new HashMap<>();
+    // Patterns aren't bound to a container, so one instance per pattern stack is shared by the client, the crafters
+    // and the crafting tasks. Evicted patterns are resolved again when needed.
+    private static final Cache<PatternCacheKey, CraftingPattern> PATTERN_CACHE = CacheBuilder.newBuilder().maximumSize(16384).build();
+    private static volatile int patternCacheRecipes = -1;
 
     private static final String NBT_VERSION = "Version";
     public static final String NBT_INPUT_SLOT = "Input_%d";
@@ -61,7 +65,33 @@ public class ItemPattern extends ItemBase implements ICraftingPatternProvider {
     }
 
     public static CraftingPattern getPatternFromCache(World world, ItemStack stack) {
-        return PATTERN_CACHE.computeIfAbsent(new PatternCacheKey(stack), key -> new CraftingPattern(world, key.stack));
+        // Recipes were added or removed by a script, the cached patterns may refer to recipes that no longer exist
+        int recipes = CraftingManager.REGISTRY.getKeys().size();
+        if (recipes != patternCacheRecipes) {
+            PATTERN_CACHE.invalidateAll();
+            patternCacheRecipes = recipes;
+        }
+
+        CraftingPattern pattern = PATTERN_CACHE.getIfPresent(new PatternCacheKey(stack));
+
+        if (pattern == null) {
+            // The key keeps a copy, the given stack may still be modified in an inventory
+            pattern = new CraftingPattern(world, stack);
+
+            CraftingPattern existing = PATTERN_CACHE.asMap().putIfAbsent(new PatternCacheKey(pattern.getStack()), pattern);
+            if (existing != null) {
+                pattern = existing;
+            }
+        }
+
+        return pattern;
+    }
+
+    /**
+     * Forgets all cached patterns, called when a world is unloaded.
+     */
+    public static void clearPatternCache() {
+        PATTERN_CACHE.invalidateAll();
     }
 
     @Override
@@ -230,7 +260,7 @@ public class ItemPattern extends ItemBase implements ICraftingPatternProvider {
     @Override
     @Nonnull
     public ICraftingPattern create(World world, ItemStack stack) {
-        return new CraftingPattern(world, stack);
+        return getPatternFromCache(world, stack);
     }
 
     private static final class PatternCacheKey {
@@ -8,94 +8,283 @@ import com.raoulvdberge.refinedstorage.api.network.grid.IGridTab;
 import com.raoulvdberge.refinedstorage.apiimpl.API;
 import com.raoulvdberge.refinedstorage.gui.GuiBase;
 import com.raoulvdberge.refinedstorage.gui.GuiCraftingMonitor;
-import com.raoulvdberge.refinedstorage.tile.craftingmonitor.ICraftingMonitor;
+import com.raoulvdberge.refinedstorage.util.StackUtils;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2LongMap;
+import it.unimi.dsi.fastutil.objects.Object2LongOpenHashMap;
 import net.minecraftforge.fml.common.network.ByteBufUtils;
 import net.minecraftforge.fml.common.network.simpleimpl.IMessage;
 import net.minecraftforge.fml.common.network.simpleimpl.IMessageHandler;
 import net.minecraftforge.fml.common.network.simpleimpl.MessageContext;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.UUID;
+import javax.annotation.Nullable;
+import java.util.*;
 import java.util.function.Function;
 
+/**
+ * Sends the tasks of a crafting monitor relative to what the player already received, see {@link Baseline}.
+ * Every message lists all tasks in order, but the request is only sent for new tasks and the elements only when they
+ * changed, as a list of the changed element positions. Tasks whose {@link ICraftingTask#getVersion()} didn't change
+ * since the last message aren't serialized at all.
+ */
 public class MessageCraftingMonitorElements implements IMessage, IMessageHandler<MessageCraftingMonitorElements, IMessage> {
-    private ICraftingMonitor craftingMonitor;
+    private static final int FLAG_NEW = 1;
+    private static final int FLAG_ELEMENTS = 2;
 
-    private final List<IGridTab> tasks = new ArrayList<>();
+    private byte[] encoded;
+
+    private boolean full;
+    private final List<TaskUpdate> updates = new ArrayList<>();
 
     public MessageCraftingMonitorElements() {
     }
 
-    public MessageCraftingMonitorElements(ICraftingMonitor craftingMonitor) {
-        this.craftingMonitor = craftingMonitor;
+    /**
+     * @param encoded the tasks as encoded by {@link #encode(Collection, Baseline, boolean)}
+     */
+    public MessageCraftingMonitorElements(byte[] encoded) {
+        this.encoded = encoded;
+    }
+
+    /**
+     * Encodes the tasks relative to the baseline of a player and updates the baseline.
+     *
+     * @param tasks    the tasks
+     * @param baseline the baseline of the player
+     * @param force    whether the tasks should be sent even if only their progress changed
+     * @return the encoded tasks, or null if nothing but the progress changed and sending isn't forced
+     */
+    @Nullable
+    public static byte[] encode(Collection<ICraftingTask> tasks, Baseline baseline, boolean force) {
+        ByteBuf buf = Unpooled.buffer();
+
+        boolean changed = baseline.full || tasks.size() != baseline.elements.size();
+
+        buf.writeBoolean(baseline.full);
+        ByteBufUtils.writeVarInt(buf, tasks.size(), 5);
+
+        Map<UUID, List<byte[]>> elements = new HashMap<>();
+        Object2LongMap<UUID> versions = new Object2LongOpenHashMap<>();
+        versions.defaultReturnValue(-1);
+
+        for (ICraftingTask task : tasks) {
+            List<byte[]> previous = baseline.full ? null : baseline.elements.get(task.getId());
+
+            long version = task.getVersion();
+            boolean unchanged = previous != null && version != -1 && version == baseline.versions.getLong(task.getId());
+
+            List<byte[]> current = unchanged ? previous : writeElements(task);
+
+            elements.put(task.getId(), current);
+            versions.put(task.getId(), version);
+
+            List<Integer> changedElements = new ArrayList<>();
+            for (int i = 0; !unchanged && i < current.size(); ++i) {
+                if (previous == null || i >= previous.size() || !Arrays.equals(previous.get(i), current.get(i))) {
+                    changedElements.add(i);
+                }
+            }
+
+            int flags = 0;
+            if (previous == null) {
+                flags |= FLAG_NEW;
+            }
+
+            if (previous == null || previous.size() != current.size() || !changedElements.isEmpty()) {
+                flags |= FLAG_ELEMENTS;
+            }
+
+            changed |= flags != 0;
+
+            StackUtils.writeUUID(buf, task.getId());
+            buf.writeByte(flags);
+
+            if ((flags & FLAG_NEW) != 0) {
+                ByteBufUtils.writeTag(buf, task.getRequested().writeToNbt());
+                StackUtils.writeVarLong(buf, task.getQuantity());
+            }
+
+            StackUtils.writeSignedVarLong(buf, task.getExecutionTime());
+            ByteBufUtils.writeVarInt(buf, task.getCompletionPercentage(), 5);
+
+            if ((flags & FLAG_ELEMENTS) != 0) {
+                ByteBufUtils.writeVarInt(buf, current.size(), 5);
+                ByteBufUtils.writeVarInt(buf, changedElements.size(), 5);
+
+                for (int i : changedElements) {
+                    ByteBufUtils.writeVarInt(buf, i, 5);
+                    buf.writeBytes(current.get(i));
+                }
+            }
+        }
+
+        if (!changed && !force) {
+            return null;
+        }
+
+        baseline.full = false;
+        baseline.elements.clear();
+        baseline.elements.putAll(elements);
+        baseline.versions.clear();
+        baseline.versions.putAll(versions);
+
+        byte[] encoded = new byte[buf.readableBytes()];
+        buf.readBytes(encoded);
+
+        return encoded;
+    }
+
+    private static List<byte[]> writeElements(ICraftingTask task) {
+        List<byte[]> elements = new ArrayList<>();
+
+        for (ICraftingMonitorElement element : task.getCraftingMonitorElements()) {
+            ByteBuf elementBuf = Unpooled.buffer();
+
+            ByteBufUtils.writeUTF8String(elementBuf, element.getId());
+            element.write(elementBuf);
+
+            byte[] bytes = new byte[elementBuf.readableBytes()];
+            elementBuf.readBytes(bytes);
+            elements.add(bytes);
+        }
+
+        return elements;
     }
 
     @Override
     public void fromBytes(ByteBuf buf) {
-        int size = buf.readInt();
+        full = buf.readBoolean();
+
+        int size = ByteBufUtils.readVarInt(buf, 5);
 
         for (int i = 0; i < size; ++i) {
-            UUID id = new UUID(buf.readLong(), buf.readLong());
+            TaskUpdate update = new TaskUpdate(StackUtils.readUUID(buf));
+
+            int flags = buf.readByte();
+
+            if ((flags & FLAG_NEW) != 0) {
+                update.isNew = true;
+
+                try {
+                    update.requested = API.instance().createCraftingRequestInfo(ByteBufUtils.readTag(buf));
+                } catch (CraftingTaskReadException e) {
+                    e.printStackTrace();
+                }
 
-            ICraftingRequestInfo requested = null;
-            try {
-                requested = API.instance().createCraftingRequestInfo(ByteBufUtils.readTag(buf));
-            } catch (CraftingTaskReadException e) {
-                e.printStackTrace();
+                update.qty = StackUtils.readVarLong(buf);
             }
 
-            long qty = buf.readLong();
-            long time = buf.readLong();
-            int percentage = buf.readInt();
+            update.executionTime = StackUtils.readSignedVarLong(buf);
+            update.percentage = ByteBufUtils.readVarInt(buf, 5);
 
-            List<ICraftingMonitorElement> elements = new ArrayList<>();
+            if ((flags & FLAG_ELEMENTS) != 0) {
+                update.elementCount = ByteBufUtils.readVarInt(buf, 5);
 
-            int elementCount = buf.readInt();
+                int changed = ByteBufUtils.readVarInt(buf, 5);
 
-            for (int j = 0; j < elementCount; ++j) {
-                Function<ByteBuf, ICraftingMonitorElement> factory = API.instance().getCraftingMonitorElementRegistry().get(ByteBufUtils.readUTF8String(buf));
+                for (int j = 0; j < changed; ++j) {
+                    int index = ByteBufUtils.readVarInt(buf, 5);
 
-                if (factory != null) {
-                    elements.add(factory.apply(buf));
+                    Function<ByteBuf, ICraftingMonitorElement> factory = API.instance().getCraftingMonitorElementRegistry().get(ByteBufUtils.readUTF8String(buf));
+
+                    if (factory != null) {
+                        update.changedElements.put(index, factory.apply(buf));
+                    }
                 }
             }
 
-            tasks.add(new GuiCraftingMonitor.CraftingMonitorTask(id, requested, qty, time, percentage, elements));
+            updates.add(update);
         }
     }
 
     @Override
     public void toBytes(ByteBuf buf) {
-        buf.writeInt(craftingMonitor.getTasks().size());
+        buf.writeBytes(encoded);
+    }
+
+    @Override
+    public IMessage onMessage(MessageCraftingMonitorElements message, MessageContext ctx) {
+        GuiBase.executeLater(GuiCraftingMonitor.class, monitor -> monitor.setTasks(message.apply(message.full ? Collections.emptyList() : monitor.getTasks())));
+
+        return null;
+    }
 
-        for (ICraftingTask task : craftingMonitor.getTasks()) {
-            buf.writeLong(task.getId().getMostSignificantBits());
-            buf.writeLong(task.getId().getLeastSignificantBits());
+    private List<IGridTab> apply(List<IGridTab> tasks) {
+        Map<UUID, GuiCraftingMonitor.CraftingMonitorTask> previous = new HashMap<>();
+        for (IGridTab task : tasks) {
+            previous.put(((GuiCraftingMonitor.CraftingMonitorTask) task).getId(), (GuiCraftingMonitor.CraftingMonitorTask) task);
+        }
 
-            ByteBufUtils.writeTag(buf, task.getRequested().writeToNbt());
+        List<IGridTab> result = new ArrayList<>(updates.size());
 
-            buf.writeLong(task.getQuantity());
-            buf.writeLong(task.getExecutionTime());
-            buf.writeInt(task.getCompletionPercentage());
+        for (TaskUpdate update : updates) {
+            GuiCraftingMonitor.CraftingMonitorTask base = previous.get(update.id);
 
-            List<ICraftingMonitorElement> elements = task.getCraftingMonitorElements();
+            if (!update.isNew && base == null) {
+                continue;
+            }
 
-            buf.writeInt(elements.size());
+            List<ICraftingMonitorElement> elements = new ArrayList<>(base == null ? Collections.emptyList() : base.getElements());
 
-            for (ICraftingMonitorElement element : elements) {
-                ByteBufUtils.writeUTF8String(buf, element.getId());
+            if (update.elementCount != -1) {
+                while (elements.size() > update.elementCount) {
+                    elements.remove(elements.size() - 1);
+                }
+
+                while (elements.size() < update.elementCount) {
+                    elements.add(null);
+                }
 
-                element.write(buf);
+                //elements without a known factory stay null, so the positions of later diffs still match
+                update.changedElements.forEach(elements::set);
             }
+
+            result.add(new GuiCraftingMonitor.CraftingMonitorTask(update.id,
+                    update.isNew ? update.requested : base.getRequested(),
+                    update.isNew ? update.qty : base.getQuantity(),
+                    update.executionTime, update.percentage, elements));
         }
+
+        return result;
     }
 
-    @Override
-    public IMessage onMessage(MessageCraftingMonitorElements message, MessageContext ctx) {
-        GuiBase.executeLater(GuiCraftingMonitor.class, monitor -> monitor.setTasks(message.tasks));
+    /**
+     * What a player watching a crafting monitor received so far.
+     */
+    public static class Baseline {
+        private boolean full = true;
+        private final Map<UUID, List<byte[]>> elements = new HashMap<>();
+        private final Object2LongMap<UUID> versions = new Object2LongOpenHashMap<>();
 
-        return null;
+        public Baseline() {
+            this.versions.defaultReturnValue(-1);
+        }
+
+        /**
+         * Makes the next message replace all tasks on the client.
+         */
+        public void reset() {
+            this.full = true;
+            this.elements.clear();
+            this.versions.clear();
+        }
+    }
+
+    private static class TaskUpdate {
+        private final UUID id;
+        private boolean isNew;
+        private ICraftingRequestInfo requested;
+        private long qty;
+        private long executionTime;
+        private int percentage;
+        private int elementCount = -1;
+        private final Int2ObjectMap<ICraftingMonitorElement> changedElements = new Int2ObjectOpenHashMap<>();
+
+        TaskUpdate(UUID id) {
+            this.id = id;
+        }
     }
 }
@@ -4,66 +4,114 @@ import com.raoulvdberge.refinedstorage.api.network.INetwork;
 import com.raoulvdberge.refinedstorage.api.util.IComparer;
 import com.raoulvdberge.refinedstorage.api.util.StackListEntry;
 import com.raoulvdberge.refinedstorage.api.util.StackListResult;
+import com.raoulvdberge.refinedstorage.apiimpl.storage.cache.listener.GridItemDelta;
+import com.raoulvdberge.refinedstorage.apiimpl.storage.cache.listener.GridItemStackDictionary;
 import com.raoulvdberge.refinedstorage.gui.GuiBase;
 import com.raoulvdberge.refinedstorage.gui.grid.GuiGrid;
+import com.raoulvdberge.refinedstorage.gui.grid.stack.GridItemStackDictionaryClient;
 import com.raoulvdberge.refinedstorage.gui.grid.stack.IGridStack;
-import com.raoulvdberge.refinedstorage.util.StackUtils;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import net.minecraft.item.ItemStack;
+import net.minecraftforge.fml.common.network.ByteBufUtils;
 import net.minecraftforge.fml.common.network.simpleimpl.IMessage;
 import net.minecraftforge.fml.common.network.simpleimpl.IMessageHandler;
 import net.minecraftforge.fml.common.network.simpleimpl.MessageContext;
 import org.apache.commons.lang3.tuple.Pair;
 
-import javax.annotation.Nullable;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 public class MessageGridItemDelta implements IMessage, IMessageHandler<MessageGridItemDelta, IMessage> {
-    @Nullable
-    private INetwork network;
-    private List<StackListResult<ItemStack>> deltas;
+    private byte[] encoded;
 
     private List<Pair<IGridStack, Long>> clientDeltas;
 
-    public MessageGridItemDelta(@Nullable INetwork network, List<StackListResult<ItemStack>> deltas) {
-        this.network = network;
-        this.deltas = deltas;
+    /**
+     * @param encoded the deltas as encoded by {@link #encode(GridItemStackDictionary, List)}
+     */
+    public MessageGridItemDelta(byte[] encoded) {
+        this.encoded = encoded;
     }
 
     public MessageGridItemDelta() {
     }
 
+    /**
+     * Looks up everything about the deltas that is the same for all grids watching the network.
+     *
+     * @param network the network
+     * @param deltas  the deltas
+     * @return the prepared deltas, to encode for every grid with {@link #encode(GridItemStackDictionary, List)}
+     */
+    public static List<GridItemDelta> prepare(INetwork network, List<StackListResult<ItemStack>> deltas) {
+        List<GridItemDelta> prepared = new ArrayList<>(deltas.size());
+
+        for (StackListResult<ItemStack> delta : deltas) {
+            StackListEntry<ItemStack> craftingEntry =
+                    network.getItemStorageCache().getCraftablesList().getEntry(delta.getStack(), IComparer.COMPARE_NBT | IComparer.COMPARE_DAMAGE);
+            StackListEntry<ItemStack> entry = network.getItemStorageCache().getList().get(delta.getId());
+
+            prepared.add(new GridItemDelta(delta,
+                    craftingEntry != null ? craftingEntry.getId() : null,
+                    network.getItemStorageTracker().get(delta.getStack()),
+                    entry == null || entry.getCount() <= 0));
+        }
+
+        return prepared;
+    }
+
+    /**
+     * Encodes prepared deltas for a grid watching the network.
+     *
+     * @param dictionary the dictionary of the grid
+     * @param deltas     the prepared deltas
+     * @return the encoded deltas
+     */
+    public static byte[] encode(GridItemStackDictionary dictionary, List<GridItemDelta> deltas) {
+        ByteBuf buf = Unpooled.buffer();
+
+        dictionary.writeSession(buf);
+        ByteBufUtils.writeVarInt(buf, deltas.size(), 5);
+
+        for (GridItemDelta delta : deltas) {
+            dictionary.writeDelta(buf, delta);
+        }
+
+        byte[] encoded = new byte[buf.readableBytes()];
+        buf.readBytes(encoded);
+
+        return encoded;
+    }
 
     @Override
     public void fromBytes(ByteBuf buf) {
-        int size = buf.readInt();
+        GridItemStackDictionaryClient dictionary = GridItemStackDictionaryClient.instance();
+
+        // Deltas of a grid that was open before the current one
+        if (!dictionary.readSession(buf)) {
+            this.clientDeltas = Collections.emptyList();
+
+            return;
+        }
+
+        int size = ByteBufUtils.readVarInt(buf, 5);
 
         this.clientDeltas = new ArrayList<>(size);
 
         for (int i = 0; i < size; ++i) {
-            long delta = buf.readLong();
-            clientDeltas.add(Pair.of(StackUtils.readItemGridStack(buf), delta));
+            Pair<IGridStack, Long> delta = dictionary.readDelta(buf);
+
+            if (delta != null) {
+                clientDeltas.add(delta);
+            }
         }
     }
 
     @Override
     public void toBytes(ByteBuf buf) {
-        buf.writeInt(deltas.size());
-
-        for (StackListResult<ItemStack> delta : deltas) {
-            buf.writeLong(delta.getChange());
-
-            StackListEntry<ItemStack> craftingEntry =
-                    network.getItemStorageCache().getCraftablesList().getEntry(delta.getStack(), IComparer.COMPARE_NBT | IComparer.COMPARE_DAMAGE);
-
-            //real count is 0 here because later in the postChange method it is ignored.
-            // If the stack doesn't exist then the count is set to the given delta, otherwise the existing stack is
-            // incremented by the given delta.
-            StackUtils.writeItemGridStack(buf, delta.getStack(), 0, delta.getId(),
-                    craftingEntry != null ? craftingEntry.getId() : null, false,
-                    network.getItemStorageTracker().get(delta.getStack()));
-        }
+        buf.writeBytes(encoded);
     }
 
     @Override
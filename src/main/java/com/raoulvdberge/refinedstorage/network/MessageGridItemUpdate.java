@@ -1,83 +1,89 @@
 package com.raoulvdberge.refinedstorage.network;
 
-import com.raoulvdberge.refinedstorage.api.network.INetwork;
-import com.raoulvdberge.refinedstorage.api.util.IComparer;
-import com.raoulvdberge.refinedstorage.api.util.StackListEntry;
 import com.raoulvdberge.refinedstorage.gui.GuiBase;
 import com.raoulvdberge.refinedstorage.gui.grid.GuiGrid;
+import com.raoulvdberge.refinedstorage.gui.grid.stack.GridItemStackDictionaryClient;
 import com.raoulvdberge.refinedstorage.gui.grid.stack.IGridStack;
 import com.raoulvdberge.refinedstorage.gui.grid.view.GridViewImpl;
 import com.raoulvdberge.refinedstorage.util.StackUtils;
 import io.netty.buffer.ByteBuf;
-import net.minecraft.item.ItemStack;
+import net.minecraftforge.fml.common.network.ByteBufUtils;
 import net.minecraftforge.fml.common.network.simpleimpl.IMessage;
 import net.minecraftforge.fml.common.network.simpleimpl.IMessageHandler;
 import net.minecraftforge.fml.common.network.simpleimpl.MessageContext;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.UUID;
 
+/**
+ * A page of the full update of a grid, see {@link com.raoulvdberge.refinedstorage.apiimpl.storage.cache.listener.GridItemSync}.
+ */
 public class MessageGridItemUpdate implements IMessage, IMessageHandler<MessageGridItemUpdate, IMessage> {
+    private byte[] encoded;
+
+    private boolean first;
     private boolean canCraft;
     private final List<IGridStack> stacks = new ArrayList<>();
-    private INetwork network;
-
+    private final List<UUID> removed = new ArrayList<>();
 
     public MessageGridItemUpdate() {
     }
 
-    public MessageGridItemUpdate(INetwork network, boolean canCraft) {
-        this.network = network;
-        this.canCraft = canCraft;
+    public MessageGridItemUpdate(byte[] encoded) {
+        this.encoded = encoded;
     }
 
-
     @Override
     public void fromBytes(ByteBuf buf) {
+        first = buf.readBoolean();
         canCraft = buf.readBoolean();
 
-        int size = buf.readInt();
+        GridItemStackDictionaryClient dictionary = GridItemStackDictionaryClient.instance();
 
-        for (int i = 0; i < size; ++i) {
-            stacks.add(StackUtils.readItemGridStack(buf));
+        if (first) {
+            dictionary.readNewSession(buf);
         }
-    }
-
-    @Override
-    public void toBytes(ByteBuf buf) {
-        buf.writeBoolean(canCraft);
 
-        int size = network.getItemStorageCache().getList().getStacks().size() +
-                network.getItemStorageCache().getCraftablesList().getStacks().size();
+        dictionary.readNames(buf);
 
-        buf.writeInt(size);
+        int size = ByteBufUtils.readVarInt(buf, 5);
 
-        for (StackListEntry<ItemStack> stack : network.getItemStorageCache().getList().getStacks()) {
-            StackListEntry<ItemStack> craftingEntry = network.getItemStorageCache().getCraftablesList()
-                    .getEntry(stack.getStack(), IComparer.COMPARE_NBT | IComparer.COMPARE_DAMAGE);
-
-            StackUtils.writeItemGridStack(buf, stack.getStack(), stack.getCount(), stack.getId(),
-                    craftingEntry != null ? craftingEntry.getId() : null, false,
-                    network.getItemStorageTracker().get(stack.getStack()));
+        for (int i = 0; i < size; ++i) {
+            stacks.add(dictionary.readStack(buf));
         }
 
-        for (StackListEntry<ItemStack> stack : network.getItemStorageCache().getCraftablesList().getStacks()) {
-            StackListEntry<ItemStack> regularEntry = network.getItemStorageCache().getList()
-                    .getEntry(stack.getStack(), IComparer.COMPARE_NBT | IComparer.COMPARE_DAMAGE);
+        size = ByteBufUtils.readVarInt(buf, 5);
 
-            StackUtils.writeItemGridStack(buf, stack.getStack(), stack.getCount(), stack.getId(),
-                    regularEntry != null ? regularEntry.getId() : null, true,
-                    network.getItemStorageTracker().get(stack.getStack()));
+        for (int i = 0; i < size; ++i) {
+            removed.add(StackUtils.readUUID(buf));
         }
     }
 
+    @Override
+    public void toBytes(ByteBuf buf) {
+        buf.writeBytes(encoded);
+    }
+
     @Override
     public IMessage onMessage(MessageGridItemUpdate message, MessageContext ctx) {
         GuiBase.executeLater(GuiGrid.class, grid -> {
-            grid.setView(new GridViewImpl(grid, GuiGrid.getDefaultSorter(), GuiGrid.getSorters()));
-            grid.getView().setCanCraft(message.canCraft);
-            grid.getView().setStacks(message.stacks);
-            grid.getView().sort();
+            if (message.first) {
+                grid.setView(new GridViewImpl(grid, GuiGrid.getDefaultSorter(), GuiGrid.getSorters()));
+                grid.getView().setCanCraft(message.canCraft);
+                grid.getView().setStacks(message.stacks);
+                grid.getView().sort();
+            } else {
+                grid.getView().addStacks(message.stacks);
+
+                for (UUID id : message.removed) {
+                    IGridStack stack = grid.getView().get(id);
+
+                    if (stack != null) {
+                        grid.getView().postChange(stack, -stack.getCount());
+                    }
+                }
+            }
         });
 
         return null;
@@ -2,6 +2,7 @@ package com.raoulvdberge.refinedstorage.network;
 
 import com.raoulvdberge.refinedstorage.api.network.grid.GridType;
 import com.raoulvdberge.refinedstorage.api.network.grid.IGrid;
+import com.raoulvdberge.refinedstorage.apiimpl.network.node.NetworkNodeGrid;
 import com.raoulvdberge.refinedstorage.container.ContainerGrid;
 import com.raoulvdberge.refinedstorage.container.slot.filter.SlotFilter;
 import io.netty.buffer.ByteBuf;
@@ -61,6 +62,11 @@ public class MessageGridPatternSlotScroll extends MessageHandlerPlayerToServer<M
         if (newStackSize != slot.getStack().getCount()) {
             slot.getStack().setCount(newStackSize);
             slot.onSlotChanged();
+
+            // Resizing in place doesn't notify the inventory listener
+            if (grid instanceof NetworkNodeGrid) {
+                ((NetworkNodeGrid) grid).markNetworkNodeDirty();
+            }
         }
     }
 }
@@ -6,6 +6,7 @@ import com.raoulvdberge.refinedstorage.RSItems;
 import com.raoulvdberge.refinedstorage.RSTriggers;
 import com.raoulvdberge.refinedstorage.api.storage.StorageType;
 import com.raoulvdberge.refinedstorage.apiimpl.API;
+import com.raoulvdberge.refinedstorage.apiimpl.autocrafting.CraftingRecipeIndex;
 import com.raoulvdberge.refinedstorage.apiimpl.autocrafting.craftingmonitor.CraftingMonitorElementError;
 import com.raoulvdberge.refinedstorage.apiimpl.autocrafting.craftingmonitor.CraftingMonitorElementFluidRender;
 import com.raoulvdberge.refinedstorage.apiimpl.autocrafting.craftingmonitor.CraftingMonitorElementItemRender;
@@ -37,6 +38,7 @@ import com.raoulvdberge.refinedstorage.integration.funkylocomotion.MoveFactoryRe
 import com.raoulvdberge.refinedstorage.integration.inventorysorter.IntegrationInventorySorter;
 import com.raoulvdberge.refinedstorage.integration.oc.DriverNetwork;
 import com.raoulvdberge.refinedstorage.integration.oc.IntegrationOC;
+import com.raoulvdberge.refinedstorage.item.ItemPattern;
 import com.raoulvdberge.refinedstorage.item.ItemProcessor;
 import com.raoulvdberge.refinedstorage.item.ItemUpgrade;
 import com.raoulvdberge.refinedstorage.item.wrench.WrenchClickBlockListener;
@@ -348,6 +350,12 @@ public class ProxyCommon {
         }
     }
 
+    @SubscribeEvent
+    public void onWorldUnload(WorldEvent.Unload e) {
+        ItemPattern.clearPatternCache();
+        CraftingRecipeIndex.invalidate();
+    }
+
     @SubscribeEvent
     public void fixItemMappings(RegistryEvent.MissingMappings<Item> e) {
         for (RegistryEvent.MissingMappings.Mapping<Item> missing : e.getMappings()) {
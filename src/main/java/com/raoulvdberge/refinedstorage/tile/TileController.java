@@ -23,7 +23,10 @@ import com.raoulvdberge.refinedstorage.api.storage.IStorageCache;
 import com.raoulvdberge.refinedstorage.api.storage.externalstorage.IStorageExternal;
 import com.raoulvdberge.refinedstorage.api.storage.tracker.IStorageTracker;
 import com.raoulvdberge.refinedstorage.api.util.Action;
+import com.raoulvdberge.refinedstorage.api.util.IStackList;
+import com.raoulvdberge.refinedstorage.api.util.StackListEntry;
 import com.raoulvdberge.refinedstorage.api.util.StackListResult;
+import com.raoulvdberge.refinedstorage.apiimpl.API;
 import com.raoulvdberge.refinedstorage.apiimpl.autocrafting.CraftingManager;
 import com.raoulvdberge.refinedstorage.apiimpl.energy.Energy;
 import com.raoulvdberge.refinedstorage.apiimpl.network.NetworkNodeGraph;
@@ -31,6 +34,7 @@ import com.raoulvdberge.refinedstorage.apiimpl.network.grid.handler.FluidGridHan
 import com.raoulvdberge.refinedstorage.apiimpl.network.grid.handler.ItemGridHandler;
 import com.raoulvdberge.refinedstorage.apiimpl.network.item.NetworkItemHandler;
 import com.raoulvdberge.refinedstorage.apiimpl.network.node.ICoverable;
+import com.raoulvdberge.refinedstorage.apiimpl.network.node.NetworkNode;
 import com.raoulvdberge.refinedstorage.apiimpl.network.readerwriter.ReaderWriterManager;
 import com.raoulvdberge.refinedstorage.apiimpl.network.security.SecurityManager;
 import com.raoulvdberge.refinedstorage.apiimpl.storage.cache.StorageCacheFluid;
@@ -48,6 +52,8 @@ import com.raoulvdberge.refinedstorage.tile.data.RSSerializers;
 import com.raoulvdberge.refinedstorage.tile.data.TileDataParameter;
 import com.raoulvdberge.refinedstorage.util.StackUtils;
 import com.raoulvdberge.refinedstorage.util.WorldUtils;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
 import net.minecraft.block.state.IBlockState;
 import net.minecraft.item.Item;
 import net.minecraft.item.ItemStack;
@@ -66,8 +72,12 @@ import net.minecraftforge.fluids.FluidStack;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Predicate;
 
 import static com.raoulvdberge.refinedstorage.capability.CapabilityNetworkNodeProxy.NETWORK_NODE_PROXY_CAPABILITY;
@@ -140,7 +150,7 @@ public class TileController extends TileBase
 
     private final ISecurityManager securityManager = new SecurityManager(this);
 
-    private final IStorageCache<ItemStack> itemStorage = new StorageCacheItem(this);
+    private final StorageCacheItem itemStorage = new StorageCacheItem(this);
     private final StorageTrackerItem itemStorageTracker = new StorageTrackerItem(this::markNetworkNodeDirty);
 
     private final IStorageCache<FluidStack> fluidStorage = new StorageCacheFluid(this);
@@ -156,6 +166,18 @@ public class TileController extends TileBase
     private int ticksSinceUpdateChanged;
     private int lastEnergyUsage;
 
+    /**
+     * The energy usage of every node, updated when a node marks its usage as changed. Rebuilt when the nodes change.
+     */
+    private final Object2IntMap<INetworkNode> nodeEnergyUsages = new Object2IntOpenHashMap<>();
+    private final Set<INetworkNode> nodeEnergyUsagesDirty = ConcurrentHashMap.newKeySet();
+    private Collection<INetworkNode> nodeEnergyUsagesNodes;
+    private int nodeEnergyUsage;
+    /**
+     * Nodes that aren't a {@link NetworkNode} might not mark their usage as changed, they are asked every tick
+     */
+    private final List<INetworkNode> untrackedEnergyUsageNodes = new ArrayList<>();
+
     private ControllerType type;
     private ControllerEnergyType energyType = ControllerEnergyType.OFF;
 
@@ -200,10 +222,6 @@ public class TileController extends TileBase
                 craftingManager.update();
 
                 readerWriterManager.update();
-
-                if (!craftingManager.getTasks().isEmpty()) {
-                    markNetworkNodeDirty();
-                }
             }
 
             if (getType() == ControllerType.NORMAL) {
@@ -241,6 +259,8 @@ public class TileController extends TileBase
 
                 WorldUtils.updateBlock(world, pos);
             }
+
+            itemStorage.getGridDeltaBroadcaster().flush();
         }
     }
 
@@ -256,12 +276,13 @@ public class TileController extends TileBase
             return new StackListResult<>(stack.copy(), size);
         }
 
-        StackListResult<ItemStack> remainder = null;
+        // full storages are skipped by the routing index, so nothing might get visited at all
+        StackListResult<ItemStack> remainder = new StackListResult<>(stack.copy(), size);
 
         long inserted = 0;
         long insertedExternally = 0;
 
-        for (IStorage<ItemStack> storage : this.itemStorage.getStorages()) {
+        for (IStorage<ItemStack> storage : this.itemStorage.getRoutingIndex().getInsertTargets(stack)) {
             if (storage.getAccessType() == AccessType.EXTRACT) {
                 continue;
             }
@@ -271,6 +292,8 @@ public class TileController extends TileBase
             remainder = storage.insert(stack, size, action);
 
             if (action == Action.PERFORM) {
+                itemStorage.getRoutingIndex().onInserted(storage, stack, remainder == null ? size : size - remainder.getCount());
+
                 inserted += storage.getCacheDelta(storedPre, size, remainder == null ? 0 : remainder.getCount());
             }
 
@@ -311,7 +334,7 @@ public class TileController extends TileBase
 
         StackListResult<ItemStack> newStack = null;
 
-        for (IStorage<ItemStack> storage : this.itemStorage.getStorages()) {
+        for (IStorage<ItemStack> storage : this.itemStorage.getRoutingIndex().getExtractTargets(stack)) {
             StackListResult<ItemStack> took = null;
 
             if (filter.test(storage) && storage.getAccessType() != AccessType.INSERT) {
@@ -319,6 +342,10 @@ public class TileController extends TileBase
             }
 
             if (took != null) {
+                if (action == Action.PERFORM) {
+                    itemStorage.getRoutingIndex().onExtracted(storage, took.getStack(), took.getCount());
+                }
+
                 // The external storage is responsible for sending changes, we don't need to anymore
                 if (storage instanceof IStorageExternal && action == Action.PERFORM) {
                     ((IStorageExternal<?>) storage).update(this);
@@ -347,6 +374,60 @@ public class TileController extends TileBase
         return newStack;
     }
 
+    @Nonnull
+    @Override
+    public synchronized List<StackListResult<ItemStack>> extractItems(@Nonnull ItemStack stack, long size, int flags, Action action) {
+        IStackList<ItemStack> extracted = API.instance().createItemStackList();
+        long received = 0;
+        boolean removed = false;
+
+        for (IStorage<ItemStack> storage : this.itemStorage.getRoutingIndex().getExtractTargets(stack)) {
+            if (storage.getAccessType() == AccessType.INSERT) {
+                continue;
+            }
+
+            List<StackListResult<ItemStack>> took = storage.extractAll(stack, size - received, flags, action);
+            if (took.isEmpty()) {
+                continue;
+            }
+
+            for (StackListResult<ItemStack> result : took) {
+                if (action == Action.PERFORM) {
+                    itemStorage.getRoutingIndex().onExtracted(storage, result.getStack(), result.getCount());
+
+                    // The external storage is responsible for sending changes, we don't need to anymore
+                    if (!(storage instanceof IStorageExternal)) {
+                        itemStorage.remove(result.getStack(), result.getCount(), true);
+                        removed = true;
+                    }
+                }
+
+                extracted.add(result.getStack(), result.getCount());
+                received += result.getCount();
+            }
+
+            if (storage instanceof IStorageExternal && action == Action.PERFORM) {
+                ((IStorageExternal<?>) storage).update(this);
+            }
+
+            if (size == received) {
+                break;
+            }
+        }
+
+        // All stacks are sent to the listeners as one change
+        if (removed) {
+            itemStorage.flush();
+        }
+
+        List<StackListResult<ItemStack>> results = new ArrayList<>();
+        for (StackListEntry<ItemStack> entry : extracted.getStacks()) {
+            results.add(new StackListResult<>(entry.getStack().copy(), entry.getCount()));
+        }
+
+        return results;
+    }
+
     @Nullable
     @Override
     public synchronized StackListResult<FluidStack> insertFluid(@Nonnull FluidStack stack, long size, Action action) {
@@ -644,17 +725,62 @@ public class TileController extends TileBase
             return;
         }
 
-        int usage = RS.INSTANCE.config.controllerBaseUsage;
+        Collection<INetworkNode> nodes = nodeGraph.all();
+
+        if (nodes != nodeEnergyUsagesNodes) {
+            this.nodeEnergyUsagesNodes = nodes;
+            this.nodeEnergyUsagesDirty.clear();
+            this.nodeEnergyUsages.clear();
+            this.untrackedEnergyUsageNodes.clear();
+            this.nodeEnergyUsage = 0;
+
+            for (INetworkNode node : nodes) {
+                if (node == this) {
+                    continue;
+                }
+
+                if (node instanceof NetworkNode) {
+                    int usage = getEnergyUsage(node);
+
+                    nodeEnergyUsages.put(node, usage);
+                    nodeEnergyUsage += usage;
+                } else {
+                    untrackedEnergyUsageNodes.add(node);
+                }
+            }
+        } else if (!nodeEnergyUsagesDirty.isEmpty()) {
+            Iterator<INetworkNode> it = nodeEnergyUsagesDirty.iterator();
+
+            while (it.hasNext()) {
+                INetworkNode node = it.next();
+                it.remove();
 
-        for (INetworkNode node : nodeGraph.all()) {
-            if (node.isEnabled()) {
-                usage += node.getEnergyUsage();
+                if (nodeEnergyUsages.containsKey(node)) {
+                    int usage = getEnergyUsage(node);
+
+                    nodeEnergyUsage += usage - nodeEnergyUsages.put(node, usage);
+                }
             }
         }
 
+        int usage = RS.INSTANCE.config.controllerBaseUsage + nodeEnergyUsage;
+
+        for (INetworkNode node : untrackedEnergyUsageNodes) {
+            usage += getEnergyUsage(node);
+        }
+
         this.lastEnergyUsage = usage;
     }
 
+    private static int getEnergyUsage(INetworkNode node) {
+        return node.isEnabled() ? node.getEnergyUsage() : 0;
+    }
+
+    @Override
+    public void markEnergyUsageDirty(INetworkNode node) {
+        nodeEnergyUsagesDirty.add(node);
+    }
+
     private void updateRedstoneMode() {
         this.redstoneModeEnabled = this.redstoneMode.isEnabled(world, pos);
     }
@@ -15,10 +15,12 @@ import com.raoulvdberge.refinedstorage.inventory.listener.ListenerNetworkNode;
 import com.raoulvdberge.refinedstorage.tile.data.TileDataParameter;
 import com.raoulvdberge.refinedstorage.tile.data.TileDataParameterClientListener;
 import com.raoulvdberge.refinedstorage.util.StackUtils;
+import net.minecraft.item.Item;
 import net.minecraft.item.ItemStack;
 import net.minecraft.nbt.NBTTagCompound;
 import net.minecraft.network.datasync.DataSerializers;
 import net.minecraft.tileentity.TileEntity;
+import net.minecraftforge.fluids.Fluid;
 import net.minecraftforge.fluids.FluidStack;
 import net.minecraftforge.items.IItemHandlerModifiable;
 
@@ -26,7 +28,9 @@ import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.IntConsumer;
@@ -72,6 +76,9 @@ public class FilterConfig {
     private FluidInventory fluidFilters;
     private List<ItemStack> itemStacks;
     private List<FluidStack> fluidStacks;
+    //the filter stacks grouped by item or fluid, only stacks in the same group can be equal
+    private Map<Item, List<ItemStack>> itemStacksByItem;
+    private Map<Fluid, List<FluidStack>> fluidStacksByFluid;
 
     //compare
     private int compare;
@@ -85,6 +92,7 @@ public class FilterConfig {
 
     private Function<FilterType, FilterType> customFilterTypeSupplier;
     private Consumer<FilterType> filterTypeChangedListener;
+    private Runnable filterChangedListener;
 
     private FilterConfig(@Nonnull INetworkNode node, int itemFilterSize, int fluidFilterSize, int initialCompare, @Nonnull FilterType allowedFilterType, @Nonnull FilterMode allowedFilterMode, @Nonnull FilterMode initialFilterMode, @Nonnull FilterType initialFilterType) {
         this.node = node;
@@ -126,6 +134,7 @@ public class FilterConfig {
                         itemFilterListener.accept(slot);
 
                     invalidateCache();
+                    onFilterChanged();
                 }
             };
         }
@@ -141,6 +150,7 @@ public class FilterConfig {
                         fluidFilterListener.accept(slot);
 
                     invalidateCache();
+                    onFilterChanged();
                 }
             };
         }
@@ -157,17 +167,32 @@ public class FilterConfig {
         if (this.itemStacks.isEmpty())
             return isBlacklistMode();
 
-        for (ItemStack filterStack : this.itemStacks) {
-            boolean equal = API.instance().getComparer().isEqual(stack, filterStack, compareValue);
-            if (equal && isWhitelistMode())
-                return true;
-            if (equal && isBlacklistMode())
-                return false;
+        List<ItemStack> candidates = this.itemStacksByItem.get(stack.getItem());
+        if (candidates != null) {
+            IComparer comparer = API.instance().getComparer();
+            for (ItemStack filterStack : candidates) {
+                if (comparer.isEqual(stack, filterStack, compareValue))
+                    return isWhitelistMode();
+            }
         }
 
         return isBlacklistMode();
     }
 
+    /**
+     * @param item the item
+     * @return false if no stack of the item is accepted, true if some may be
+     */
+    public boolean mayAcceptItem(@Nonnull Item item) {
+        if (this.itemStacks == null)
+            return false;
+
+        if (isWhitelistMode())
+            return this.itemStacksByItem.containsKey(item);
+
+        return isBlacklistMode();
+    }
+
     public boolean acceptsFluid(@Nullable FluidStack stack) {
         int compareValue = !usesCompare() ? IComparer.COMPARE_DAMAGE | IComparer.COMPARE_NBT : getCompare();
 
@@ -177,12 +202,13 @@ public class FilterConfig {
         if (this.fluidStacks.isEmpty())
             return isBlacklistMode();
 
-        for (FluidStack filterStack : this.fluidStacks) {
-            boolean equal = API.instance().getComparer().isEqual(stack, filterStack, compareValue);
-            if (equal && isWhitelistMode())
-                return true;
-            if (equal && isBlacklistMode())
-                return false;
+        List<FluidStack> candidates = this.fluidStacksByFluid.get(stack.getFluid());
+        if (candidates != null) {
+            IComparer comparer = API.instance().getComparer();
+            for (FluidStack filterStack : candidates) {
+                if (comparer.isEqual(stack, filterStack, compareValue))
+                    return isWhitelistMode();
+            }
         }
 
         return isBlacklistMode();
@@ -191,32 +217,38 @@ public class FilterConfig {
     public void invalidateCache() {
         if (this.allowedFilterType == FilterType.ITEMS || this.allowedFilterType == FilterType.ITEMS_AND_FLUIDS) {
             this.itemStacks = new ArrayList<>();
+            this.itemStacksByItem = new IdentityHashMap<>();
             for (int i = 0; i < this.itemFilters.getSlots(); i++) {
                 ItemStack stack = this.itemFilters.getStackInSlot(i);
                 if (stack.isEmpty())
                     continue;
 
                 this.itemStacks.add(stack);
+                this.itemStacksByItem.computeIfAbsent(stack.getItem(), k -> new ArrayList<>(1)).add(stack);
             }
 
             this.itemStacks = Collections.unmodifiableList(this.itemStacks);
         } else {
             this.itemStacks = null;
+            this.itemStacksByItem = null;
         }
 
         if (this.allowedFilterType == FilterType.FLUIDS || this.allowedFilterType == FilterType.ITEMS_AND_FLUIDS) {
             this.fluidStacks = new ArrayList<>();
+            this.fluidStacksByFluid = new IdentityHashMap<>();
             for (int i = 0; i < this.fluidFilters.getSlots(); i++) {
                 FluidStack stack = this.fluidFilters.getFluid(i);
                 if (stack == null || stack.amount < 1)
                     continue;
 
                 this.fluidStacks.add(stack);
+                this.fluidStacksByFluid.computeIfAbsent(stack.getFluid(), k -> new ArrayList<>(1)).add(stack);
             }
 
             this.fluidStacks = Collections.unmodifiableList(this.fluidStacks);
         } else {
             this.fluidStacks = null;
+            this.fluidStacksByFluid = null;
         }
     }
 
@@ -235,6 +267,8 @@ public class FilterConfig {
             throw new UnsupportedOperationException();
         this.filterMode = filterMode;
 
+        onFilterChanged();
+
         this.node.markNetworkNodeDirty();
     }
 
@@ -266,6 +300,15 @@ public class FilterConfig {
         this.filterTypeChangedListener = onFilterTypeChanged;
     }
 
+    private void setFilterChangedListener(@Nullable Runnable filterChangedListener) {
+        this.filterChangedListener = filterChangedListener;
+    }
+
+    private void onFilterChanged() {
+        if (this.filterChangedListener != null)
+            this.filterChangedListener.run();
+    }
+
     public boolean isItemFilterEmpty() {
         return this.itemStacks.isEmpty();
     }
@@ -495,6 +538,7 @@ public class FilterConfig {
 
         private Function<FilterType, FilterType> customFilterTypeSupplier;
         private Consumer<FilterType> filterTypeChangedListener;
+        private Runnable filterChangedListener;
 
         public Builder(@Nonnull INetworkNode node) {
             this.node = node;
@@ -602,6 +646,15 @@ public class FilterConfig {
             return this;
         }
 
+        /**
+         * @param listener called when a filter stack or the filter mode changes, i.e. when what the node accepts may
+         *                 have changed
+         */
+        public Builder onFilterChanged(@Nonnull Runnable listener) {
+            this.filterChangedListener = listener;
+            return this;
+        }
+
         @Nonnull
         public FilterConfig build() {
             FilterConfig filterConfig = new FilterConfig(this.node, this.itemFilterSize, this.fluidFilterSize, this.compare, this.filterType, this.filterMode, this.initialFilterMode, this.initialFilterType);
@@ -609,6 +662,7 @@ public class FilterConfig {
             filterConfig.setFluidFilterChangedListener(this.fluidFilterChangedListener);
             filterConfig.setCustomFilterTypeSupplier(this.customFilterTypeSupplier);
             filterConfig.setFilterTypeChangedListener(this.filterTypeChangedListener);
+            filterConfig.setFilterChangedListener(this.filterChangedListener);
             return filterConfig;
         }
 
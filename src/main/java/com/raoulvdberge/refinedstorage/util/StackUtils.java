@@ -92,6 +92,60 @@ public final class StackUtils {
         }
     }
 
+    /**
+     * Writes a long using 7 bits per byte, small values take less space.
+     *
+     * @param buf   the buffer
+     * @param value the value, negative values always take 10 bytes, see {@link #writeSignedVarLong(ByteBuf, long)}
+     */
+    public static void writeVarLong(ByteBuf buf, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buf.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+
+        buf.writeByte((int) value);
+    }
+
+    public static long readVarLong(ByteBuf buf) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+
+        do {
+            b = buf.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+
+        return value;
+    }
+
+    /**
+     * Writes a long using zigzag encoding, so small negative values take as little space as small positive values.
+     *
+     * @param buf   the buffer
+     * @param value the value
+     */
+    public static void writeSignedVarLong(ByteBuf buf, long value) {
+        writeVarLong(buf, (value << 1) ^ (value >> 63));
+    }
+
+    public static long readSignedVarLong(ByteBuf buf) {
+        long value = readVarLong(buf);
+
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    public static void writeUUID(ByteBuf buf, UUID id) {
+        buf.writeLong(id.getMostSignificantBits());
+        buf.writeLong(id.getLeastSignificantBits());
+    }
+
+    public static UUID readUUID(ByteBuf buf) {
+        return new UUID(buf.readLong(), buf.readLong());
+    }
+
     public static GridStackItem readItemGridStack(ByteBuf buf) {
         ItemStack stack = readItemStack(buf);
         long realCount = buf.readLong();
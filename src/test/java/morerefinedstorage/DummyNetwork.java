@@ -0,0 +1,65 @@
+package morerefinedstorage;
+
+import com.raoulvdberge.refinedstorage.api.autocrafting.ICraftingManager;
+import com.raoulvdberge.refinedstorage.api.network.INetwork;
+import com.raoulvdberge.refinedstorage.api.network.INetworkNodeVisitor;
+import com.raoulvdberge.refinedstorage.api.network.node.INetworkNode;
+import net.minecraft.util.EnumFacing;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
+
+import javax.annotation.Nullable;
+import java.lang.reflect.Array;
+import java.lang.reflect.Proxy;
+
+/**
+ * A network that only knows its world, position and crafting manager. It's also the controller node, which conducts
+ * on every side. Every other method returns the default value of its return type.
+ */
+public final class DummyNetwork {
+
+    private DummyNetwork() {
+    }
+
+    public static INetwork create(World world, BlockPos pos) {
+        return create(world, pos, null);
+    }
+
+    public static INetwork create(@Nullable ICraftingManager craftingManager) {
+        return create(null, null, craftingManager);
+    }
+
+    public static INetwork create(@Nullable World world, @Nullable BlockPos pos, @Nullable ICraftingManager craftingManager) {
+        return (INetwork) Proxy.newProxyInstance(
+                DummyNetwork.class.getClassLoader(),
+                new Class<?>[]{INetwork.class, INetworkNode.class, INetworkNodeVisitor.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "world":
+                            return world;
+                        case "getPosition":
+                            return pos;
+                        case "getCraftingManager":
+                            return craftingManager;
+                        case "canConduct":
+                            return true;
+                        case "visit":
+                            for (EnumFacing facing : EnumFacing.VALUES) {
+                                ((INetworkNodeVisitor.Operator) args[0]).apply(world, pos.offset(facing), facing.getOpposite());
+                            }
+
+                            return null;
+                        case "equals":
+                            return proxy == args[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "toString":
+                            return "network";
+                        default:
+                            return method.getReturnType().isPrimitive() && method.getReturnType() != void.class
+                                    ? Array.get(Array.newInstance(method.getReturnType(), 1), 0)
+                                    : null;
+                    }
+                });
+    }
+}
@@ -1,12 +1,38 @@
 package morerefinedstorage;
 
+import com.raoulvdberge.refinedstorage.api.network.node.INetworkNodeProxy;
+import com.raoulvdberge.refinedstorage.capability.CapabilityNetworkNodeProxy;
 import net.minecraft.init.Bootstrap;
+import net.minecraftforge.common.capabilities.CapabilityInject;
+import net.minecraftforge.common.capabilities.CapabilityManager;
+import net.minecraftforge.fml.common.discovery.ASMDataTable;
 import org.junit.jupiter.api.BeforeAll;
+import org.objectweb.asm.Type;
+
+import java.util.Collections;
 
 public interface MinecraftForgeTest {
 
     @BeforeAll
     static void setup() {
         Bootstrap.register();
+
+        registerCapabilities();
+    }
+
+    /**
+     * Forge injects the capabilities while loading the mods, this feeds it the annotation data it would have found
+     */
+    static void registerCapabilities() {
+        if (CapabilityNetworkNodeProxy.NETWORK_NODE_PROXY_CAPABILITY != null) {
+            return;
+        }
+
+        ASMDataTable data = new ASMDataTable();
+        data.addASMData(null, CapabilityInject.class.getName(), CapabilityNetworkNodeProxy.class.getName(),
+                "NETWORK_NODE_PROXY_CAPABILITY", Collections.singletonMap("value", Type.getType(INetworkNodeProxy.class)));
+
+        CapabilityManager.INSTANCE.injectCapabilities(data);
+        CapabilityNetworkNodeProxy.register();
     }
 }
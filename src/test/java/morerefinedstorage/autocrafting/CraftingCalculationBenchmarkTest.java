@@ -0,0 +1,227 @@
+package morerefinedstorage.autocrafting;
+
+import com.raoulvdberge.refinedstorage.api.autocrafting.ICraftingManager;
+import com.raoulvdberge.refinedstorage.api.autocrafting.ICraftingPattern;
+import com.raoulvdberge.refinedstorage.api.network.INetwork;
+import com.raoulvdberge.refinedstorage.api.util.StackListResult;
+import com.raoulvdberge.refinedstorage.apiimpl.API;
+import com.raoulvdberge.refinedstorage.apiimpl.autocrafting.engine.task.CalculationContext;
+import com.raoulvdberge.refinedstorage.apiimpl.autocrafting.engine.task.CalculationResult;
+import com.raoulvdberge.refinedstorage.apiimpl.autocrafting.engine.task.ICalculationStock;
+import com.raoulvdberge.refinedstorage.apiimpl.autocrafting.engine.task.ProcessingTask;
+import com.raoulvdberge.refinedstorage.apiimpl.autocrafting.engine.task.Task;
+import morerefinedstorage.DummyNetwork;
+import morerefinedstorage.MinecraftForgeTest;
+import net.minecraft.init.Items;
+import net.minecraft.item.ItemStack;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.util.NonNullList;
+import net.minecraftforge.fluids.FluidStack;
+import org.junit.jupiter.api.Test;
+
+import javax.annotation.Nonnull;
+import java.lang.reflect.Proxy;
+import java.util.*;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Benchmark for the calculation of a deep crafting tree. Every intermediate is made from two items of the next level,
+ * and neighbouring intermediates share one of them, so the same patterns are needed by many branches.
+ */
+public class CraftingCalculationBenchmarkTest implements MinecraftForgeTest {
+
+    private static final int DEPTH = 14;
+    private static final int WIDTH = 4;
+
+    @Test
+    public void testDeepTree() {
+        List<ICraftingPattern> patterns = new ArrayList<>();
+        for (int level = 0; level < DEPTH; level++) {
+            for (int i = 0; i < WIDTH; i++) {
+                patterns.add(new FakePattern(
+                        createItem(level, i),
+                        createItem(level + 1, i),
+                        createItem(level + 1, (i + 1) % WIDTH)
+                ));
+            }
+        }
+
+        INetwork network = createNetwork(patterns);
+        ICraftingPattern root = patterns.get(0);
+
+        CalculationContext context = new CalculationContext(network, new InfiniteStock(DEPTH), Long.MAX_VALUE);
+        Task rootTask = new ProcessingTask(root, API.instance().createCraftingRequestInfo(createItem(0, 0), 1), context);
+
+        context.enter(root);
+        CalculationResult result = rootTask.calculate(context);
+
+        assertNull(result.getError());
+        assertTrue(result.getMissingItemStacks().isEmpty());
+
+        // Every item needs two of the next level, no matter how the tasks for a level are split up
+        long[] crafted = new long[DEPTH];
+        for (Task task : result.getNewTasks()) {
+            crafted[task.getPattern().getOutputs().get(0).getTagCompound().getInteger("Level")] += task.getAmountNeeded();
+        }
+
+        for (int level = 1; level < DEPTH; level++) {
+            assertEquals(1L << level, crafted[level]);
+        }
+
+        // Only the first lookup of every intermediate from every pattern has to search the patterns
+        assertTrue(context.getMemoizedPatternLookups() > context.getPatternLookups() * 9 / 10);
+    }
+
+    private static ItemStack createItem(int level, int index) {
+        ItemStack stack = new ItemStack(Items.PAPER);
+        NBTTagCompound tag = new NBTTagCompound();
+        tag.setInteger("Level", level);
+        tag.setInteger("Index", index);
+        stack.setTagCompound(tag);
+
+        return stack;
+    }
+
+    private static INetwork createNetwork(List<ICraftingPattern> patterns) {
+        ICraftingManager craftingManager = (ICraftingManager) Proxy.newProxyInstance(
+                ICraftingManager.class.getClassLoader(),
+                new Class[]{ICraftingManager.class},
+                (proxy, method, args) -> {
+                    if (!method.getName().equals("getPattern") || !(args[0] instanceof ItemStack)) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+
+                    @SuppressWarnings("unchecked")
+                    Predicate<ICraftingPattern> filter = args[args.length - 1] instanceof Predicate ?
+                            (Predicate<ICraftingPattern>) args[args.length - 1] : p -> true;
+
+                    for (ICraftingPattern pattern : patterns) {
+                        if (filter.test(pattern) &&
+                                API.instance().getComparer().isEqualNoQuantity(pattern.getOutputs().get(0), (ItemStack) args[0])) {
+                            return pattern;
+                        }
+                    }
+
+                    return null;
+                });
+
+        return DummyNetwork.create(craftingManager);
+    }
+
+    /**
+     * Has any amount of the items of the last level, and nothing else.
+     */
+    private static class InfiniteStock implements ICalculationStock {
+        private final int rawLevel;
+
+        InfiniteStock(int rawLevel) {
+            this.rawLevel = rawLevel;
+        }
+
+        @Override
+        public StackListResult<ItemStack> extractItem(@Nonnull ItemStack stack, long size, int flags) {
+            if (stack.getTagCompound() == null || stack.getTagCompound().getInteger("Level") != rawLevel) {
+                return null;
+            }
+
+            return new StackListResult<>(stack.copy(), size);
+        }
+
+        @Override
+        public StackListResult<FluidStack> extractFluid(@Nonnull FluidStack stack, long size) {
+            return null;
+        }
+
+        @Override
+        public void insertItem(@Nonnull ItemStack stack, long size) {
+        }
+
+        @Override
+        public void insertFluid(@Nonnull FluidStack stack, long size) {
+        }
+    }
+
+    private static class FakePattern implements ICraftingPattern {
+        private final String id = UUID.randomUUID().toString();
+        private final NonNullList<ItemStack> outputs = NonNullList.create();
+        private final List<NonNullList<ItemStack>> inputs = new ArrayList<>();
+
+        FakePattern(ItemStack output, ItemStack... inputs) {
+            this.outputs.add(output);
+
+            for (ItemStack input : inputs) {
+                NonNullList<ItemStack> possibilities = NonNullList.create();
+                possibilities.add(input);
+
+                this.inputs.add(possibilities);
+            }
+        }
+
+        @Override
+        public ItemStack getStack() {
+            return ItemStack.EMPTY;
+        }
+
+        @Override
+        public boolean isValid() {
+            return true;
+        }
+
+        @Override
+        public boolean isProcessing() {
+            return true;
+        }
+
+        @Override
+        public boolean isOredict() {
+            return false;
+        }
+
+        @Override
+        public List<NonNullList<ItemStack>> getInputs() {
+            return inputs;
+        }
+
+        @Override
+        public NonNullList<ItemStack> getOutputs() {
+            return outputs;
+        }
+
+        @Override
+        public ItemStack getOutput(NonNullList<ItemStack> took) {
+            return outputs.get(0);
+        }
+
+        @Override
+        public NonNullList<ItemStack> getByproducts() {
+            return NonNullList.create();
+        }
+
+        @Override
+        public NonNullList<ItemStack> getByproducts(NonNullList<ItemStack> took) {
+            return NonNullList.create();
+        }
+
+        @Override
+        public NonNullList<FluidStack> getFluidInputs() {
+            return NonNullList.create();
+        }
+
+        @Override
+        public NonNullList<FluidStack> getFluidOutputs() {
+            return NonNullList.create();
+        }
+
+        @Override
+        public String getId() {
+            return id;
+        }
+
+        @Override
+        public boolean canBeInChainWith(ICraftingPattern other) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package morerefinedstorage.autocrafting;
+
+import com.raoulvdberge.refinedstorage.apiimpl.autocrafting.CraftingRecipeIndex;
+import morerefinedstorage.MinecraftForgeTest;
+import net.minecraft.entity.player.EntityPlayer;
+import net.minecraft.init.Blocks;
+import net.minecraft.init.Items;
+import net.minecraft.inventory.Container;
+import net.minecraft.inventory.InventoryCrafting;
+import net.minecraft.item.ItemStack;
+import net.minecraft.item.crafting.*;
+import net.minecraftforge.oredict.OreDictionary;
+import org.junit.jupiter.api.Test;
+
+import javax.annotation.Nonnull;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CraftingRecipeIndexTest implements MinecraftForgeTest {
+
+    @Test
+    public void testSameResultAsLinearSearch() {
+        int checked = 0;
+
+        for (IRecipe recipe : CraftingManager.REGISTRY) {
+            InventoryCrafting inv = createGrid(recipe);
+            if (inv == null) {
+                continue;
+            }
+
+            assertSame(findLinear(inv), CraftingRecipeIndex.findMatchingRecipe(inv, null), recipe.getRegistryName().toString());
+
+            checked++;
+        }
+
+        assertTrue(checked > 100);
+    }
+
+    @Test
+    public void testNoMatch() {
+        InventoryCrafting inv = createInventory();
+        inv.setInventorySlotContents(0, new ItemStack(Blocks.DIRT));
+        inv.setInventorySlotContents(8, new ItemStack(Items.DIAMOND));
+
+        assertNull(CraftingRecipeIndex.findMatchingRecipe(inv, null));
+    }
+
+    @Test
+    public void testSpecialRecipe() {
+        InventoryCrafting inv = createInventory();
+        inv.setInventorySlotContents(0, new ItemStack(Items.PAPER));
+        inv.setInventorySlotContents(1, new ItemStack(Items.GUNPOWDER));
+
+        assertTrue(CraftingRecipeIndex.findMatchingRecipe(inv, null) instanceof RecipeFireworks);
+    }
+
+    private static IRecipe findLinear(InventoryCrafting inv) {
+        for (IRecipe recipe : CraftingManager.REGISTRY) {
+            if (recipe.matches(inv, null)) {
+                return recipe;
+            }
+        }
+
+        return null;
+    }
+
+    private static InventoryCrafting createGrid(IRecipe recipe) {
+        // Recipes of other classes may look at the world
+        if (recipe.getClass() != ShapedRecipes.class && recipe.getClass() != ShapelessRecipes.class) {
+            return null;
+        }
+
+        InventoryCrafting inv = createInventory();
+
+        int width = recipe instanceof ShapedRecipes ? ((ShapedRecipes) recipe).getRecipeWidth() : 3;
+
+        for (int i = 0; i < recipe.getIngredients().size(); ++i) {
+            Ingredient ingredient = recipe.getIngredients().get(i);
+            if (ingredient == Ingredient.EMPTY) {
+                continue;
+            }
+
+            if (ingredient.getMatchingStacks().length == 0) {
+                return null;
+            }
+
+            ItemStack stack = ingredient.getMatchingStacks()[0].copy();
+            if (stack.getMetadata() == OreDictionary.WILDCARD_VALUE) {
+                stack.setItemDamage(0);
+            }
+
+            inv.setInventorySlotContents((i / width) * 3 + i % width, stack);
+        }
+
+        return inv;
+    }
+
+    private static InventoryCrafting createInventory() {
+        return new InventoryCrafting(new Container() {
+            @Override
+            public boolean canInteractWith(@Nonnull EntityPlayer player) {
+                return true;
+            }
+        }, 3, 3);
+    }
+}
@@ -274,6 +274,37 @@ public class FilterConfigTest implements MinecraftForgeTest {
 
     }
 
+    @Test
+    @Order(6)
+    public void testCompareSameItem() {
+        FilterConfig cfg = new FilterConfig.Builder(node)
+                .allowedFilterModeBlackAndWhitelist()
+                .filterModeWhitelist()
+                .allowedFilterTypeItemsAndFluids()
+                .filterTypeItems()
+                .filterSizeNine()
+                .compareDamageAndNbt().build();
+
+        cfg.getItemHandler().setStackInSlot(0, new ItemStack(Items.DYE, 1, 1));
+        cfg.getItemHandler().setStackInSlot(4, new ItemStack(Items.DYE, 1, 4));
+        cfg.getItemHandler().setStackInSlot(8, new ItemStack(Items.APPLE));
+
+        assertTrue(cfg.acceptsItem(new ItemStack(Items.DYE, 1, 1)));
+        assertTrue(cfg.acceptsItem(new ItemStack(Items.DYE, 1, 4)));
+        assertFalse(cfg.acceptsItem(new ItemStack(Items.DYE, 1, 2)));
+        assertTrue(cfg.acceptsItem(new ItemStack(Items.APPLE)));
+
+        cfg.getItemHandler().setStackInSlot(4, ItemStack.EMPTY);
+
+        assertTrue(cfg.acceptsItem(new ItemStack(Items.DYE, 1, 1)));
+        assertFalse(cfg.acceptsItem(new ItemStack(Items.DYE, 1, 4)));
+
+        cfg.setCompare(0);
+
+        assertTrue(cfg.acceptsItem(new ItemStack(Items.DYE, 1, 4)));
+        assertFalse(cfg.acceptsItem(new ItemStack(Items.WOODEN_AXE)));
+    }
+
     @Test
     @Order(7)
     public void testListenersAndSupplier() {
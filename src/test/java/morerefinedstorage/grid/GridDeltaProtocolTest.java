@@ -0,0 +1,224 @@
+package morerefinedstorage.grid;
+
+import com.raoulvdberge.refinedstorage.api.storage.tracker.StorageTrackerEntry;
+import com.raoulvdberge.refinedstorage.api.util.StackListResult;
+import com.raoulvdberge.refinedstorage.apiimpl.storage.cache.listener.GridItemDelta;
+import com.raoulvdberge.refinedstorage.apiimpl.storage.cache.listener.GridItemStackDictionary;
+import com.raoulvdberge.refinedstorage.network.MessageGridItemDelta;
+import com.raoulvdberge.refinedstorage.gui.grid.stack.GridItemStackDictionaryClient;
+import com.raoulvdberge.refinedstorage.gui.grid.stack.IGridStack;
+import com.raoulvdberge.refinedstorage.util.StackUtils;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import morerefinedstorage.MinecraftForgeTest;
+import net.minecraft.enchantment.Enchantment;
+import net.minecraft.init.Items;
+import net.minecraft.item.ItemStack;
+import net.minecraftforge.fml.common.network.ByteBufUtils;
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Benchmark for the bytes needed per grid delta, compared with the old encoding that sent the full stack, both ids and
+ * the tracker name with every delta.
+ */
+public class GridDeltaProtocolTest implements MinecraftForgeTest {
+
+    private static final int STACKS = 200;
+    private static final int ROUNDS = 20;
+
+    private final List<ItemStack> stacks = new ArrayList<>();
+    private final List<UUID> ids = new ArrayList<>();
+    private final StorageTrackerEntry tracker = new StorageTrackerEntry(System.currentTimeMillis(), "SomePlayerName");
+
+    private GridItemStackDictionary dictionary;
+    private GridItemStackDictionaryClient client;
+
+    @BeforeEach
+    public void createStacks() {
+        stacks.clear();
+        ids.clear();
+
+        for (int i = 0; i < STACKS; i++) {
+            ItemStack stack = new ItemStack(Items.DIAMOND_PICKAXE, 1, i);
+            stack.addEnchantment(Enchantment.getEnchantmentByID(20), 1 + i % 3);
+            stack.setStackDisplayName("Pickaxe #" + i);
+
+            stacks.add(stack);
+            ids.add(UUID.randomUUID());
+        }
+
+        dictionary = new GridItemStackDictionary();
+        client = new GridItemStackDictionaryClient();
+
+        sendFullUpdate();
+    }
+
+    @Test
+    public void testBytesPerDelta() {
+        double before = 0;
+        double after = 0;
+
+        for (int round = 0; round < ROUNDS; round++) {
+            before += encodeOld().readableBytes();
+            after += encodeNew(round % 2 == 0 ? 1 : -1).readableBytes();
+        }
+
+        before /= ROUNDS * STACKS;
+        after /= ROUNDS * STACKS;
+
+        assertTrue(after * 10 < before, "Deltas of known stacks should be an order of magnitude smaller");
+    }
+
+    @Test
+    public void testRoundTrip() {
+        for (int round = 0; round < 3; round++) {
+            ByteBuf buf = encodeNew(round + 1);
+
+            assertTrue(client.readSession(buf));
+            assertEquals(STACKS, ByteBufUtils.readVarInt(buf, 5));
+
+            for (int i = 0; i < STACKS; i++) {
+                Pair<IGridStack, Long> delta = client.readDelta(buf);
+
+                assertNotNull(delta);
+                assertEquals(ids.get(i), delta.getLeft().getId());
+                assertEquals(round + 1, (long) delta.getRight());
+                assertEquals("SomePlayerName", delta.getLeft().getTrackerEntry().getName());
+            }
+
+            assertEquals(0, buf.readableBytes());
+        }
+    }
+
+    @Test
+    public void testRemovedStackHandleIsReused() {
+        ByteBuf removal = Unpooled.buffer();
+        dictionary.writeDelta(removal, new GridItemDelta(new StackListResult<>(stacks.get(0), ids.get(0), -10), null, tracker, true));
+
+        ItemStack newStack = new ItemStack(Items.DIAMOND);
+        UUID newId = UUID.randomUUID();
+
+        ByteBuf buf = Unpooled.buffer();
+        dictionary.writeDelta(buf, new GridItemDelta(new StackListResult<>(newStack, newId, 5), null, null, false));
+
+        // The new stack takes the freed handle and has to define itself
+        assertEquals(ByteBufUtils.readVarInt(removal, 5), ByteBufUtils.readVarInt(buf, 5));
+        assertTrue((buf.readByte() & GridItemStackDictionary.FLAG_DEFINITION) != 0);
+    }
+
+    @Test
+    public void testRemovedStackWithoutDeltaFreesHandle() {
+        dictionary.remove(ids.get(0));
+
+        ByteBuf buf = Unpooled.buffer();
+        dictionary.writeDelta(buf, new GridItemDelta(new StackListResult<>(new ItemStack(Items.DIAMOND), UUID.randomUUID(), 5), null, null, false));
+
+        // Handles are assigned in order starting at 1, so the first stack of the full update had handle 1
+        assertEquals(1, ByteBufUtils.readVarInt(buf, 5));
+    }
+
+    @Test
+    public void testPreparedDeltasAreSharedBetweenGrids() {
+        GridItemStackDictionary other = new GridItemStackDictionary();
+        GridItemStackDictionaryClient otherClient = new GridItemStackDictionaryClient();
+
+        ByteBuf fullUpdate = Unpooled.buffer();
+        other.writeSession(fullUpdate);
+        other.writeNames(fullUpdate, 0);
+        otherClient.readNewSession(fullUpdate);
+        otherClient.readNames(fullUpdate);
+
+        List<GridItemDelta> deltas = new ArrayList<>();
+        for (int i = 0; i < STACKS; i++) {
+            deltas.add(new GridItemDelta(new StackListResult<>(stacks.get(i), ids.get(i), 3), null, tracker, false));
+        }
+
+        ByteBuf known = Unpooled.wrappedBuffer(MessageGridItemDelta.encode(dictionary, deltas));
+        ByteBuf unknown = Unpooled.wrappedBuffer(MessageGridItemDelta.encode(other, deltas));
+
+        // Only the grid that doesn't know the stacks yet needs their definitions
+        assertTrue(known.readableBytes() * 10 < unknown.readableBytes());
+
+        byte[] definition = deltas.get(0).getDefinition();
+        MessageGridItemDelta.encode(new GridItemStackDictionary(), deltas);
+        assertSame(definition, deltas.get(0).getDefinition());
+
+        assertTrue(client.readSession(known));
+        assertTrue(otherClient.readSession(unknown));
+        assertEquals(STACKS, ByteBufUtils.readVarInt(known, 5));
+        assertEquals(STACKS, ByteBufUtils.readVarInt(unknown, 5));
+
+        for (int i = 0; i < STACKS; i++) {
+            Pair<IGridStack, Long> fromKnown = client.readDelta(known);
+            Pair<IGridStack, Long> fromUnknown = otherClient.readDelta(unknown);
+
+            assertNotNull(fromKnown);
+            assertNotNull(fromUnknown);
+            assertEquals(ids.get(i), fromKnown.getLeft().getId());
+            assertEquals(ids.get(i), fromUnknown.getLeft().getId());
+            assertEquals(3L, (long) fromUnknown.getRight());
+        }
+    }
+
+    @Test
+    public void testDeltasOfOtherSessionAreIgnored() {
+        GridItemStackDictionary other = new GridItemStackDictionary();
+
+        ByteBuf buf = Unpooled.buffer();
+        other.writeSession(buf);
+
+        assertFalse(client.readSession(buf));
+    }
+
+    private void sendFullUpdate() {
+        ByteBuf stacksBuf = Unpooled.buffer();
+        for (int i = 0; i < STACKS; i++) {
+            dictionary.writeStack(stacksBuf, stacks.get(i), 10, ids.get(i), null, false, tracker);
+        }
+
+        ByteBuf buf = Unpooled.buffer();
+        dictionary.writeSession(buf);
+        dictionary.writeNames(buf, 0);
+        buf.writeBytes(stacksBuf);
+
+        client.readNewSession(buf);
+        client.readNames(buf);
+        for (int i = 0; i < STACKS; i++) {
+            client.readStack(buf);
+        }
+    }
+
+    private ByteBuf encodeNew(long change) {
+        ByteBuf buf = Unpooled.buffer();
+
+        dictionary.writeSession(buf);
+        ByteBufUtils.writeVarInt(buf, STACKS, 5);
+
+        for (int i = 0; i < STACKS; i++) {
+            dictionary.writeDelta(buf, new GridItemDelta(new StackListResult<>(stacks.get(i), ids.get(i), change), null, tracker, false));
+        }
+
+        return buf;
+    }
+
+    private ByteBuf encodeOld() {
+        ByteBuf buf = Unpooled.buffer();
+
+        buf.writeInt(STACKS);
+
+        for (int i = 0; i < STACKS; i++) {
+            buf.writeLong(1);
+            StackUtils.writeItemGridStack(buf, stacks.get(i), 0, ids.get(i), null, false, tracker);
+        }
+
+        return buf;
+    }
+}
@@ -0,0 +1,146 @@
+package morerefinedstorage.grid;
+
+import com.raoulvdberge.refinedstorage.gui.grid.filtering.GridFilterParser;
+import com.raoulvdberge.refinedstorage.gui.grid.stack.GridStackItem;
+import com.raoulvdberge.refinedstorage.gui.grid.stack.IGridStack;
+import com.raoulvdberge.refinedstorage.gui.grid.view.GridViewImpl;
+import morerefinedstorage.MinecraftForgeTest;
+import net.minecraft.init.Items;
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+
+public class GridViewRefinementTest implements MinecraftForgeTest {
+
+    private List<IGridStack> stacks;
+
+    @BeforeEach
+    public void createStacks() {
+        stacks = new ArrayList<>();
+
+        for (Item item : Item.REGISTRY) {
+            stacks.add(new GridStackItem(new ItemStack(item), 1));
+        }
+    }
+
+    @Test
+    public void testIsRefinement() {
+        assertTrue(GridViewImpl.isRefinement("", "i"));
+        assertTrue(GridViewImpl.isRefinement("iro", "iron"));
+        assertTrue(GridViewImpl.isRefinement("iron", "iron"));
+        assertTrue(GridViewImpl.isRefinement("iron", "iron ing"));
+
+        assertFalse(GridViewImpl.isRefinement("iron", "iro"));
+        assertFalse(GridViewImpl.isRefinement("iron", "gold"));
+        assertFalse(GridViewImpl.isRefinement("iron", "iron|"));
+        assertFalse(GridViewImpl.isRefinement("iron", "iron|gold"));
+        assertFalse(GridViewImpl.isRefinement("iron|gold", "iron|golden"));
+    }
+
+    @Test
+    public void testAlternativeIsFilteredFromEverything() {
+        String apple = getName(new ItemStack(Items.APPLE));
+        String stick = getName(new ItemStack(Items.STICK));
+
+        assumeDistinct(apple, stick);
+
+        List<IGridStack> previous = filter(stacks, apple);
+        String query = apple + "|" + stick;
+
+        assertFalse(GridViewImpl.isRefinement(apple, query));
+
+        // Only filtering the previous result would lose the sticks
+        assertTrue(filter(stacks, query).stream().anyMatch(stack -> getName(stack).contains(stick)));
+        assertFalse(filter(previous, query).stream().anyMatch(stack -> getName(stack).contains(stick)));
+    }
+
+    @Test
+    public void testTypingMatchesFullFilter() {
+        Random random = new Random(42);
+
+        for (int i = 0; i < 50; ++i) {
+            String query = randomTerm(random);
+
+            if (random.nextBoolean()) {
+                query += " " + randomTerm(random);
+            }
+
+            List<String> typed = new ArrayList<>();
+            for (int length = 0; length <= query.length(); ++length) {
+                typed.add(query.substring(0, length));
+            }
+
+            // Backspace and type an alternative
+            String shortened = query.substring(0, random.nextInt(query.length() + 1));
+            typed.add(shortened);
+
+            String alternative = shortened + "|" + randomTerm(random);
+            for (int length = shortened.length() + 1; length <= alternative.length(); ++length) {
+                typed.add(alternative.substring(0, length));
+            }
+
+            assertTypedMatchesFullFilter(typed);
+        }
+    }
+
+    /**
+     * Filters like {@link GridViewImpl#sort()} does, which only filters the previous result for refinements, and
+     * compares every result with filtering all stacks again
+     */
+    private void assertTypedMatchesFullFilter(List<String> typed) {
+        String previousQuery = null;
+        List<IGridStack> result = null;
+
+        for (String query : typed) {
+            List<IGridStack> candidates = previousQuery != null && GridViewImpl.isRefinement(previousQuery, query) ? result : stacks;
+
+            result = filter(candidates, query);
+
+            assertEquals(filter(stacks, query), result, "\"" + previousQuery + "\" to \"" + query + "\"");
+
+            previousQuery = query;
+        }
+    }
+
+    /**
+     * @return a piece of the name of a random stack
+     */
+    private String randomTerm(Random random) {
+        String[] words = getName(stacks.get(random.nextInt(stacks.size()))).split("[ .]");
+        String word = words.length == 0 ? "" : words[random.nextInt(words.length)];
+
+        if (word.isEmpty()) {
+            return "a";
+        }
+
+        int start = random.nextInt(word.length());
+
+        return word.substring(start, start + 1 + random.nextInt(word.length() - start));
+    }
+
+    private static List<IGridStack> filter(List<IGridStack> stacks, String query) {
+        return stacks.stream()
+                .filter(GridFilterParser.getFilters(null, query, Collections.emptyList()))
+                .collect(Collectors.toList());
+    }
+
+    private static String getName(ItemStack stack) {
+        return getName(new GridStackItem(stack, 1));
+    }
+
+    private static String getName(IGridStack stack) {
+        return stack.getSearchData().getName();
+    }
+
+    private static void assumeDistinct(String first, String second) {
+        assumeFalse(first.contains(second) || second.contains(first),
+                "\"" + first + "\" and \"" + second + "\" match each other");
+    }
+}
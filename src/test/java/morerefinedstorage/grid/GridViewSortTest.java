@@ -0,0 +1,120 @@
+package morerefinedstorage.grid;
+
+import com.raoulvdberge.refinedstorage.api.storage.tracker.StorageTrackerEntry;
+import com.raoulvdberge.refinedstorage.gui.grid.sorting.GridSorterDirection;
+import com.raoulvdberge.refinedstorage.gui.grid.sorting.GridSorterID;
+import com.raoulvdberge.refinedstorage.gui.grid.sorting.GridSorterLastModified;
+import com.raoulvdberge.refinedstorage.gui.grid.sorting.GridSorterName;
+import com.raoulvdberge.refinedstorage.gui.grid.sorting.GridSorterQuantity;
+import com.raoulvdberge.refinedstorage.gui.grid.sorting.IGridSorter;
+import com.raoulvdberge.refinedstorage.gui.grid.stack.GridStackItem;
+import com.raoulvdberge.refinedstorage.gui.grid.stack.GridStackSortKeys;
+import com.raoulvdberge.refinedstorage.gui.grid.stack.IGridStack;
+import com.raoulvdberge.refinedstorage.gui.grid.view.GridViewImpl;
+import morerefinedstorage.MinecraftForgeTest;
+import net.minecraft.init.Items;
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.*;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class GridViewSortTest implements MinecraftForgeTest {
+
+    /**
+     * Enough stacks for the parallel sort to split the array
+     */
+    private static final int STACKS = 20_000;
+
+    private static final Predicate<IGridStack> FILTER = stack -> stack.getCount() % 10 != 0;
+
+    static Stream<Arguments> sorters() {
+        return Stream.of(new GridSorterName(), new GridSorterQuantity(), new GridSorterID(), new GridSorterLastModified())
+                .flatMap(sorter -> Stream.of(GridSorterDirection.values())
+                        .map(direction -> Arguments.of(sorter, direction)));
+    }
+
+    @ParameterizedTest
+    @MethodSource("sorters")
+    public void testSameAsFullSort(IGridSorter sorter, GridSorterDirection direction) {
+        Random random = new Random(42);
+        List<Item> items = new ArrayList<>();
+        for (Item item : Item.REGISTRY) {
+            if (item != Items.AIR) {
+                items.add(item);
+            }
+        }
+
+        // Every stack has a twin that computes its sort keys again on every comparison
+        List<IGridStack> stacks = new ArrayList<>();
+        List<IGridStack> twins = new ArrayList<>();
+        Map<IGridStack, Integer> indices = new IdentityHashMap<>();
+
+        for (int i = 0; i < STACKS; ++i) {
+            ItemStack stack = new ItemStack(items.get(random.nextInt(items.size())), 1, random.nextInt(4));
+            long count = 1 + random.nextInt(1000);
+            StorageTrackerEntry entry = random.nextBoolean() ? new StorageTrackerEntry(random.nextInt(100), "player") : null;
+
+            stacks.add(new GridStackItem(UUID.randomUUID(), null, stack, count, false, entry));
+            twins.add(new UncachedGridStackItem(stack, count, entry));
+
+            indices.put(stacks.get(i), i);
+            indices.put(twins.get(i), i);
+        }
+
+        List<IGridSorter> applicable = sorter instanceof GridSorterName ? Collections.emptyList() : Collections.singletonList(sorter);
+        Comparator<IGridStack> comparator = GridViewImpl.createComparator(new GridSorterName(), applicable, direction);
+
+        assertSameOrder(stacks, twins, comparator, indices);
+
+        // The quantity isn't part of the sort keys, a changed stack is sorted by its new count
+        for (int i = 0; i < STACKS / 10; ++i) {
+            int index = random.nextInt(STACKS);
+            long delta = random.nextInt(1000);
+
+            stacks.get(index).grow(delta);
+            twins.get(index).grow(delta);
+        }
+
+        assertSameOrder(stacks, twins, comparator, indices);
+    }
+
+    private static void assertSameOrder(List<IGridStack> stacks, List<IGridStack> twins, Comparator<IGridStack> comparator,
+                                        Map<IGridStack, Integer> indices) {
+        IGridStack[] expected = twins.stream().filter(FILTER).toArray(IGridStack[]::new);
+        Arrays.sort(expected, comparator);
+
+        assertEquals(toIndices(expected, indices), toIndices(GridViewImpl.filterAndSort(stacks, FILTER, comparator, true), indices));
+        assertEquals(toIndices(expected, indices), toIndices(GridViewImpl.filterAndSort(stacks, FILTER, comparator, false), indices));
+    }
+
+    private static List<Integer> toIndices(IGridStack[] stacks, Map<IGridStack, Integer> indices) {
+        List<Integer> result = new ArrayList<>(stacks.length);
+
+        for (IGridStack stack : stacks) {
+            result.add(indices.get(stack));
+        }
+
+        return result;
+    }
+
+    /**
+     * A stack that never reuses its sort keys, which is how the sorters read stacks before the keys were cached
+     */
+    private static class UncachedGridStackItem extends GridStackItem {
+        UncachedGridStackItem(ItemStack stack, long count, StorageTrackerEntry entry) {
+            super(UUID.randomUUID(), null, stack, count, false, entry);
+        }
+
+        @Override
+        public GridStackSortKeys getSortKeys() {
+            return new GridStackSortKeys(this);
+        }
+    }
+}
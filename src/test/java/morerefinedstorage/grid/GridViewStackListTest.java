@@ -0,0 +1,94 @@
+package morerefinedstorage.grid;
+
+import com.raoulvdberge.refinedstorage.gui.grid.stack.GridStackItem;
+import com.raoulvdberge.refinedstorage.gui.grid.stack.IGridStack;
+import com.raoulvdberge.refinedstorage.gui.grid.view.GridViewStackList;
+import morerefinedstorage.MinecraftForgeTest;
+import net.minecraft.init.Items;
+import net.minecraft.item.ItemStack;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GridViewStackListTest implements MinecraftForgeTest {
+
+    private static final Comparator<IGridStack> BY_COUNT = Comparator.comparingLong(IGridStack::getCount);
+
+    @Test
+    public void testSameAsSortedList() {
+        Random random = new Random(42);
+
+        List<IGridStack> expected = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            expected.add(new GridStackItem(new ItemStack(Items.APPLE), random.nextInt(1000)));
+        }
+        expected.sort(BY_COUNT);
+
+        GridViewStackList list = new GridViewStackList(expected);
+        assertEquals(expected, list);
+
+        for (int i = 0; i < 5000; i++) {
+            int operation = random.nextInt(4);
+
+            if (operation == 0 && !expected.isEmpty()) {
+                // Changes the sort key before removing, like a stack that changed its count
+                IGridStack stack = expected.remove(random.nextInt(expected.size()));
+                stack.grow(random.nextInt(100));
+
+                assertTrue(list.remove(stack));
+                assertFalse(list.remove(stack));
+            } else if (operation == 1) {
+                IGridStack stack = new GridStackItem(new ItemStack(Items.APPLE), random.nextInt(1000));
+
+                int index = 0;
+                while (index < expected.size() && BY_COUNT.compare(expected.get(index), stack) <= 0) {
+                    index++;
+                }
+                expected.add(index, stack);
+
+                list.add(stack, BY_COUNT);
+            } else if (operation == 2) {
+                IGridStack stack = new GridStackItem(new ItemStack(Items.APPLE), random.nextInt(1000));
+                int index = random.nextInt(expected.size() + 1);
+
+                expected.add(index, stack);
+                list.add(index, stack);
+            } else if (!expected.isEmpty()) {
+                IGridStack stack = expected.get(random.nextInt(expected.size()));
+
+                assertEquals(expected.indexOf(stack), list.indexOf(stack));
+                assertTrue(list.contains(stack));
+            }
+
+            assertEquals(expected.size(), list.size());
+        }
+
+        assertEquals(expected, list);
+        assertEquals(expected, new ArrayList<>(list));
+
+        for (int i = 0; i < expected.size(); i++) {
+            assertSame(expected.get(i), list.get(i));
+        }
+    }
+
+    @Test
+    public void testAddingAgainMoves() {
+        IGridStack first = new GridStackItem(new ItemStack(Items.APPLE), 1);
+        IGridStack second = new GridStackItem(new ItemStack(Items.APPLE), 2);
+
+        GridViewStackList list = new GridViewStackList();
+        list.add(first, BY_COUNT);
+        list.add(second, BY_COUNT);
+
+        list.add(0, second);
+
+        assertEquals(2, list.size());
+        assertSame(second, list.get(0));
+        assertSame(first, list.get(1));
+    }
+}
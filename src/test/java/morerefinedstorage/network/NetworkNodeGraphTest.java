@@ -0,0 +1,176 @@
+package morerefinedstorage.network;
+
+import com.raoulvdberge.refinedstorage.api.network.INetwork;
+import com.raoulvdberge.refinedstorage.api.network.node.INetworkNode;
+import com.raoulvdberge.refinedstorage.api.network.node.INetworkNodeProxy;
+import com.raoulvdberge.refinedstorage.api.util.Action;
+import com.raoulvdberge.refinedstorage.apiimpl.network.NetworkNodeGraph;
+import com.raoulvdberge.refinedstorage.apiimpl.network.node.NetworkNode;
+import morerefinedstorage.DummyNetwork;
+import morerefinedstorage.DummyWorld;
+import morerefinedstorage.MinecraftForgeTest;
+import net.minecraft.tileentity.TileEntity;
+import net.minecraft.util.EnumFacing;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
+import net.minecraftforge.common.capabilities.Capability;
+import org.junit.jupiter.api.Test;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static com.raoulvdberge.refinedstorage.capability.CapabilityNetworkNodeProxy.NETWORK_NODE_PROXY_CAPABILITY;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class NetworkNodeGraphTest implements MinecraftForgeTest {
+
+    private static final BlockPos CONTROLLER_POS = new BlockPos(0, 0, 0);
+
+    @Test
+    public void testRemovingCableDisconnectsTail() {
+        TestWorld world = new TestWorld();
+        INetwork network = world.addController(CONTROLLER_POS);
+
+        TestNode first = world.addNode(new BlockPos(1, 0, 0), EnumSet.allOf(EnumFacing.class));
+        TestNode second = world.addNode(new BlockPos(2, 0, 0), EnumSet.allOf(EnumFacing.class));
+        TestNode third = world.addNode(new BlockPos(3, 0, 0), EnumSet.allOf(EnumFacing.class));
+
+        NetworkNodeGraph graph = new NetworkNodeGraph(network);
+        graph.invalidate(Action.PERFORM, world, CONTROLLER_POS);
+
+        assertTrue(graph.allActualNodes().contains(third));
+
+        world.removeNode(second.getNetworkNodePos());
+        graph.disconnect(world, second.getNetworkNodePos(), second);
+
+        assertTrue(graph.allActualNodes().contains(first));
+        assertFalse(graph.allActualNodes().contains(second));
+        assertFalse(graph.allActualNodes().contains(third));
+    }
+
+    @Test
+    public void testOneWayNodeDoesNotKeepNeighbourConnected() {
+        TestWorld world = new TestWorld();
+        INetwork network = world.addController(CONTROLLER_POS);
+
+        world.addNode(new BlockPos(1, 0, 0), EnumSet.allOf(EnumFacing.class));
+        // Only conducts down, like the wireless transmitter
+        TestNode oneWay = world.addNode(new BlockPos(1, 1, 0), EnumSet.of(EnumFacing.DOWN));
+
+        world.addNode(new BlockPos(1, 0, 1), EnumSet.allOf(EnumFacing.class));
+        world.addNode(new BlockPos(1, 1, 1), EnumSet.allOf(EnumFacing.class));
+        world.addNode(new BlockPos(1, 2, 1), EnumSet.allOf(EnumFacing.class));
+        world.addNode(new BlockPos(2, 2, 1), EnumSet.allOf(EnumFacing.class));
+        TestNode bridge = world.addNode(new BlockPos(2, 2, 0), EnumSet.allOf(EnumFacing.class));
+        // Conducts into the one way node, but is only reachable from the controller through the bridge.
+        // It's the first neighbour of the bridge to be searched, and reaches the controller through the one way node
+        TestNode tail = world.addNode(new BlockPos(2, 1, 0), EnumSet.allOf(EnumFacing.class));
+
+        NetworkNodeGraph graph = new NetworkNodeGraph(network);
+        graph.invalidate(Action.PERFORM, world, CONTROLLER_POS);
+
+        assertTrue(graph.allActualNodes().contains(oneWay));
+        assertTrue(graph.allActualNodes().contains(tail));
+
+        world.removeNode(bridge.getNetworkNodePos());
+        graph.disconnect(world, bridge.getNetworkNodePos(), bridge);
+
+        assertTrue(graph.allActualNodes().contains(oneWay));
+        assertFalse(graph.allActualNodes().contains(bridge));
+        assertFalse(graph.allActualNodes().contains(tail));
+    }
+
+    private static class TestWorld extends DummyWorld {
+        private final Map<BlockPos, TileEntity> tiles = new HashMap<>();
+
+        INetwork addController(BlockPos pos) {
+            INetwork network = DummyNetwork.create(this, pos);
+
+            tiles.put(pos, new NodeTile((INetworkNode) network));
+
+            return network;
+        }
+
+        TestNode addNode(BlockPos pos, Set<EnumFacing> conducting) {
+            TestNode node = new TestNode(this, pos, conducting);
+
+            tiles.put(pos, new NodeTile(node));
+
+            return node;
+        }
+
+        void removeNode(BlockPos pos) {
+            tiles.remove(pos);
+        }
+
+        @Nullable
+        @Override
+        public TileEntity getTileEntity(BlockPos pos) {
+            return tiles.get(pos);
+        }
+    }
+
+    private static class NodeTile extends TileEntity implements INetworkNodeProxy<INetworkNode> {
+        private final INetworkNode node;
+
+        NodeTile(INetworkNode node) {
+            this.node = node;
+        }
+
+        @Nonnull
+        @Override
+        public INetworkNode getNode() {
+            return node;
+        }
+
+        @Override
+        public boolean hasCapability(@Nonnull Capability<?> capability, @Nullable EnumFacing facing) {
+            return capability == NETWORK_NODE_PROXY_CAPABILITY || super.hasCapability(capability, facing);
+        }
+
+        @Nullable
+        @Override
+        public <T> T getCapability(@Nonnull Capability<T> capability, @Nullable EnumFacing facing) {
+            if (capability == NETWORK_NODE_PROXY_CAPABILITY) {
+                return NETWORK_NODE_PROXY_CAPABILITY.cast(this);
+            }
+
+            return super.getCapability(capability, facing);
+        }
+    }
+
+    private static class TestNode extends NetworkNode {
+        private final Set<EnumFacing> conducting;
+
+        TestNode(World world, BlockPos pos, Set<EnumFacing> conducting) {
+            super(world, pos);
+
+            this.conducting = conducting;
+        }
+
+        @Override
+        public boolean canConduct(@Nullable EnumFacing direction) {
+            return conducting.contains(direction);
+        }
+
+        @Override
+        public void markNetworkNodeDirty() {
+            // NO OP
+        }
+
+        @Override
+        public int getEnergyUsage() {
+            return 0;
+        }
+
+        @Override
+        public String getId() {
+            return "test";
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package morerefinedstorage.network;
+
+import com.raoulvdberge.refinedstorage.api.network.INetwork;
+import com.raoulvdberge.refinedstorage.api.util.Action;
+import com.raoulvdberge.refinedstorage.api.util.StackListResult;
+import com.raoulvdberge.refinedstorage.apiimpl.network.node.NetworkNodeImporter;
+import morerefinedstorage.DummyWorld;
+import morerefinedstorage.MinecraftForgeTest;
+import net.minecraft.init.Items;
+import net.minecraft.item.ItemStack;
+import net.minecraft.util.math.BlockPos;
+import net.minecraftforge.items.ItemStackHandler;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class NetworkNodeImporterBulkTest implements MinecraftForgeTest {
+
+    private ItemStackHandler handler;
+    private NetworkNodeImporter importer;
+    private TestNetwork network;
+
+    @BeforeEach
+    public void createImporter() {
+        handler = new ItemStackHandler(5);
+
+        handler.setStackInSlot(0, new ItemStack(Items.DIAMOND, 5));
+        handler.setStackInSlot(1, new ItemStack(Items.COAL, 5));
+        handler.setStackInSlot(2, new ItemStack(Items.DIAMOND, 5));
+        handler.setStackInSlot(3, new ItemStack(Items.COAL, 5, 1));
+        handler.setStackInSlot(4, new ItemStack(Items.DIAMOND, 5));
+
+        importer = new NetworkNodeImporter(new DummyWorld() {
+        }, BlockPos.ORIGIN);
+
+        network = new TestNetwork();
+        importer.onConnected(network.create());
+    }
+
+    @Test
+    public void testIdenticalStacksAreSimulatedOnce() {
+        importer.importItemsBulk(handler);
+
+        assertEquals(3, network.simulated.size());
+        assertEquals(Items.DIAMOND, network.simulated.get(0).getItem());
+        assertEquals(Items.COAL, network.simulated.get(1).getItem());
+        assertEquals(1, network.simulated.get(2).getItemDamage());
+
+        //no stack upgrades, one item per slot
+        assertEquals(3, network.inserted(Items.DIAMOND));
+        assertEquals(2, network.inserted(Items.COAL));
+
+        for (int slot = 0; slot < handler.getSlots(); ++slot) {
+            assertEquals(4, handler.getStackInSlot(slot).getCount());
+        }
+    }
+
+    @Test
+    public void testRefusedItemsAreNotExtracted() {
+        network.simulatedCapacity = 2;
+        network.capacity = 2;
+
+        importer.importItemsBulk(handler);
+
+        assertEquals(2, network.inserted(Items.DIAMOND));
+        assertEquals(4, handler.getStackInSlot(0).getCount());
+        assertEquals(4, handler.getStackInSlot(2).getCount());
+        assertEquals(5, handler.getStackInSlot(4).getCount());
+    }
+
+    @Test
+    public void testRejectedItemsGoBackToTheirSlots() {
+        //the simulation accepts everything, but the insert only takes a single item
+        network.capacity = 1;
+
+        importer.importItemsBulk(handler);
+
+        assertEquals(1, network.inserted(Items.DIAMOND));
+        assertEquals(0, network.inserted(Items.COAL));
+
+        //the remainder is returned to the slots that were extracted from last
+        assertEquals(4, handler.getStackInSlot(0).getCount());
+        assertEquals(5, handler.getStackInSlot(2).getCount());
+        assertEquals(5, handler.getStackInSlot(4).getCount());
+
+        assertEquals(5, handler.getStackInSlot(1).getCount());
+        assertEquals(5, handler.getStackInSlot(3).getCount());
+    }
+
+    /**
+     * A network that accepts up to a capacity of items, the simulation can be told to accept more than that
+     */
+    private static class TestNetwork {
+        private final List<ItemStack> simulated = new ArrayList<>();
+        private final List<ItemStack> inserted = new ArrayList<>();
+
+        private long simulatedCapacity = Long.MAX_VALUE;
+        private long capacity = Long.MAX_VALUE;
+
+        private long inserted(Object item) {
+            return inserted.stream().filter(s -> s.getItem() == item).mapToLong(ItemStack::getCount).sum();
+        }
+
+        private long accept(long size, long capacity) {
+            long stored = inserted.stream().mapToLong(ItemStack::getCount).sum();
+
+            return Math.max(0, Math.min(size, capacity - stored));
+        }
+
+        INetwork create() {
+            return (INetwork) Proxy.newProxyInstance(
+                    TestNetwork.class.getClassLoader(),
+                    new Class<?>[]{INetwork.class},
+                    (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "insertItem": {
+                                ItemStack stack = (ItemStack) args[0];
+                                long size = ((Number) args[1]).longValue();
+                                long accepted;
+
+                                if (args[2] == Action.SIMULATE) {
+                                    simulated.add(stack.copy());
+                                    accepted = accept(size, simulatedCapacity);
+                                } else {
+                                    accepted = accept(size, capacity);
+                                    inserted.add(new ItemStack(stack.getItem(), (int) accepted, stack.getItemDamage()));
+                                }
+
+                                return accepted == size ? null : new StackListResult<>(stack.copy(), size - accepted);
+                            }
+                            case "insertItemTracked": {
+                                ItemStack stack = (ItemStack) args[0];
+                                int size = (Integer) args[1];
+                                long accepted = accept(size, capacity);
+
+                                inserted.add(new ItemStack(stack.getItem(), (int) accepted, stack.getItemDamage()));
+
+                                return accepted == size ? null : new ItemStack(stack.getItem(), (int) (size - accepted), stack.getItemDamage());
+                            }
+                            case "equals":
+                                return proxy == args[0];
+                            case "hashCode":
+                                return System.identityHashCode(proxy);
+                            case "toString":
+                                return "network";
+                            default:
+                                return method.getReturnType().isPrimitive() && method.getReturnType() != void.class
+                                        ? Array.get(Array.newInstance(method.getReturnType(), 1), 0)
+                                        : null;
+                        }
+                    });
+        }
+    }
+}
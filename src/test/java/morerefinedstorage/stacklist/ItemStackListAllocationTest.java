@@ -0,0 +1,133 @@
+package morerefinedstorage.stacklist;
+
+import com.raoulvdberge.refinedstorage.api.util.IComparer;
+import com.raoulvdberge.refinedstorage.apiimpl.util.StackListItem;
+import morerefinedstorage.MinecraftForgeTest;
+import net.minecraft.enchantment.Enchantment;
+import net.minecraft.init.Items;
+import net.minecraft.item.ItemStack;
+import net.minecraft.nbt.NBTTagCompound;
+import org.junit.jupiter.api.*;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks the allocations caused by stack list lookups, which run for every stack moved in a network.
+ * Lookups through {@link StackListItem.ItemStackWrapper#probe(ItemStack)} are compared against creating a new key
+ * for every lookup, which is what the stack lists did before.
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class ItemStackListAllocationTest implements MinecraftForgeTest {
+
+    private static final int WARMUP = 20_000;
+    private static final int ITERATIONS = 200_000;
+
+    /**
+     * Leaves room for measurement noise, an allocated object takes at least 16 bytes
+     */
+    private static final double NO_ALLOCATION = 8;
+
+    private StackListItem list;
+    private ItemStack stack;
+
+    @BeforeEach
+    public void createStackList() {
+        list = new StackListItem();
+
+        stack = new ItemStack(Items.DIAMOND_PICKAXE, 1, 50);
+        stack.addEnchantment(Enchantment.getEnchantmentByID(20), 1);
+        NBTTagCompound display = new NBTTagCompound();
+        display.setString("Name", "Benchmark Pickaxe");
+        stack.getTagCompound().setTag("display", display);
+
+        list.add(stack, 1000);
+    }
+
+    @Test
+    @Order(1)
+    public void testProbeKeyIsEqualToOwnedKey() {
+        StackListItem.ItemStackWrapper owned = new StackListItem.ItemStackWrapper(stack.copy());
+        StackListItem.ItemStackWrapper probe = StackListItem.ItemStackWrapper.probe(stack);
+
+        assertEquals(owned.hashCode(), probe.hashCode());
+        assertEquals(owned, probe);
+        assertSame(probe, StackListItem.ItemStackWrapper.probe(new ItemStack(Items.APPLE)));
+    }
+
+    @Test
+    @Order(2)
+    public void testGetEntryAllocations() {
+        assumeAllocationCounting();
+
+        double allocated = measure(() -> list.getEntry(stack, IComparer.COMPARE_NBT | IComparer.COMPARE_DAMAGE));
+
+        assertTrue(allocated < NO_ALLOCATION, "Exact lookups should not allocate, allocated " + allocated + " bytes per lookup");
+    }
+
+    @Test
+    @Order(3)
+    public void testProbeKeyAllocatesLessThanNewKey() {
+        assumeAllocationCounting();
+
+        Map<StackListItem.ItemStackWrapper, ItemStack> map = new HashMap<>();
+        map.put(new StackListItem.ItemStackWrapper(stack.copy()), stack);
+
+        //before: every lookup created its own key
+        double before = measure(() -> map.get(new StackListItem.ItemStackWrapper(stack)));
+        double after = measure(() -> map.get(StackListItem.ItemStackWrapper.probe(stack)));
+
+        assertTrue(after < NO_ALLOCATION, "Probe lookups should not allocate, allocated " + after + " bytes per lookup");
+        assertTrue(after <= before, "Probe lookups allocated " + after + " bytes per lookup, new keys " + before);
+    }
+
+    @Test
+    @Order(4)
+    public void testAddRemoveAllocations() {
+        assumeAllocationCounting();
+
+        //both calls return a copy of the stack, which is all they should allocate apart from the results themselves
+        double copies = measure(() -> {
+            stack.copy();
+            return stack.copy();
+        });
+        double allocated = measure(() -> {
+            list.add(stack, 1);
+            return list.remove(stack, 1);
+        });
+
+        assertTrue(allocated <= copies + 2 * 64, "Adding to and removing from an existing entry should only allocate the results, allocated " +
+            allocated + " bytes for " + copies + " bytes of stack copies");
+        assertEquals(1000, list.getEntry(stack, IComparer.COMPARE_NBT | IComparer.COMPARE_DAMAGE).getCount());
+    }
+
+    private static double measure(java.util.function.Supplier<Object> op) {
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        Object sink = null;
+        for (int i = 0; i < WARMUP; i++) {
+            sink = op.get();
+        }
+
+        long start = bean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < ITERATIONS; i++) {
+            sink = op.get();
+        }
+        long end = bean.getThreadAllocatedBytes(threadId);
+
+        assertNotSame(Boolean.FALSE, sink);
+
+        return (double) (end - start) / ITERATIONS;
+    }
+
+    private static void assumeAllocationCounting() {
+        Assumptions.assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Assumptions.assumeTrue(bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled());
+    }
+}
@@ -0,0 +1,97 @@
+package morerefinedstorage.storage;
+
+import com.raoulvdberge.refinedstorage.api.storage.disk.IStorageDisk;
+import com.raoulvdberge.refinedstorage.api.util.StackListEntry;
+import com.raoulvdberge.refinedstorage.apiimpl.API;
+import com.raoulvdberge.refinedstorage.apiimpl.storage.disk.StorageDiskItem;
+import com.raoulvdberge.refinedstorage.apiimpl.storage.disk.factory.StorageDiskFactoryItem;
+import com.raoulvdberge.refinedstorage.util.StackUtils;
+import morerefinedstorage.MinecraftForgeTest;
+import net.minecraft.enchantment.Enchantment;
+import net.minecraft.init.Items;
+import net.minecraft.item.ItemStack;
+import net.minecraft.nbt.CompressedStreamTools;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.nbt.NBTTagList;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StorageDiskItemEncodingTest implements MinecraftForgeTest {
+
+    private StorageDiskItem disk;
+
+    @BeforeEach
+    public void createDisk() {
+        disk = new StorageDiskItem(null, -1);
+
+        for (int i = 0; i < 1000; i++) {
+            disk.putRaw(new ItemStack(Items.STICK, 1, i), i + 1);
+        }
+
+        for (int i = 0; i < 500; i++) {
+            ItemStack stack = new ItemStack(Items.DIAMOND_SWORD, 1, i % 50);
+            stack.addEnchantment(Enchantment.getEnchantmentByID(16), 1 + i / 50);
+
+            disk.putRaw(stack, (long) Integer.MAX_VALUE * 3);
+        }
+
+        disk.calculateStoredAmount();
+    }
+
+    @Test
+    public void testRoundTrip() {
+        assertSameContents(disk, new StorageDiskFactoryItem().createFromNbt(null, disk.writeToNbt()));
+    }
+
+    @Test
+    public void testMigrateLegacyFormat() throws IOException {
+        NBTTagCompound legacy = createLegacyTag(disk);
+
+        IStorageDisk<ItemStack> migrated = new StorageDiskFactoryItem().createFromNbt(null, legacy);
+        assertSameContents(disk, migrated);
+
+        long legacySize = getSize(legacy);
+        long compactSize = getSize(migrated.writeToNbt());
+
+        assertTrue(compactSize * 3 < legacySize);
+    }
+
+    private static void assertSameContents(IStorageDisk<ItemStack> expected, IStorageDisk<ItemStack> actual) {
+        assertEquals(expected.getEntries().size(), actual.getEntries().size());
+        assertEquals(expected.getStored(), actual.getStored());
+
+        for (StackListEntry<ItemStack> entry : expected.getEntries()) {
+            assertTrue(actual.getEntries().stream().anyMatch(other -> other.getCount() == entry.getCount() &&
+                    API.instance().getComparer().isEqualNoQuantity(entry.getStack(), other.getStack())));
+        }
+    }
+
+    private static NBTTagCompound createLegacyTag(StorageDiskItem disk) {
+        NBTTagList list = new NBTTagList();
+
+        for (StackListEntry<ItemStack> entry : disk.getEntries()) {
+            NBTTagCompound stackTag = StackUtils.serializeStackToNbt(entry.getStack());
+            stackTag.setLong(StorageDiskItem.NBT_REAL_SIZE, entry.getCount());
+            list.appendTag(stackTag);
+        }
+
+        NBTTagCompound tag = new NBTTagCompound();
+        tag.setTag(StorageDiskItem.NBT_ITEMS, list);
+        tag.setLong(StorageDiskItem.NBT_CAPACITY, -1);
+
+        return tag;
+    }
+
+    private static long getSize(NBTTagCompound tag) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CompressedStreamTools.write(tag, new DataOutputStream(out));
+
+        return out.size();
+    }
+}
@@ -0,0 +1,319 @@
+package morerefinedstorage.storage;
+
+import com.raoulvdberge.refinedstorage.api.storage.disk.IStorageDisk;
+import com.raoulvdberge.refinedstorage.api.util.StackListEntry;
+import com.raoulvdberge.refinedstorage.apiimpl.API;
+import com.raoulvdberge.refinedstorage.apiimpl.storage.disk.StorageDiskItem;
+import com.raoulvdberge.refinedstorage.apiimpl.storage.disk.StorageDiskManager;
+import com.raoulvdberge.refinedstorage.apiimpl.storage.disk.factory.StorageDiskFactoryItem;
+import morerefinedstorage.DummyWorld;
+import morerefinedstorage.MinecraftForgeTest;
+import net.minecraft.init.Items;
+import net.minecraft.item.ItemStack;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.nbt.NBTTagList;
+import net.minecraft.world.storage.ISaveHandler;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.function.LongSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class StorageDiskManagerTest implements MinecraftForgeTest {
+
+    /**
+     * Enough disks to fill every segment twice, the segment of {@code new UUID(0, i)} is {@code i % 64}
+     */
+    private static final int DISKS = 128;
+
+    @TempDir
+    File directory;
+
+    private TestWorld world;
+
+    @BeforeAll
+    public static void registerFactory() {
+        if (API.instance().getStorageDiskRegistry().get(StorageDiskFactoryItem.ID) == null) {
+            API.instance().getStorageDiskRegistry().add(StorageDiskFactoryItem.ID, new StorageDiskFactoryItem());
+        }
+    }
+
+    @BeforeEach
+    public void createWorld() {
+        world = new TestWorld(directory);
+    }
+
+    @Test
+    public void testRoundTripAcrossSegments() throws IOException {
+        StorageDiskManager manager = createManager(null);
+
+        Map<UUID, StorageDiskItem> disks = new HashMap<>();
+        for (int i = 0; i < DISKS; ++i) {
+            StorageDiskItem disk = createDisk(i);
+
+            manager.set(new UUID(0, i), disk);
+            disks.put(new UUID(0, i), disk);
+        }
+
+        NBTTagCompound tag = manager.writeToNBT(new NBTTagCompound());
+
+        assertEquals(64, getSegmentFiles().size());
+        assertFalse(tag.hasKey("Disks"));
+
+        StorageDiskManager read = createManager(tag);
+
+        assertEquals(disks.keySet(), read.getIds());
+        for (Map.Entry<UUID, StorageDiskItem> entry : disks.entrySet()) {
+            assertSameContents(entry.getValue(), read.get(entry.getKey()));
+        }
+    }
+
+    @Test
+    public void testConvertsLegacySave() throws IOException {
+        NBTTagList legacyDisks = new NBTTagList();
+        Map<UUID, StorageDiskItem> disks = new HashMap<>();
+
+        for (int i = 0; i < DISKS; ++i) {
+            StorageDiskItem disk = createDisk(i);
+
+            NBTTagCompound diskTag = new NBTTagCompound();
+            diskTag.setUniqueId("Id", new UUID(0, i));
+            diskTag.setTag("Data", disk.writeToNbt());
+            diskTag.setString("Type", disk.getId());
+
+            legacyDisks.appendTag(diskTag);
+            disks.put(new UUID(0, i), disk);
+        }
+
+        NBTTagCompound legacy = new NBTTagCompound();
+        legacy.setTag("Disks", legacyDisks);
+
+        StorageDiskManager manager = createManager(legacy);
+
+        assertEquals(disks.keySet(), manager.getIds());
+        assertTrue(manager.isDirty());
+
+        NBTTagCompound converted = manager.writeToNBT(new NBTTagCompound());
+
+        assertFalse(converted.hasKey("Disks"));
+        assertEquals(64, getSegmentFiles().size());
+
+        StorageDiskManager read = createManager(converted);
+
+        for (Map.Entry<UUID, StorageDiskItem> entry : disks.entrySet()) {
+            assertSameContents(entry.getValue(), read.get(entry.getKey()));
+        }
+    }
+
+    @Test
+    public void testRewriteKeepsUntouchedSegments() throws IOException {
+        StorageDiskManager manager = createManager(null);
+
+        for (int i = 0; i < DISKS; ++i) {
+            manager.set(new UUID(0, i), createDisk(i));
+        }
+
+        NBTTagCompound tag = manager.writeToNBT(new NBTTagCompound());
+
+        Map<String, byte[]> before = readSegmentFiles();
+
+        // What a crash while writing segment 3 leaves behind, the segment itself is still the previous one
+        File crashed = new File(getSegmentDirectory(), "segment_3.dat.tmp");
+        Files.write(crashed.toPath(), new byte[]{1, 2, 3});
+
+        // Only the index is read, the other disk of segment 3 is copied from the segment file
+        StorageDiskManager read = createManager(tag);
+
+        StorageDiskItem changed = (StorageDiskItem) read.get(new UUID(0, 3));
+        changed.putRaw(new ItemStack(Items.DIAMOND), 42);
+        changed.calculateStoredAmount();
+
+        read.markForSaving(changed);
+        tag = read.writeToNBT(new NBTTagCompound());
+
+        Map<String, byte[]> after = readSegmentFiles();
+
+        assertEquals(before.keySet(), after.keySet());
+        for (String name : before.keySet()) {
+            if (name.equals("segment_3.dat")) {
+                assertFalse(Arrays.equals(before.get(name), after.get(name)));
+            } else {
+                assertArrayEquals(before.get(name), after.get(name), name + " was rewritten");
+            }
+        }
+
+        assertFalse(crashed.exists());
+
+        StorageDiskManager reread = createManager(tag);
+
+        assertSameContents(changed, reread.get(new UUID(0, 3)));
+        assertSameContents(createDisk(3 + 64), reread.get(new UUID(0, 3 + 64)));
+    }
+
+    @Test
+    public void testUnloadedDiskIsReadFromItsSegment() throws InterruptedException {
+        StorageDiskManager manager = createManager(null, () -> 1);
+
+        UUID id = new UUID(0, 5);
+        StorageDiskItem disk = createDisk(5);
+        manager.set(id, disk);
+
+        Thread.sleep(10);
+        manager.writeToNBT(new NBTTagCompound());
+
+        WeakReference<StorageDiskItem> reference = new WeakReference<>(disk);
+        disk = null;
+
+        assumeTrue(collect(reference), "The unloaded disk wasn't garbage collected");
+
+        assertSameContents(createDisk(5), manager.get(id));
+    }
+
+    @Test
+    public void testUsedDiskStaysTheSameAfterUnloading() throws InterruptedException {
+        StorageDiskManager manager = createManager(null, () -> 1);
+
+        UUID id = new UUID(0, 5);
+        StorageDiskItem disk = createDisk(5);
+        manager.set(id, disk);
+
+        Thread.sleep(10);
+        manager.writeToNBT(new NBTTagCompound());
+
+        assertSame(disk, manager.get(id));
+    }
+
+    @Test
+    public void testMarkForSavingLoadsUnloadedDiskAgain() throws InterruptedException {
+        long[] unloadDelay = {1};
+        StorageDiskManager manager = createManager(null, () -> unloadDelay[0]);
+
+        UUID id = new UUID(0, 5);
+        StorageDiskItem disk = createDisk(5);
+        manager.set(id, disk);
+
+        Thread.sleep(10);
+        manager.writeToNBT(new NBTTagCompound());
+
+        unloadDelay[0] = 60_000;
+
+        // A disk drive still uses the unloaded disk and changes it
+        disk.putRaw(new ItemStack(Items.DIAMOND), 42);
+        disk.calculateStoredAmount();
+
+        manager.markForSaving(disk);
+        NBTTagCompound tag = manager.writeToNBT(new NBTTagCompound());
+
+        assertSameContents(disk, createManager(tag).get(id));
+
+        // The manager holds the disk strongly again
+        WeakReference<StorageDiskItem> reference = new WeakReference<>(disk);
+        disk = null;
+
+        assertFalse(collect(reference));
+        assertSame(reference.get(), manager.get(id));
+    }
+
+    private StorageDiskManager createManager(NBTTagCompound tag) {
+        return createManager(tag, () -> 0);
+    }
+
+    private StorageDiskManager createManager(NBTTagCompound tag, LongSupplier unloadDelay) {
+        StorageDiskManager manager = new StorageDiskManager(StorageDiskManager.NAME, unloadDelay);
+
+        if (tag != null) {
+            manager.readFromNBT(tag);
+        }
+
+        manager.tryReadDisks(world);
+
+        return manager;
+    }
+
+    private static StorageDiskItem createDisk(int seed) {
+        StorageDiskItem disk = new StorageDiskItem(null, -1);
+
+        for (int i = 0; i <= seed % 10; i++) {
+            disk.putRaw(new ItemStack(Items.STICK, 1, i), seed + 1L);
+        }
+
+        disk.calculateStoredAmount();
+
+        return disk;
+    }
+
+    private static boolean collect(WeakReference<?> reference) throws InterruptedException {
+        for (int i = 0; i < 10 && reference.get() != null; ++i) {
+            System.gc();
+            Thread.sleep(10);
+        }
+
+        return reference.get() == null;
+    }
+
+    private File getSegmentDirectory() {
+        return new File(directory, StorageDiskManager.NAME);
+    }
+
+    private List<File> getSegmentFiles() {
+        File[] files = getSegmentDirectory().listFiles((dir, name) -> name.endsWith(".dat"));
+
+        return files == null ? Collections.emptyList() : Arrays.asList(files);
+    }
+
+    private Map<String, byte[]> readSegmentFiles() throws IOException {
+        Map<String, byte[]> contents = new HashMap<>();
+
+        for (File file : getSegmentFiles()) {
+            contents.put(file.getName(), Files.readAllBytes(file.toPath()));
+        }
+
+        return contents;
+    }
+
+    private static void assertSameContents(IStorageDisk<ItemStack> expected, IStorageDisk<?> actual) {
+        assertNotNull(actual);
+        assertEquals(expected.getEntries().size(), actual.getEntries().size());
+        assertEquals(expected.getStored(), actual.getStored());
+
+        for (StackListEntry<ItemStack> entry : expected.getEntries()) {
+            assertTrue(actual.getEntries().stream().anyMatch(other -> other.getCount() == entry.getCount() &&
+                    API.instance().getComparer().isEqualNoQuantity(entry.getStack(), (ItemStack) other.getStack())));
+        }
+    }
+
+    /**
+     * A world that saves its data files in a directory
+     */
+    private static class TestWorld extends DummyWorld {
+        private final ISaveHandler saveHandler;
+
+        TestWorld(File directory) {
+            this.saveHandler = (ISaveHandler) Proxy.newProxyInstance(
+                    ISaveHandler.class.getClassLoader(),
+                    new Class<?>[]{ISaveHandler.class},
+                    (proxy, method, args) -> {
+                        if (method.getName().equals("getMapFileFromName")) {
+                            return new File(directory, args[0] + ".dat");
+                        }
+
+                        throw new UnsupportedOperationException(method.getName());
+                    });
+        }
+
+        @Override
+        public ISaveHandler getSaveHandler() {
+            return saveHandler;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package morerefinedstorage.storage;
+
+import com.raoulvdberge.refinedstorage.api.util.Action;
+import com.raoulvdberge.refinedstorage.api.util.IComparer;
+import com.raoulvdberge.refinedstorage.api.util.StackListResult;
+import com.raoulvdberge.refinedstorage.apiimpl.storage.externalstorage.StorageExternalItem;
+import morerefinedstorage.MinecraftForgeTest;
+import net.minecraft.init.Items;
+import net.minecraft.item.ItemStack;
+import net.minecraftforge.items.ItemStackHandler;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StorageExternalItemExtractAllTest implements MinecraftForgeTest {
+
+    private static final int[] DAMAGES = {0, 10, 100, 1000};
+
+    private ItemStackHandler handler;
+    private StorageExternalItem storage;
+
+    @BeforeEach
+    public void createInventory() {
+        handler = new ItemStackHandler(DAMAGES.length + 1);
+
+        for (int i = 0; i < DAMAGES.length; i++) {
+            handler.setStackInSlot(i, new ItemStack(Items.DIAMOND_PICKAXE, 1, DAMAGES[i]));
+        }
+
+        handler.setStackInSlot(DAMAGES.length, new ItemStack(Items.DIAMOND, 5));
+
+        //noinspection ConstantConditions
+        storage = new StorageExternalItem(null, () -> handler, false);
+    }
+
+    @Test
+    public void testToolsKeepTheirDamage() {
+        List<StackListResult<ItemStack>> extracted =
+                storage.extractAll(new ItemStack(Items.DIAMOND_PICKAXE), DAMAGES.length, IComparer.COMPARE_NBT, Action.PERFORM);
+
+        List<Integer> damages = new ArrayList<>();
+        for (StackListResult<ItemStack> result : extracted) {
+            assertEquals(1, result.getCount());
+
+            damages.add(result.getStack().getItemDamage());
+        }
+
+        assertEquals(DAMAGES.length, damages.size());
+        for (int damage : DAMAGES) {
+            assertTrue(damages.contains(damage), "Missing tool with damage " + damage);
+        }
+
+        for (int i = 0; i < DAMAGES.length; i++) {
+            assertTrue(handler.getStackInSlot(i).isEmpty());
+        }
+    }
+
+    @Test
+    public void testStopsAtSize() {
+        List<StackListResult<ItemStack>> extracted =
+                storage.extractAll(new ItemStack(Items.DIAMOND_PICKAXE), 2, IComparer.COMPARE_NBT, Action.PERFORM);
+
+        assertEquals(2, extracted.size());
+        assertEquals(2, storage.getStored() - 5);
+    }
+
+    @Test
+    public void testSimulateDoesNotCountTheSameToolTwice() {
+        List<StackListResult<ItemStack>> extracted =
+                storage.extractAll(new ItemStack(Items.DIAMOND_PICKAXE), DAMAGES.length, IComparer.COMPARE_NBT, Action.SIMULATE);
+
+        assertEquals(1, extracted.size());
+        assertEquals(DAMAGES.length + 5, storage.getStored());
+    }
+
+    @Test
+    public void testExactFlagsExtractAtOnce() {
+        List<StackListResult<ItemStack>> extracted =
+                storage.extractAll(new ItemStack(Items.DIAMOND), 5, IComparer.COMPARE_NBT | IComparer.COMPARE_DAMAGE, Action.PERFORM);
+
+        assertEquals(1, extracted.size());
+        assertEquals(5, extracted.get(0).getCount());
+    }
+}